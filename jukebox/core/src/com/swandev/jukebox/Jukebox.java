@@ -1,41 +1,51 @@
 package com.swandev.jukebox;
 
-import java.io.IOException;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Executor;
 
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.RequiredArgsConstructor;
 
-import org.jaudiotagger.audio.AudioFile;
-import org.jaudiotagger.audio.AudioFileIO;
-import org.jaudiotagger.audio.exceptions.CannotReadException;
-import org.jaudiotagger.audio.exceptions.InvalidAudioFrameException;
-import org.jaudiotagger.audio.exceptions.ReadOnlyFileException;
-import org.jaudiotagger.tag.FieldKey;
-import org.jaudiotagger.tag.KeyNotFoundException;
-import org.jaudiotagger.tag.TagException;
-
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.audio.Music;
 import com.badlogic.gdx.audio.Music.OnCompletionListener;
-import com.badlogic.gdx.files.FileHandle;
 import com.google.common.base.Optional;
-import com.google.common.base.Preconditions;
 import com.google.common.base.Predicate;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.swandev.jukebox.LibraryScanner.Scan;
+import com.swandev.jukebox.LibraryScanner.ScanListener;
+import com.swandev.jukebox.LibraryWatcher.WatchListener;
 
 @RequiredArgsConstructor
 public class Jukebox {
 
 	private static final String MUSIC_DIR = "Music/";
-	private final Map<String, SongData> songs = Maps.newHashMap();
+	private static final String INDEX_FILE = "jukebox-library.idx";
+	/** By name, in name order so clients can page through them */
+	private final TreeMap<String, SongData> songs = Maps.newTreeMap();
+	/** The same songs by path, for when their files change */
+	private final Map<String, SongData> songsByPath = Maps.newHashMap();
 	private final List<SongRequest> playList = Lists.newArrayList();
+	/** Only the current and next songs need to be open, whatever the size of the library */
+	private final MusicPool musicPool = new MusicPool();
+	/** Saves parsing the tags of songs that haven't changed since the last scan */
+	private LibraryIndex index;
+	private LibraryScanner scanner;
+	private Scan scan;
+	private LibraryWatcher watcher;
+	/** Which songs changed in which version of the library, so clients only download what changed */
+	private LibraryLog log = new LibraryLog();
 
 	final JukeboxServerScreen jukeboxServerScreen;
 	private boolean paused = false;
@@ -50,10 +60,17 @@ public class Jukebox {
 	}
 
 	public void dispose() {
-		for (SongData song : songs.values()) {
-			song.getMusic().dispose();
+		if (scan != null) {
+			scan.cancel();
+		}
+		if (watcher != null) {
+			watcher.stop();
+			watcher = null;
 		}
+		musicPool.clear();
 		songs.clear();
+		songsByPath.clear();
+		log = new LibraryLog();
 		playList.clear();
 	}
 
@@ -62,38 +79,182 @@ public class Jukebox {
 		return songs.values();
 	}
 
-	/** Scan the directory and update the songs available */
+	/** Sends the client what changed since the version it has, or the first page of the whole list if it has fallen too far behind */
+	public void sendSongList(String nickname, String epoch, long version) {
+		final Set<String> changed = epoch.equals(log.getEpoch()) ? log.changedSince(version) : null;
+		if (changed == null) {
+			sendSongListPage(nickname, log.getEpoch(), "");
+			return;
+		}
+		final List<SongData> added = Lists.newArrayList();
+		final List<String> removed = Lists.newArrayList();
+		for (String songName : changed) {
+			final SongData song = songs.get(songName);
+			if (isInLibrary(song)) {
+				added.add(song);
+			} else {
+				removed.add(songName);
+			}
+		}
+		jukeboxServerScreen.getSocketIO().swanEmit(JukeboxLib.SEND_SONGLIST, nickname, epoch, version, log.getVersion(), added, removed);
+	}
+
+	/** Sends the client the songs after the one it last got. Pages by name rather than position, so songs coming and going between pages never make it skip any */
+	public void sendSongListPage(String nickname, String epoch, String after) {
+		if (!epoch.equals(log.getEpoch())) {
+			after = ""; // the library has been reset, so the client has to start again
+		}
+		final List<SongData> page = Lists.newArrayList();
+		final Iterator<SongData> rest = songs.tailMap(after, false).values().iterator();
+		while (rest.hasNext() && page.size() < JukeboxLib.PAGE_SIZE) {
+			final SongData song = rest.next();
+			if (isInLibrary(song)) {
+				page.add(song);
+			}
+		}
+		jukeboxServerScreen.getSocketIO().swanEmit(JukeboxLib.SONGLIST_PAGE, nickname, log.getEpoch(), log.getVersion(), after, page, rest.hasNext());
+	}
+
+	/** Tells one client a song has gone. Claims no version, so it applies whatever the client has, and a client on another epoch asks for the list again */
+	private void sendRemoved(String nickname, String songName) {
+		jukeboxServerScreen.getSocketIO().swanEmit(JukeboxLib.SEND_SONGLIST, nickname, log.getEpoch(), 0L, 0L, Collections.<SongData> emptyList(), Collections.singletonList(songName));
+	}
+
+	/** Moves the library on a version, and tells every client what changed */
+	private void publish(List<SongData> added, List<String> removed) {
+		if (added.isEmpty() && removed.isEmpty()) {
+			return;
+		}
+		final long from = log.getVersion();
+		final Set<String> changed = Sets.newLinkedHashSet(removed);
+		for (SongData song : added) {
+			changed.add(song.toString());
+		}
+		log.record(changed);
+		jukeboxServerScreen.getSocketIO().swanBroadcast(JukeboxLib.LIBRARY_CHANGED, log.getEpoch(), from, log.getVersion(), added, removed);
+	}
+
+	/** Starts scanning the music directory, and everything under it. Songs become requestable, and are sent to the clients, as they are found */
 	private void refreshLibrary() {
 		if (!Gdx.files.external(MUSIC_DIR).isDirectory()) {
 			throw new RuntimeException("Could not find music directory!");
 		}
-		final FileHandle[] files = Gdx.files.external(MUSIC_DIR).list();
-		for (final FileHandle file : files) {
-			if (file.extension().equals("mp3")) {
-				try {
-					addSongToLibrary(file);
-				} catch (Exception e) { // yes, catchall exceptions are bad, blah blah blah
-					Gdx.app.log("JUKEBOX", "Error adding " + file.name() + " to the library", e);
+		if (index == null) {
+			index = new LibraryIndex(Gdx.files.local(INDEX_FILE));
+			scanner = new LibraryScanner(index, jukeboxServerScreen.getSocketIO().getEventEmitter().getRenderThreadExecutor());
+		}
+		index.load();
+		scan = scanner.scan(Gdx.files.external(MUSIC_DIR), new ScanListener() {
+
+			@Override
+			public void onSongsFound(Scan found, List<SongData> newSongs) {
+				if (found != scan) {
+					return; // left over from before a reset
+				}
+				for (SongData songData : newSongs) {
+					// TODO: handle duplicates?
+					songs.put(songData.toString(), songData);
+					songsByPath.put(songData.getPath(), songData);
+				}
+				Gdx.app.log("JUKEBOX", "Added " + newSongs.size() + " songs to the library");
+				publish(newSongs, Collections.<String> emptyList());
+			}
+
+			@Override
+			public void onScanFinished(Scan finished) {
+				// a cancelled scan hasn't seen every file, and saving would drop the ones it missed from the index
+				if (finished == scan && !finished.isCancelled()) {
+					Gdx.app.log("JUKEBOX", "Library scan finished with " + songs.size() + " songs");
+					index.save();
+					watch(finished);
+				}
+			}
+		});
+	}
+
+	/** Picks up changes to the music directory from here on, without another scan */
+	private void watch(Scan baseline) {
+		final Executor renderThread = jukeboxServerScreen.getSocketIO().getEventEmitter().getRenderThreadExecutor();
+		watcher = new LibraryWatcher(scanner, renderThread, Gdx.files.external(MUSIC_DIR), baseline, new WatchListener() {
+
+			@Override
+			public void onLibraryChanged(LibraryWatcher changedWatcher, List<SongData> changed, List<String> removedPaths) {
+				if (changedWatcher == watcher) {
+					applyChanges(changed, removedPaths);
 				}
 			}
+		});
+		watcher.start();
+	}
+
+	/** Brings the library in line with the music directory, keeping every request that can still be played */
+	private void applyChanges(List<SongData> changed, List<String> removedPaths) {
+		final SongData currentSong = getCurrentSongData();
+		final List<String> removed = Lists.newArrayList();
+		for (String path : removedPaths) {
+			final SongData song = songsByPath.remove(path);
+			if (song != null) {
+				removed.add(song.toString());
+				dropQueuedRequests(song.toString());
+				// the current song plays on from its open Music, and is forgotten when it finishes
+				if (song != currentSong) {
+					forget(song);
+				}
+			}
+		}
+		for (SongData song : changed) {
+			final SongData old = songsByPath.put(song.getPath(), song);
+			if (old != null) {
+				// retagged or rewritten, so clients replace it, and requests follow it to its new name
+				removed.add(old.toString());
+				if (songs.get(old.toString()) == old) {
+					songs.remove(old.toString());
+				}
+				if (old != currentSong) {
+					musicPool.release(old);
+				}
+				renameRequests(old.toString(), song.toString());
+			}
+			songs.put(song.toString(), song);
+		}
+		Gdx.app.log("JUKEBOX", "Library changed: " + changed.size() + " new or updated, " + removedPaths.size() + " removed");
+		publish(changed, removed);
+		jukeboxServerScreen.uiUpdatePlayList();
+	}
+
+	/** Whether the song is still in the music directory */
+	private boolean isInLibrary(SongData song) {
+		return song != null && songsByPath.get(song.getPath()) == song;
+	}
+
+	private void forget(SongData song) {
+		if (songs.get(song.toString()) == song) {
+			songs.remove(song.toString());
+		}
+		musicPool.release(song);
+	}
+
+	/** Drops the requests for a song that has gone, other than the one playing */
+	private void dropQueuedRequests(String songName) {
+		for (int i = playList.size() - 1; i > 0; i--) {
+			if (playList.get(i).getSongName().equals(songName)) {
+				playList.remove(i);
+			}
 		}
 	}
 
-	private void addSongToLibrary(final FileHandle file) throws CannotReadException, IOException, TagException, ReadOnlyFileException, InvalidAudioFrameException, KeyNotFoundException {
-		final AudioFile audioFile = AudioFileIO.read(file.file());
-		final String title = audioFile.getTag().getFirst(FieldKey.TITLE);
-		final Music song = Gdx.audio.newMusic(file);
-		int duration = audioFile.getAudioHeader().getTrackLength();
-		String artist;
-		try {
-			artist = audioFile.getTag().getFirst(FieldKey.ARTIST);
-		} catch (KeyNotFoundException e) {
-			artist = "UNKNOWN";
+	private void renameRequests(String from, String to) {
+		for (int i = 0; i < playList.size(); i++) {
+			final SongRequest request = playList.get(i);
+			if (request.getSongName().equals(from)) {
+				playList.set(i, new SongRequest(request.getRequester(), to));
+			}
 		}
-		final SongData songData = new SongData(title, song, duration, artist);
-		Gdx.app.log("JUKEBOX", "Adding to library: " + songData);
-		// TODO: handle duplicates?
-		songs.put(songData.toString(), songData);
+	}
+
+	/** The library scan in progress, or the last one to run */
+	public Scan getScan() {
+		return scan;
 	}
 
 	public SongRequest getCurrentSongRequest() {
@@ -105,12 +266,29 @@ public class Jukebox {
 		return request == null ? null : songs.get(request.getSongName());
 	}
 
+	/** How far into the current song we are, in seconds */
+	public float getPosition() {
+		final SongData currentSong = getCurrentSongData();
+		// asked every frame, so never tries to open a song that couldn't be
+		return currentSong == null || !musicPool.isOpen(currentSong) ? 0 : musicPool.get(currentSong).getPosition();
+	}
+
+	/** Opens the song after the current one, so it is ready when the current one finishes */
+	private void preloadNext() {
+		if (playList.size() > 1) {
+			musicPool.preload(songs.get(playList.get(1).getSongName()));
+		}
+	}
+
 	public void play() {
 		paused = false;
 		final SongData currentSong = getCurrentSongData();
 		if (currentSong != null) {
-			final Music music = currentSong.getMusic();
-			if (!music.isPlaying()) {
+			final Music music = musicPool.get(currentSong);
+			if (music == null) {
+				// gone or unreadable, perhaps deleted before the watcher noticed, so give up on it and play the next
+				popPlaylist();
+			} else if (!music.isPlaying()) {
 				music.setOnCompletionListener(new OnCompletionListener() {
 
 					@Override
@@ -119,6 +297,7 @@ public class Jukebox {
 					}
 				});
 				music.play();
+				preloadNext();
 				jukeboxServerScreen.getSocketIO().swanBroadcast(JukeboxLib.CURRENT_SONG, getCurrentSongData().toString(), getCurrentSongRequest().getRequester());
 			}
 		}
@@ -127,8 +306,8 @@ public class Jukebox {
 	public void pause() {
 		paused = true;
 		final SongData currentSong = getCurrentSongData();
-		if (currentSong != null) {
-			currentSong.getMusic().pause();
+		if (currentSong != null && musicPool.isOpen(currentSong)) {
+			musicPool.get(currentSong).pause();
 		}
 	}
 
@@ -137,7 +316,12 @@ public class Jukebox {
 		if (currentSong != null) {
 			final String requester = getCurrentSongRequest().getRequester();
 			playList.remove(0);
-			currentSong.getMusic().stop();
+			if (musicPool.isOpen(currentSong)) {
+				musicPool.get(currentSong).stop();
+			}
+			if (!isInLibrary(currentSong)) {
+				forget(currentSong); // its file went while it was playing
+			}
 			jukeboxServerScreen.getSocketIO().swanEmit(JukeboxLib.SONG_OVER, requester);
 			jukeboxServerScreen.uiUpdatePlayList();
 			play(); // activate the next song, if present
@@ -149,7 +333,12 @@ public class Jukebox {
 	}
 
 	public void request(final String sender, final String songName) {
-		Preconditions.checkArgument(songs.get(songName) != null);
+		if (!isInLibrary(songs.get(songName))) {
+			// routine now the library changes under the clients, so just put the client right
+			Gdx.app.log("JUKEBOX", sender + " requested " + songName + ", which is no longer in the library");
+			sendRemoved(sender, songName);
+			return;
+		}
 		final SongRequest request = new SongRequest(sender, songName);
 		// remove an old request if it exists, bump your new request down
 		Optional<SongRequest> previousRequest = Iterables.tryFind(playList, new Predicate<SongRequest>() {
@@ -165,17 +354,19 @@ public class Jukebox {
 		if (!paused) {
 			play(); // might be possible to play right now
 		}
+		preloadNext();
 	}
 
+	/** What the library knows about a song. Its Music is only opened when needed, by the {@link MusicPool} */
 	@Data
 	@AllArgsConstructor
 	@NoArgsConstructor
 	public static class SongData {
 		private String songName;
-		// exclude from json
-		private transient Music music;
 		private int lengthInSeconds;
 		private String artist;
+		/** Relative to external storage. Only known to the jukebox, never sent to the clients */
+		private transient String path;
 
 		@Override
 		public String toString() {
@@ -33,6 +33,7 @@ public class JukeboxClient extends Game {
 		spriteBatch = new SpriteBatch();
 		assets = new Assets();
 		socketIO = new SocketIOState();
+		JukeboxLib.registerCodecs(socketIO);
 		shapeRenderer = new ShapeRenderer();
 		connectScreen = new JukeboxClientConnectScreen(this, socketIO, spriteBatch);
 		jukeboxClientScreen = new JukeboxClientScreen(getSocketIO(), this);
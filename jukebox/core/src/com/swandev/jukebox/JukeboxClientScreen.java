@@ -6,8 +6,6 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 
-import org.json.JSONArray;
-
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.Input.Keys;
 import com.badlogic.gdx.graphics.Color;
@@ -28,12 +26,12 @@ import com.badlogic.gdx.scenes.scene2d.ui.TextButton;
 import com.badlogic.gdx.scenes.scene2d.utils.ChangeListener;
 import com.badlogic.gdx.scenes.scene2d.utils.ClickListener;
 import com.badlogic.gdx.scenes.scene2d.utils.TextureRegionDrawable;
-import com.badlogic.gdx.utils.Json;
 import com.badlogic.gdx.utils.viewport.StretchViewport;
 import com.google.common.collect.Lists;
 import com.swandev.jukebox.Jukebox.SongData;
 import com.swandev.swanlib.screen.SwanGameStartScreen;
 import com.swandev.swanlib.socket.EventCallback;
+import com.swandev.swanlib.socket.EventEmitter.EventPriority;
 import com.swandev.swanlib.socket.SocketIOState;
 import com.swandev.swanlib.util.SwanUtil;
 
@@ -61,9 +59,16 @@ public class JukeboxClientScreen extends SwanGameStartScreen {
 	public Skin skin;
 	private Label yourSelectionInfo;
 
-	private static final Json json = new Json();
-
 	private List<SongData> songs = Lists.newArrayList();
+	private Comparator<SongData> sortOrder;
+
+	private static final String CACHE_FILE = "jukebox-songlist.cache";
+	/** The song list as of the last version of the library we've seen, kept between sessions so only what changed is downloaded */
+	private final SongListCache songCache = new SongListCache(Gdx.files.local(CACHE_FILE));
+	/** Waiting on a reply to REQUEST_SONGLIST, which covers every change broadcast in the meantime */
+	private boolean syncing;
+	/** The library's version when the first page arrived, while paging through the whole list, otherwise -1 */
+	private long pagingFrom = -1;
 
 	private boolean yourSongIsPlaying = false;
 
@@ -104,6 +109,9 @@ public class JukeboxClientScreen extends SwanGameStartScreen {
 		addButtons();
 		buildBackground();
 		stage.addActor(table);
+		// shown straight away, and brought up to date once everyone is ready
+		songCache.load();
+		refreshSongs();
 	}
 
 	private void buildBackground() {
@@ -134,6 +142,7 @@ public class JukeboxClientScreen extends SwanGameStartScreen {
 			addListener(new ChangeListener() {
 				@Override
 				public void changed(ChangeEvent event, Actor actor) {
+					sortOrder = comparator;
 					Collections.sort(songs, comparator);
 					buildSongList();
 				}
@@ -167,6 +176,7 @@ public class JukeboxClientScreen extends SwanGameStartScreen {
 
 	@Override
 	public void dispose() {
+		songCache.save();
 		stage.dispose();
 	}
 
@@ -186,18 +196,63 @@ public class JukeboxClientScreen extends SwanGameStartScreen {
 			}
 
 		});
-		registerEvent(JukeboxLib.SEND_SONGLIST, new EventCallback() {
+		// a whole page of the library can arrive at once, so let it wait behind anything the user is waiting on
+		registerEvent(JukeboxLib.SEND_SONGLIST, EventPriority.LOW, new EventCallback() {
+			@SuppressWarnings("unchecked")
+			@Override
+			public void onEvent(IOAcknowledge arg0, Object... args) {
+				// already decoded by JukeboxLib.DELTA on the socket thread
+				syncing = false;
+				if (!applyDelta((String) args[0], (Long) args[1], (Long) args[2], (List<SongData>) args[3], (List<String>) args[4])) {
+					requestSongList();
+				}
+				songCache.save();
+			}
+		});
+
+		registerEvent(JukeboxLib.LIBRARY_CHANGED, EventPriority.LOW, new EventCallback() {
+			@SuppressWarnings("unchecked")
+			@Override
+			public void onEvent(IOAcknowledge arg0, Object... args) {
+				if (syncing || isPaging()) {
+					return; // the reply we're waiting on covers it
+				}
+				if (!applyDelta((String) args[0], (Long) args[1], (Long) args[2], (List<SongData>) args[3], (List<String>) args[4])) {
+					requestSongList(); // missed a change somewhere
+				}
+			}
+		});
+
+		registerEvent(JukeboxLib.SONGLIST_PAGE, EventPriority.LOW, new EventCallback() {
+			@SuppressWarnings("unchecked")
 			@Override
 			public void onEvent(IOAcknowledge arg0, Object... args) {
-				Gdx.app.log("JUKEBOX", "song list receieved!");
-				// This code is messy and exemplifies the problem that we are using 3 different json processing engines in the same project. But whatever, that's not going to change now.
-				songs = Lists.newArrayList();
-				Gdx.app.log("HELP", args.toString());
-				JSONArray jsonArray = (JSONArray) args[0];
-				for (int i = 0; i < jsonArray.length(); i++) {
-					songs.add(json.fromJson(SongData.class, jsonArray.getJSONObject(i).toString()));
+				final String epoch = (String) args[0];
+				final String after = (String) args[2];
+				final List<SongData> page = (List<SongData>) args[3];
+				final boolean more = (Boolean) args[4];
+				if (after.isEmpty()) {
+					songCache.clear();
+					pagingFrom = (Long) args[1];
+				} else if (!isPaging()) {
+					return;
+				}
+				syncing = false;
+				songCache.add(page);
+				if (more) {
+					getSocketIO().emitToScreen(JukeboxLib.REQUEST_SONGLIST_PAGE, getSocketIO().getNickname(), epoch, page.get(page.size() - 1).toString());
+					if (after.isEmpty()) {
+						refreshSongs(); // something to look at while the rest arrives
+					}
+				} else {
+					Gdx.app.log("JUKEBOX", "song list receieved!");
+					// songs may have changed while paging, so catch up on everything since the first page
+					songCache.setVersion(epoch, pagingFrom);
+					pagingFrom = -1;
+					songCache.save();
+					refreshSongs();
+					requestSongList();
 				}
-				buildSongList();
 			}
 		});
 
@@ -214,6 +269,41 @@ public class JukeboxClientScreen extends SwanGameStartScreen {
 
 	}
 
+	private boolean isPaging() {
+		return pagingFrom >= 0;
+	}
+
+	/** Asks for what changed since the version we have, unless already waiting on an answer */
+	private void requestSongList() {
+		if (!syncing) {
+			syncing = true;
+			getSocketIO().emitToScreen(JukeboxLib.REQUEST_SONGLIST, getSocketIO().getNickname(), songCache.getEpoch(), songCache.getVersion());
+			Gdx.app.log("JUKEBOX", "Requesting song list changes since " + songCache.getVersion() + " from server...");
+		}
+	}
+
+	/** Applies the changes, unless they don't follow on from what we have */
+	private boolean applyDelta(String epoch, long from, long to, List<SongData> added, List<String> removed) {
+		if (!epoch.equals(songCache.getEpoch()) || from > songCache.getVersion()) {
+			return false;
+		}
+		// the changes may overlap what we have, but applying one twice does no harm
+		songCache.apply(added, removed);
+		songCache.setVersion(epoch, Math.max(songCache.getVersion(), to));
+		if (!added.isEmpty() || !removed.isEmpty()) {
+			refreshSongs();
+		}
+		return true;
+	}
+
+	private void refreshSongs() {
+		songs = Lists.newArrayList(songCache.getSongs());
+		if (sortOrder != null) {
+			Collections.sort(songs, sortOrder);
+		}
+		buildSongList();
+	}
+
 	private void buildSongList() {
 		songGroup.clear();
 		final Table songTable = new Table();
@@ -288,8 +378,9 @@ public class JukeboxClientScreen extends SwanGameStartScreen {
 
 	@Override
 	protected void onEveryoneReady() {
-		getSocketIO().emitToScreen(JukeboxLib.REQUEST_SONGLIST);
-		Gdx.app.log("JUKEBOX", "Requesting song list from server...");
+		syncing = false;
+		pagingFrom = -1;
+		requestSongList();
 	}
 
 	public static final Comparator<SongData> byArtist = new Comparator<SongData>() {
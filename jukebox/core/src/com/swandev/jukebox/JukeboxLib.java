@@ -1,11 +1,26 @@
 package com.swandev.jukebox;
 
 import com.badlogic.gdx.graphics.Color;
+import com.swandev.jukebox.Jukebox.SongData;
+import com.swandev.swanlib.codec.Codec;
+import com.swandev.swanlib.codec.CodecReader;
+import com.swandev.swanlib.codec.CodecWriter;
+import com.swandev.swanlib.codec.Codecs;
+import com.swandev.swanlib.codec.EventCodec;
+import com.swandev.swanlib.socket.SocketIOState;
 
 public class JukeboxLib {
 
-	public static final String SEND_SONGLIST = "send_songlist";
+	/** Asks the jukebox for what changed since the version the client has: nickname, epoch, version. An empty epoch asks for everything */
 	public static final String REQUEST_SONGLIST = "request_songlist";
+	/** The reply to {@link #REQUEST_SONGLIST}, sent to that client alone when it can catch up from the changes: see {@link #DELTA} */
+	public static final String SEND_SONGLIST = "send_songlist";
+	/** Every change to the library, sent to all clients as it happens: see {@link #DELTA} */
+	public static final String LIBRARY_CHANGED = "library_changed";
+	/** Asks for the next page of the whole song list: nickname, epoch, and the name of the last song the client has, or empty for the first page */
+	public static final String REQUEST_SONGLIST_PAGE = "request_songlist_page";
+	/** The reply when a client needs the whole list, or asks for the next page: see {@link #PAGE} */
+	public static final String SONGLIST_PAGE = "songlist_page";
 	public static final String ADD_TO_PLAYLIST = "add_to_playlist";
 	public static final String USER_PLAY = "user_play";
 	public static final String USER_PAUSE = "user_pause";
@@ -16,6 +31,47 @@ public class JukeboxLib {
 
 	public static final Color CURRENT_SONG_COLOUR = Color.ORANGE;
 
+	/** A song as the clients see it, without its music */
+	public static final Codec<SongData> SONG_DATA = new Codec<SongData>() {
+
+		@Override
+		public void write(CodecWriter out, SongData song) {
+			out.beginList(3);
+			out.writeString(song.getSongName());
+			out.writeInt(song.getLengthInSeconds());
+			out.writeString(song.getArtist());
+			out.endList();
+		}
+
+		@Override
+		public SongData read(CodecReader in) {
+			in.beginList();
+			final SongData song = new SongData();
+			song.setSongName(in.readString());
+			song.setLengthInSeconds(in.readInt());
+			song.setArtist(in.readString());
+			in.endList();
+			return song;
+		}
+	};
+
+	/** The changes between two versions of the library: epoch, from version, to version, songs added or changed, and the names of songs removed */
+	public static final EventCodec DELTA = EventCodec.of(Codecs.STRING, Codecs.LONG, Codecs.LONG, Codecs.listOf(SONG_DATA), Codecs.STRING_LIST);
+
+	/** Up to {@link #PAGE_SIZE} songs, in name order: epoch, version, the name the page starts after, the songs, and whether there are more */
+	public static final EventCodec PAGE = EventCodec.of(Codecs.STRING, Codecs.LONG, Codecs.STRING, Codecs.listOf(SONG_DATA), Codecs.BOOLEAN);
+
+	public static final int PAGE_SIZE = 200;
+
+	/** The jukebox and its clients both call this before connecting */
+	public static void registerCodecs(SocketIOState socketIO) {
+		socketIO.setCodec(REQUEST_SONGLIST, EventCodec.of(Codecs.STRING, Codecs.STRING, Codecs.LONG));
+		socketIO.setCodec(SEND_SONGLIST, DELTA);
+		socketIO.setCodec(LIBRARY_CHANGED, DELTA);
+		socketIO.setCodec(REQUEST_SONGLIST_PAGE, EventCodec.of(Codecs.STRING, Codecs.STRING, Codecs.STRING));
+		socketIO.setCodec(SONGLIST_PAGE, PAGE);
+	}
+
 	public static String formatTime(int time) {
 		return (time / 60) + ":" + String.format("%02d", time % 60);
 	}
@@ -25,6 +25,7 @@ public class JukeboxServer extends Game {
 	public void create() {
 		assets = new Assets();
 		socketIO = new SocketIOState();
+		JukeboxLib.registerCodecs(socketIO);
 		serverConnectScreen = new JukeboxServerConnectScreen(this, getSocketIO());
 		jukeboxScreen = new JukeboxServerScreen(getSocketIO(), this);
 		setScreen(serverConnectScreen);
@@ -12,6 +12,7 @@ import com.badlogic.gdx.scenes.scene2d.ui.Table;
 import com.badlogic.gdx.utils.viewport.StretchViewport;
 import com.swandev.jukebox.Jukebox.SongData;
 import com.swandev.jukebox.Jukebox.SongRequest;
+import com.swandev.jukebox.LibraryScanner.Scan;
 import com.swandev.swanlib.screen.SwanGameStartScreen;
 import com.swandev.swanlib.socket.EventCallback;
 import com.swandev.swanlib.socket.SocketIOState;
@@ -24,6 +25,7 @@ public class JukeboxServerScreen extends SwanGameStartScreen {
 	private final Table playListTable;
 	private final JukeboxServer game;
 	private final Label timeElapsed;
+	private final Label scanProgress;
 	private final CubeAnimation cubeAnimation;
 	private Slider slider;
 	private final static int DEFAULT_FONT_SIZE = 25;
@@ -43,6 +45,9 @@ public class JukeboxServerScreen extends SwanGameStartScreen {
 		timeElapsed = new Label("", game.getAssets().getSkin());
 		playListTable = new Table();
 		stage.addActor(playListTable);
+		scanProgress = new Label("", game.getAssets().getSkin());
+		scanProgress.setPosition(10, 10);
+		stage.addActor(scanProgress);
 	}
 
 	@Override
@@ -55,11 +60,21 @@ public class JukeboxServerScreen extends SwanGameStartScreen {
 			timeElapsed.setText(formatSliderTime(songData));
 		}
 		setSliderPosition(songData);
+		updateScanProgress();
+	}
+
+	private void updateScanProgress() {
+		final Scan scan = jukebox.getScan();
+		if (scan == null || scan.isFinished()) {
+			scanProgress.setText("");
+		} else {
+			scanProgress.setText("Scanning library: " + scan.getFilesScanned() + " / " + scan.getFilesFound());
+		}
 	}
 
 	public void setSliderPosition(SongData songData) {
 		if (songData != null) {
-			float elapsedTime = songData.getMusic().getPosition();
+			float elapsedTime = jukebox.getPosition();
 			float totalTime = songData.getLengthInSeconds();
 			float sliderPosition = (elapsedTime / totalTime) * 100;
 			slider.setValue(Math.min(sliderPosition, 100));
@@ -121,7 +136,15 @@ public class JukeboxServerScreen extends SwanGameStartScreen {
 
 			@Override
 			public void onEvent(IOAcknowledge ack, Object... args) {
-				getSocketIO().swanBroadcast(JukeboxLib.SEND_SONGLIST, jukebox.getLibrary());
+				jukebox.sendSongList((String) args[0], (String) args[1], (Long) args[2]);
+			}
+
+		});
+		registerEvent(JukeboxLib.REQUEST_SONGLIST_PAGE, new EventCallback() {
+
+			@Override
+			public void onEvent(IOAcknowledge ack, Object... args) {
+				jukebox.sendSongListPage((String) args[0], (String) args[1], (String) args[2]);
 			}
 
 		});
@@ -153,7 +176,7 @@ public class JukeboxServerScreen extends SwanGameStartScreen {
 			}
 
 		});
-		getSocketIO().on(JukeboxLib.USER_NEXT, new EventCallback() {
+		registerEvent(JukeboxLib.USER_NEXT, new EventCallback() {
 
 			@Override
 			public void onEvent(IOAcknowledge ack, Object... args) {
@@ -166,7 +189,7 @@ public class JukeboxServerScreen extends SwanGameStartScreen {
 
 	private String formatSliderTime(SongData song) {
 		// mask clock skew
-		int curPos = Math.min((int) song.getMusic().getPosition(), song.getLengthInSeconds());
+		int curPos = Math.min((int) jukebox.getPosition(), song.getLengthInSeconds());
 		return JukeboxLib.formatTime(curPos) + " / " + JukeboxLib.formatTime(song.getLengthInSeconds());
 	}
 
@@ -0,0 +1,182 @@
+package com.swandev.jukebox;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.swandev.jukebox.Jukebox.SongData;
+
+/**
+ * Remembers the tags of every song the jukebox has scanned, so a rescan only has to parse files that are new or have changed since. A file is taken to be unchanged while its path, size and modification time are.
+ *
+ * The index is one file of binary records, each a song's path, size, modification time, title, length and artist, read in a single go. New and changed songs are appended, and a later record for a path replaces an earlier one. Once most of the records are out of date the file is rewritten with just the current ones. A record cut short by a crash is ignored, and the song parsed again.
+ *
+ * It is safe to use from the threads scanning the library.
+ */
+public class LibraryIndex {
+
+	private static final int MAGIC = 0x53574c49; // SWLI
+	private static final int VERSION = 1;
+	/** Rewritten once it has this many times as many records as songs */
+	private static final int COMPACT_RATIO = 2;
+
+	private final FileHandle file;
+	private final Map<String, Entry> entries = Maps.newHashMap();
+	/** Songs looked up or added since loading. The rest are gone from the library */
+	private final Set<String> seen = Sets.newHashSet();
+	private final List<Entry> pending = Lists.newArrayList();
+	private int records;
+	private boolean loaded;
+	private boolean needsRewrite;
+
+	private static class Entry {
+		final String path;
+		final long size;
+		final long lastModified;
+		final String title;
+		final int lengthInSeconds;
+		final String artist;
+
+		Entry(String path, long size, long lastModified, String title, int lengthInSeconds, String artist) {
+			this.path = path;
+			this.size = size;
+			this.lastModified = lastModified;
+			this.title = title;
+			this.lengthInSeconds = lengthInSeconds;
+			this.artist = artist;
+		}
+
+		boolean matches(FileHandle file) {
+			return size == file.length() && lastModified == file.lastModified();
+		}
+
+		SongData toSongData() {
+			return new SongData(title, lengthInSeconds, artist, path);
+		}
+	}
+
+	public LibraryIndex(FileHandle file) {
+		this.file = file;
+	}
+
+	/** Reads the index, if there is one. A damaged index is started afresh */
+	public synchronized void load() {
+		entries.clear();
+		seen.clear();
+		pending.clear();
+		records = 0;
+		loaded = true;
+		needsRewrite = false;
+		if (!file.exists()) {
+			needsRewrite = true;
+			return;
+		}
+		final DataInputStream in = new DataInputStream(new ByteArrayInputStream(file.readBytes()));
+		try {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+				needsRewrite = true;
+				return;
+			}
+			while (in.available() > 0) {
+				final Entry entry = new Entry(in.readUTF(), in.readLong(), in.readLong(), in.readUTF(), in.readInt(), in.readUTF());
+				entries.put(entry.path, entry);
+				records++;
+			}
+		} catch (EOFException e) {
+			// the last record was cut short, and gets dropped when the index is next rewritten
+			needsRewrite = true;
+		} catch (IOException e) {
+			Gdx.app.error("JUKEBOX", "Couldn't read the library index", e);
+			entries.clear();
+			needsRewrite = true;
+		}
+	}
+
+	/** The song's tags as they were when it was last scanned, or null if it is new or has changed since */
+	public synchronized SongData lookup(FileHandle song) {
+		final Entry entry = entries.get(song.path());
+		if (entry == null || !entry.matches(song)) {
+			return null;
+		}
+		seen.add(entry.path);
+		return entry.toSongData();
+	}
+
+	/** Records a song that has just been parsed. It is written out by {@link #save()} */
+	public synchronized void put(FileHandle song, SongData songData) {
+		final Entry entry = new Entry(song.path(), song.length(), song.lastModified(), nullToEmpty(songData.getSongName()), songData.getLengthInSeconds(), nullToEmpty(songData.getArtist()));
+		entries.put(entry.path, entry);
+		seen.add(entry.path);
+		pending.add(entry);
+	}
+
+	/** Forgets a song whose file has gone */
+	public synchronized void forget(String path) {
+		entries.remove(path);
+		seen.remove(path);
+	}
+
+	/** Forgets the songs that haven't been looked up or put since loading, then writes out what has changed */
+	public synchronized void save() {
+		if (!loaded) {
+			return;
+		}
+		entries.keySet().retainAll(seen);
+		try {
+			if (needsRewrite || records + pending.size() > COMPACT_RATIO * Math.max(entries.size(), 1)) {
+				write(entries.values(), false);
+				records = entries.size();
+				needsRewrite = false;
+			} else if (!pending.isEmpty()) {
+				write(pending, true);
+				records += pending.size();
+			}
+			pending.clear();
+		} catch (IOException e) {
+			Gdx.app.error("JUKEBOX", "Couldn't save the library index", e);
+			needsRewrite = true;
+		} catch (GdxRuntimeException e) {
+			Gdx.app.error("JUKEBOX", "Couldn't save the library index", e);
+			needsRewrite = true;
+		}
+	}
+
+	private void write(Iterable<Entry> toWrite, boolean append) throws IOException {
+		final OutputStream stream = file.write(append);
+		try {
+			final DataOutputStream out = new DataOutputStream(stream);
+			if (!append) {
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+			}
+			for (Entry entry : toWrite) {
+				out.writeUTF(entry.path);
+				out.writeLong(entry.size);
+				out.writeLong(entry.lastModified);
+				out.writeUTF(entry.title);
+				out.writeInt(entry.lengthInSeconds);
+				out.writeUTF(entry.artist);
+			}
+			out.flush();
+		} finally {
+			stream.close();
+		}
+	}
+
+	private static String nullToEmpty(String value) {
+		return value == null ? "" : value;
+	}
+
+}
@@ -0,0 +1,78 @@
+package com.swandev.jukebox;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Random;
+import java.util.Set;
+
+import lombok.Data;
+import lombok.Getter;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Sets;
+
+/**
+ * Numbers the changes to the library, and remembers which songs each one touched, so a client that has seen one version of the library can be sent only what changed since. Only the last {@link #DEFAULT_CAPACITY} changes are kept, and a client that has fallen further behind than that has to fetch the whole list again.
+ *
+ * Versions only mean something within one epoch, which is new for every log, so a client holding on to a version from before a reset, or another jukebox, is never sent a delta against the wrong library.
+ */
+public class LibraryLog {
+
+	public static final int DEFAULT_CAPACITY = 4096;
+
+	@Data
+	private static class Change {
+		private final long version;
+		private final String songName;
+	}
+
+	@Getter
+	private final String epoch = Long.toHexString(new Random().nextLong());
+	@Getter
+	private long version;
+	private final int capacity;
+	/** Oldest first */
+	private final ArrayDeque<Change> changes = new ArrayDeque<Change>();
+	/** Changes up to this version may have been forgotten */
+	private long forgottenUpTo;
+
+	public LibraryLog() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	public LibraryLog(int capacity) {
+		Preconditions.checkArgument(capacity > 0);
+		this.capacity = capacity;
+	}
+
+	/** Records that the songs were added, changed or removed, and moves on to the next version */
+	public long record(Collection<String> songNames) {
+		version++;
+		for (String songName : songNames) {
+			changes.addLast(new Change(version, songName));
+		}
+		while (changes.size() > capacity) {
+			forgottenUpTo = changes.removeFirst().getVersion();
+		}
+		return version;
+	}
+
+	/** Every song added, changed or removed after the given version, or null if the log can't tell */
+	public Set<String> changedSince(long since) {
+		if (since < forgottenUpTo || since > version) {
+			return null;
+		}
+		final Set<String> changed = Sets.newLinkedHashSet();
+		final Iterator<Change> newestFirst = changes.descendingIterator();
+		while (newestFirst.hasNext()) {
+			final Change change = newestFirst.next();
+			if (change.getVersion() <= since) {
+				break;
+			}
+			changed.add(change.getSongName());
+		}
+		return changed;
+	}
+
+}
@@ -0,0 +1,240 @@
+package com.swandev.jukebox;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import lombok.AccessLevel;
+import lombok.Data;
+import lombok.Getter;
+
+import org.jaudiotagger.audio.AudioFile;
+import org.jaudiotagger.audio.AudioFileIO;
+import org.jaudiotagger.tag.FieldKey;
+import org.jaudiotagger.tag.KeyNotFoundException;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.swandev.jukebox.Jukebox.SongData;
+
+/**
+ * Finds the songs under the music directory, and its subdirectories, without holding up the render thread. Tags are parsed by a small pool of daemon threads, skipping whatever the {@link LibraryIndex} already knows, and songs are handed to the listener on the render thread in batches as they are found, so they can be requested before the scan is done.
+ */
+public class LibraryScanner {
+
+	public static final String EXTENSION = "mp3";
+	public static final int DEFAULT_THREADS = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+	public interface ScanListener {
+		/** Called on the render thread with songs found since the last call */
+		void onSongsFound(Scan scan, List<SongData> songs);
+
+		/** Called on the render thread once every song has been handed over, or the scan was cancelled */
+		void onScanFinished(Scan scan);
+	}
+
+	/** What a file looked like when it was last seen, to tell when it has changed */
+	@Data
+	static class FileStamp {
+		private final long length;
+		private final long lastModified;
+
+		FileStamp(FileHandle file) {
+			this.length = file.length();
+			this.lastModified = file.lastModified();
+		}
+	}
+
+	@Getter(AccessLevel.PACKAGE)
+	private final LibraryIndex index;
+	private final Executor renderThread;
+	private final ThreadPoolExecutor workers;
+
+	/** One run over the music directory */
+	public class Scan {
+		private final ScanListener listener;
+		private final AtomicBoolean cancelled = new AtomicBoolean();
+		/** Files still to be parsed, plus one for the walk itself */
+		private final AtomicInteger outstanding = new AtomicInteger(1);
+		/** Songs waiting to be handed to the listener */
+		private final Queue<SongData> found = new ConcurrentLinkedQueue<SongData>();
+		private final AtomicBoolean publishing = new AtomicBoolean();
+		/** Every song file the walk found, by path, for {@link LibraryWatcher} to start from */
+		@Getter(AccessLevel.PACKAGE)
+		private final Map<String, FileStamp> stamps = new ConcurrentHashMap<String, FileStamp>();
+		@Getter
+		private volatile int filesFound;
+		private final AtomicInteger filesScanned = new AtomicInteger();
+		@Getter
+		private volatile boolean finished;
+
+		Scan(ScanListener listener) {
+			this.listener = listener;
+		}
+
+		/** Stops parsing more files. Songs already found may still be handed over, and the listener is told the scan finished */
+		public void cancel() {
+			cancelled.set(true);
+		}
+
+		public boolean isCancelled() {
+			return cancelled.get();
+		}
+
+		public int getFilesScanned() {
+			return filesScanned.get();
+		}
+
+		/** From 0 to 1. Only an estimate until the walk has found every file */
+		public float getProgress() {
+			final int total = filesFound;
+			return total == 0 ? (finished ? 1 : 0) : (float) filesScanned.get() / total;
+		}
+
+		private void walk(FileHandle directory) {
+			for (final FileHandle file : directory.list()) {
+				if (cancelled.get()) {
+					return;
+				}
+				if (file.isDirectory()) {
+					walk(file);
+				} else if (isSong(file)) {
+					stamps.put(file.path(), new FileStamp(file));
+					filesFound++;
+					outstanding.incrementAndGet();
+					workers.execute(new Runnable() {
+
+						@Override
+						public void run() {
+							parse(file);
+						}
+					});
+				}
+			}
+		}
+
+		private void parse(FileHandle file) {
+			try {
+				if (!cancelled.get()) {
+					final SongData song = read(file);
+					if (song != null) {
+						found.add(song);
+						publish();
+					}
+				}
+			} finally {
+				filesScanned.incrementAndGet();
+				done();
+			}
+		}
+
+		private void done() {
+			if (outstanding.decrementAndGet() == 0) {
+				publish();
+			}
+		}
+
+		/** Hands everything found so far to the render thread in one go, however many workers find songs in the meantime */
+		private void publish() {
+			if (publishing.compareAndSet(false, true)) {
+				renderThread.execute(new Runnable() {
+
+					@Override
+					public void run() {
+						publishing.set(false);
+						deliver();
+					}
+				});
+			}
+		}
+
+		private void deliver() {
+			final boolean allParsed = outstanding.get() == 0;
+			final List<SongData> songs = Lists.newArrayList();
+			SongData song;
+			while ((song = found.poll()) != null) {
+				songs.add(song);
+			}
+			if (!songs.isEmpty()) {
+				listener.onSongsFound(this, songs);
+			}
+			if (allParsed && !finished) {
+				finished = true;
+				listener.onScanFinished(this);
+			}
+		}
+	}
+
+	/**
+	 * @param renderThread
+	 *            runs tasks on the render thread, where the listener is called
+	 */
+	public LibraryScanner(LibraryIndex index, Executor renderThread) {
+		this(index, renderThread, DEFAULT_THREADS);
+	}
+
+	public LibraryScanner(LibraryIndex index, Executor renderThread, int threads) {
+		this.index = index;
+		this.renderThread = renderThread;
+		// idle threads go away, so an idle jukebox costs nothing
+		this.workers = new ThreadPoolExecutor(threads, threads, 5, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactoryBuilder().setDaemon(true).setNameFormat("jukebox-scan-%d").build());
+		workers.allowCoreThreadTimeOut(true);
+	}
+
+	/** Starts scanning the directory, and everything under it, in the background */
+	public Scan scan(final FileHandle directory, ScanListener listener) {
+		final Scan scan = new Scan(listener);
+		workers.execute(new Runnable() {
+
+			@Override
+			public void run() {
+				try {
+					scan.walk(directory);
+				} finally {
+					scan.done();
+				}
+			}
+		});
+		return scan;
+	}
+
+	static boolean isSong(FileHandle file) {
+		return EXTENSION.equalsIgnoreCase(file.extension());
+	}
+
+	/** The song's tags, from the index if the file hasn't changed, or null if it can't be read. Safe to call from any thread */
+	SongData read(FileHandle file) {
+		final SongData indexed = index.lookup(file);
+		if (indexed != null) {
+			return indexed;
+		}
+		try {
+			final AudioFile audioFile = AudioFileIO.read(file.file());
+			final String title = audioFile.getTag().getFirst(FieldKey.TITLE);
+			final int duration = audioFile.getAudioHeader().getTrackLength();
+			String artist;
+			try {
+				artist = audioFile.getTag().getFirst(FieldKey.ARTIST);
+			} catch (KeyNotFoundException e) {
+				artist = "UNKNOWN";
+			}
+			final SongData song = new SongData(title, duration, artist, file.path());
+			index.put(file, song);
+			return song;
+		} catch (Exception e) { // jaudiotagger throws all sorts, and one bad file mustn't stop the scan
+			Gdx.app.log("JUKEBOX", "Error adding " + file.name() + " to the library", e);
+			return null;
+		}
+	}
+
+}
@@ -0,0 +1,138 @@
+package com.swandev.jukebox;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.swandev.jukebox.Jukebox.SongData;
+import com.swandev.jukebox.LibraryScanner.FileStamp;
+import com.swandev.jukebox.LibraryScanner.Scan;
+
+/**
+ * Keeps the library up to date with the music directory after the first scan, so music copied in, deleted or retagged shows up without a reset. A background thread looks over the directory every {@link #POLL_INTERVAL_IN_MS} and only the files whose size or modification time changed are parsed again.
+ *
+ * It polls because the core module has to build for Android and Java 6, which have no WatchService. Listing the directory costs no more than the metadata the scan already reads.
+ */
+public class LibraryWatcher {
+
+	public static final long POLL_INTERVAL_IN_MS = 3000;
+
+	public interface WatchListener {
+		/**
+		 * Called on the render thread whenever something changed
+		 *
+		 * @param changed
+		 *            songs that are new, or whose files have changed since they were last read
+		 * @param removedPaths
+		 *            the paths of songs that have gone, or can no longer be read
+		 */
+		void onLibraryChanged(LibraryWatcher watcher, List<SongData> changed, List<String> removedPaths);
+	}
+
+	private final LibraryScanner scanner;
+	private final Executor renderThread;
+	private final FileHandle directory;
+	private final WatchListener listener;
+	/** Only used by the watcher's thread */
+	private Map<String, FileStamp> stamps;
+	private final ScheduledExecutorService thread = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setDaemon(true).setNameFormat("jukebox-watcher").build());
+	private volatile boolean stopped;
+
+	/**
+	 * @param baseline
+	 *            the finished scan that built the library, so only changes since it walked the directory are reported
+	 */
+	public LibraryWatcher(LibraryScanner scanner, Executor renderThread, FileHandle directory, Scan baseline, WatchListener listener) {
+		this.scanner = scanner;
+		this.renderThread = renderThread;
+		this.directory = directory;
+		this.stamps = Maps.newHashMap(baseline.getStamps());
+		this.listener = listener;
+	}
+
+	public void start() {
+		thread.scheduleWithFixedDelay(new Runnable() {
+
+			@Override
+			public void run() {
+				try {
+					poll();
+				} catch (RuntimeException e) {
+					// an exception would cancel every later poll
+					Gdx.app.error("JUKEBOX", "Couldn't check the music directory for changes", e);
+				}
+			}
+		}, POLL_INTERVAL_IN_MS, POLL_INTERVAL_IN_MS, TimeUnit.MILLISECONDS);
+	}
+
+	/** No changes are reported once this returns */
+	public void stop() {
+		stopped = true;
+		thread.shutdownNow();
+	}
+
+	private void poll() {
+		if (!directory.isDirectory()) {
+			return; // unmounted, perhaps, and forgetting the whole library would lose the playlist
+		}
+		final Map<String, FileHandle> files = Maps.newHashMap();
+		list(directory, files);
+		final Map<String, FileStamp> current = Maps.newHashMapWithExpectedSize(files.size());
+		final List<SongData> changed = Lists.newArrayList();
+		final List<String> removedPaths = Lists.newArrayList();
+		for (Map.Entry<String, FileHandle> file : files.entrySet()) {
+			final String path = file.getKey();
+			final FileStamp stamp = new FileStamp(file.getValue());
+			current.put(path, stamp);
+			final FileStamp previous = stamps.get(path);
+			if (stamp.equals(previous) || stopped) {
+				continue;
+			}
+			final SongData song = scanner.read(file.getValue());
+			if (song != null) {
+				changed.add(song);
+			} else if (previous != null) {
+				removedPaths.add(path);
+			}
+		}
+		for (String path : stamps.keySet()) {
+			if (!current.containsKey(path)) {
+				removedPaths.add(path);
+				scanner.getIndex().forget(path);
+			}
+		}
+		stamps = current;
+		if (changed.isEmpty() && removedPaths.isEmpty()) {
+			return;
+		}
+		scanner.getIndex().save();
+		renderThread.execute(new Runnable() {
+
+			@Override
+			public void run() {
+				if (!stopped) {
+					listener.onLibraryChanged(LibraryWatcher.this, changed, removedPaths);
+				}
+			}
+		});
+	}
+
+	private static void list(FileHandle directory, Map<String, FileHandle> into) {
+		for (FileHandle file : directory.list()) {
+			if (file.isDirectory()) {
+				list(file, into);
+			} else if (LibraryScanner.isSong(file)) {
+				into.put(file.path(), file);
+			}
+		}
+	}
+
+}
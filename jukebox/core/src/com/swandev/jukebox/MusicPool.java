@@ -0,0 +1,96 @@
+package com.swandev.jukebox;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.audio.Music;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.google.common.base.Preconditions;
+import com.swandev.jukebox.Jukebox.SongData;
+
+/**
+ * Opens a song's Music only when it is about to be played, and keeps the few most recently used open, so the number of decoders and open files doesn't grow with the library. The least recently used is disposed once there are more than the pool holds, unless it is playing.
+ *
+ * Music can only be used on the render thread, and so can the pool.
+ */
+public class MusicPool {
+
+	public static final int DEFAULT_CAPACITY = 3;
+
+	private final int capacity;
+	/** By path, least recently used first */
+	private final LinkedHashMap<String, Music> open = new LinkedHashMap<String, Music>(16, 0.75f, true);
+
+	public MusicPool() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * @param capacity
+	 *            at least two, so the current song and the next can both be open
+	 */
+	public MusicPool(int capacity) {
+		Preconditions.checkArgument(capacity >= 2);
+		this.capacity = capacity;
+	}
+
+	/** The song's Music, opened if it isn't already, or null if its file is missing or can't be played */
+	public Music get(SongData song) {
+		Music music = open.get(song.getPath());
+		if (music == null) {
+			try {
+				music = Gdx.audio.newMusic(Gdx.files.external(song.getPath()));
+			} catch (GdxRuntimeException e) {
+				Gdx.app.error("JUKEBOX", "Couldn't open " + song, e);
+				return null;
+			}
+			open.put(song.getPath(), music);
+			evict();
+		}
+		return music;
+	}
+
+	/** Opens the song ahead of time, so it starts without a delay when it comes up. One that can't be opened is skipped when its turn comes */
+	public void preload(SongData song) {
+		get(song);
+	}
+
+	/** Whether the song's Music is open right now */
+	public boolean isOpen(SongData song) {
+		return open.containsKey(song.getPath());
+	}
+
+	public int size() {
+		return open.size();
+	}
+
+	/** Closes the song's Music if it is open, such as when its file has gone */
+	public void release(SongData song) {
+		final Music music = open.remove(song.getPath());
+		if (music != null) {
+			music.dispose();
+		}
+	}
+
+	private void evict() {
+		final Iterator<Map.Entry<String, Music>> eldest = open.entrySet().iterator();
+		while (open.size() > capacity && eldest.hasNext()) {
+			final Music music = eldest.next().getValue();
+			if (!music.isPlaying()) {
+				eldest.remove();
+				music.dispose();
+			}
+		}
+	}
+
+	/** Disposes every open Music */
+	public void clear() {
+		for (Music music : open.values()) {
+			music.dispose();
+		}
+		open.clear();
+	}
+
+}
@@ -0,0 +1,130 @@
+package com.swandev.jukebox;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import lombok.Getter;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.google.common.collect.Maps;
+import com.swandev.jukebox.Jukebox.SongData;
+
+/**
+ * A client's copy of the jukebox's song list, as of one version of the library, kept on the device so a client coming back only has to download what changed while it was away.
+ *
+ * File layout: magic, format version, then the library's epoch and version, a count, and each song's name, length and artist, all written with {@link DataOutputStream}. Only used by the render thread.
+ */
+public class SongListCache {
+
+	private static final int MAGIC = 0x53574c43; // SWLC
+	private static final int FORMAT_VERSION = 1;
+
+	private final FileHandle file;
+	/** By name, as the jukebox knows them */
+	private final Map<String, SongData> songs = Maps.newLinkedHashMap();
+	/** Which library the songs came from, or empty if they don't make up a whole version of any library */
+	@Getter
+	private String epoch = "";
+	@Getter
+	private long version;
+
+	public SongListCache(FileHandle file) {
+		this.file = file;
+	}
+
+	public Collection<SongData> getSongs() {
+		return songs.values();
+	}
+
+	/** Empties the cache, which is invalid until {@link #setVersion} says which version it has been filled up to */
+	public void clear() {
+		songs.clear();
+		epoch = "";
+		version = 0;
+	}
+
+	public void setVersion(String epoch, long version) {
+		this.epoch = epoch;
+		this.version = version;
+	}
+
+	public void add(List<SongData> added) {
+		for (SongData song : added) {
+			songs.put(song.toString(), song);
+		}
+	}
+
+	/** Applies what changed in the library. Safe to apply a change more than once, so deltas that overlap what the cache already has can be applied whole */
+	public void apply(List<SongData> added, List<String> removed) {
+		for (String songName : removed) {
+			songs.remove(songName);
+		}
+		add(added);
+	}
+
+	public void load() {
+		clear();
+		if (!file.exists()) {
+			return;
+		}
+		try {
+			final DataInputStream in = new DataInputStream(new ByteArrayInputStream(file.readBytes()));
+			if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+				return;
+			}
+			final String cachedEpoch = in.readUTF();
+			final long cachedVersion = in.readLong();
+			final int count = in.readInt();
+			for (int i = 0; i < count; i++) {
+				final SongData song = new SongData();
+				song.setSongName(in.readUTF());
+				song.setLengthInSeconds(in.readInt());
+				song.setArtist(in.readUTF());
+				songs.put(song.toString(), song);
+			}
+			setVersion(cachedEpoch, cachedVersion);
+		} catch (IOException e) {
+			Gdx.app.error("JUKEBOX", "Couldn't read the song list cache", e);
+			clear();
+		} catch (GdxRuntimeException e) {
+			Gdx.app.error("JUKEBOX", "Couldn't read the song list cache", e);
+			clear();
+		}
+	}
+
+	public void save() {
+		try {
+			final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			final DataOutputStream out = new DataOutputStream(bytes);
+			out.writeInt(MAGIC);
+			out.writeInt(FORMAT_VERSION);
+			out.writeUTF(epoch);
+			out.writeLong(version);
+			out.writeInt(songs.size());
+			for (SongData song : songs.values()) {
+				out.writeUTF(nullToEmpty(song.getSongName()));
+				out.writeInt(song.getLengthInSeconds());
+				out.writeUTF(nullToEmpty(song.getArtist()));
+			}
+			out.flush();
+			file.writeBytes(bytes.toByteArray(), false);
+		} catch (IOException e) {
+			Gdx.app.error("JUKEBOX", "Couldn't save the song list cache", e);
+		} catch (GdxRuntimeException e) {
+			Gdx.app.error("JUKEBOX", "Couldn't save the song list cache", e);
+		}
+	}
+
+	private static String nullToEmpty(String value) {
+		return value == null ? "" : value;
+	}
+
+}
@@ -7,6 +7,7 @@ import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import com.badlogic.gdx.graphics.glutils.ShapeRenderer;
 import com.badlogic.gdx.scenes.scene2d.ui.Skin;
 import com.swandev.swangame.screen.PatternClientScreen;
+import com.swandev.swangame.socket.SocketIOEvents;
 import com.swandev.swanlib.screen.ClientConnectScreen;
 import com.swandev.swanlib.socket.SocketIOState;
 
@@ -35,6 +36,8 @@ public class PatternClientGame extends Game {
 		spriteBatch = new SpriteBatch();
 		assets = new Assets();
 		socketIO = new SocketIOState();
+		SocketIOEvents.registerCodecs(socketIO);
+		socketIO.setBinaryPayloads(true);
 		shapeRenderer = new ShapeRenderer();
 		connectScreen = new PatternClientConnectScreen(this, socketIO, spriteBatch, getAssets().getSkin());
 		patternClientScreen = new PatternClientScreen(this);
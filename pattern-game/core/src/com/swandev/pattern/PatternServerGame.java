@@ -7,6 +7,7 @@ import com.badlogic.gdx.Screen;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import com.badlogic.gdx.graphics.glutils.ShapeRenderer;
 import com.swandev.swangame.screen.PatternServerScreen;
+import com.swandev.swangame.socket.SocketIOEvents;
 import com.swandev.swanlib.screen.ServerConnectScreen;
 import com.swandev.swanlib.socket.SocketIOState;
 
@@ -35,6 +36,8 @@ public class PatternServerGame extends Game {
 		spriteBatch = new SpriteBatch();
 		assets = new Assets();
 		socketIO = new SocketIOState();
+		SocketIOEvents.registerCodecs(socketIO);
+		socketIO.setBinaryPayloads(true);
 		shapeRenderer = new ShapeRenderer();
 		serverConnectScreen = new PatternServerConnectScreen(this, getSocketIO());
 		patternServerScreen = new PatternServerScreen(this);
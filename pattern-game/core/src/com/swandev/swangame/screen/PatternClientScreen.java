@@ -7,8 +7,6 @@ import java.util.List;
 import lombok.Getter;
 import lombok.Setter;
 
-import org.json.JSONArray;
-
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.scenes.scene2d.Actor;
 import com.badlogic.gdx.scenes.scene2d.Stage;
@@ -24,7 +22,6 @@ import com.swandev.swangame.util.LogTags;
 import com.swandev.swangame.util.PatternCommon;
 import com.swandev.swanlib.screen.SwanGameStartScreen;
 import com.swandev.swanlib.socket.EventCallback;
-import com.swandev.swanlib.util.SwanUtil;
 
 public class PatternClientScreen extends SwanGameStartScreen {
 
@@ -65,10 +62,10 @@ public class PatternClientScreen extends SwanGameStartScreen {
 	protected void registerEvents() {
 		registerEvent(SocketIOEvents.PATTERN_REQUESTED, new EventCallback() {
 
+			@SuppressWarnings("unchecked")
 			@Override
 			public void onEvent(IOAcknowledge ack, Object... args) {
-				JSONArray jsonArray = (JSONArray) args[0];
-				List<String> pattern = SwanUtil.parseJsonList(jsonArray);
+				List<String> pattern = (List<String>) args[0];
 				setPattern(pattern);
 				setButtonDisables(false);
 			}
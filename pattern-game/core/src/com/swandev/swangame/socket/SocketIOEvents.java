@@ -1,5 +1,9 @@
 package com.swandev.swangame.socket;
 
+import com.swandev.swanlib.codec.Codecs;
+import com.swandev.swanlib.codec.EventCodec;
+import com.swandev.swanlib.socket.SocketIOState;
+
 public class SocketIOEvents {
 
 	// pattern game
@@ -13,4 +17,9 @@ public class SocketIOEvents {
 
 	
 	public static final String CLIENT_DISCONNECT = "client_disconnect";
+
+	/** The screen and the players both call this before connecting */
+	public static void registerCodecs(SocketIOState socketIO) {
+		socketIO.setCodec(PATTERN_REQUESTED, EventCodec.of(Codecs.STRING_LIST));
+	}
 }
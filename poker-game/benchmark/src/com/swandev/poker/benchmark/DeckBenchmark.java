@@ -0,0 +1,48 @@
+package com.swandev.poker.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.swandev.poker.Deck;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DeckBenchmark {
+
+	private static final int MAX_PLAYERS = 8;
+
+	private final Deck deck = new Deck(new Random(42));
+
+	@Benchmark
+	public Deck shuffle() {
+		deck.reset();
+		deck.shuffle();
+		return deck;
+	}
+
+	/** A full deal for the largest table: two cards each for eight players and the five table cards */
+	@Benchmark
+	public void shuffleAndDealTable(Blackhole blackhole) {
+		deck.reset();
+		deck.shuffle();
+		for (int i = 0; i < 2 * MAX_PLAYERS + 5; i++) {
+			blackhole.consume(deck.dealTop());
+		}
+	}
+
+}
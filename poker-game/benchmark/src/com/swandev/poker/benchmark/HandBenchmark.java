@@ -0,0 +1,84 @@
+package com.swandev.poker.benchmark;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.collect.Lists;
+import com.swandev.poker.Card;
+import com.swandev.poker.Deck;
+import com.swandev.poker.HandEvaluator;
+import com.swandev.poker.PokerHand;
+
+/** Hand evaluation and comparison over a fixed set of random hands, cycled through so the branch predictor can't learn a single hand */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HandBenchmark {
+
+	private static final int NUM_HANDS = 1024;
+
+	private final List<List<Card>> fiveCardHands = Lists.newArrayList();
+	private final List<List<Card>> sevenCardHands = Lists.newArrayList();
+	private final long[] sevenCardMasks = new long[NUM_HANDS];
+	private final PokerHand[] hands = new PokerHand[NUM_HANDS];
+	private int next;
+
+	@Setup
+	public void setup() {
+		final Deck deck = new Deck(new Random(42));
+		for (int i = 0; i < NUM_HANDS; i++) {
+			deck.reset();
+			deck.shuffle();
+			final List<Card> cards = Lists.newArrayList();
+			for (int j = 0; j < 7; j++) {
+				cards.add(deck.dealTop());
+			}
+			fiveCardHands.add(Lists.newArrayList(cards.subList(0, 5)));
+			sevenCardHands.add(cards);
+			sevenCardMasks[i] = Card.toMask(cards);
+			hands[i] = PokerHand.getBestHandFromSeven(cards);
+		}
+	}
+
+	private int nextIndex() {
+		next = (next + 1) & (NUM_HANDS - 1);
+		return next;
+	}
+
+	@Benchmark
+	public PokerHand newPokerHand() {
+		return new PokerHand(fiveCardHands.get(nextIndex()));
+	}
+
+	@Benchmark
+	public PokerHand bestHandFromSeven() {
+		return PokerHand.getBestHandFromSeven(sevenCardHands.get(nextIndex()));
+	}
+
+	@Benchmark
+	public int evaluateSevenCardMask() {
+		return HandEvaluator.evaluate(sevenCardMasks[nextIndex()]);
+	}
+
+	@Benchmark
+	public int compareTo() {
+		final int i = nextIndex();
+		return hands[i].compareTo(hands[(i + 1) & (NUM_HANDS - 1)]);
+	}
+
+}
@@ -0,0 +1,112 @@
+package com.swandev.poker.benchmark;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.google.common.collect.Lists;
+import com.swandev.poker.Card;
+import com.swandev.poker.Deck;
+import com.swandev.poker.PlayerStats;
+import com.swandev.poker.PokerHand;
+import com.swandev.poker.PokerLib;
+import com.swandev.poker.PokerPot;
+
+/**
+ * Pays out a showdown between the given number of players. With side pots every player went all in for a different amount, so each contribution level becomes its own pot. One player has always folded after putting in an ante.
+ *
+ * Payout consumes the players' bets, so each invocation pays out a batch of {@link #BATCH} tables dealt beforehand. A single payout takes nanoseconds, far less than JMH's per-invocation fixture overhead, so timing one at a time would mostly measure JMH.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PokerPotBenchmark {
+
+	/** Enough that an invocation runs for well over the fixture overhead */
+	static final int BATCH = 4096;
+
+	@Param({ "2", "3", "4", "5", "6", "7", "8" })
+	public int players;
+
+	@Param({ "false", "true" })
+	public boolean sidePots;
+
+	private final Random random = new Random(42);
+	private final Deck deck = new Deck(random);
+	private final List<Table> tables = Lists.newArrayListWithCapacity(BATCH);
+
+	private static class Table {
+		final List<PlayerStats> rankList = Lists.newArrayList();
+		List<PlayerStats> foldedList;
+		final PokerPot pot = new PokerPot();
+	}
+
+	@Setup(Level.Invocation)
+	public void setup() {
+		tables.clear();
+		for (int i = 0; i < BATCH; i++) {
+			tables.add(deal());
+		}
+	}
+
+	private Table deal() {
+		deck.reset();
+		deck.shuffle();
+		final List<Card> table = deck.dealTable();
+		final Table dealt = new Table();
+		final PokerPot pot = dealt.pot;
+		final List<PlayerStats> rankList = dealt.rankList;
+		for (int i = 0; i < players; i++) {
+			final PlayerStats player = new PlayerStats("player" + i, PokerLib.STARTING_VALUE);
+			player.resetBetweenRounds();
+			deck.deal(player);
+			final List<Card> cards = Lists.newArrayList(table);
+			cards.addAll(player.getPrivateCards());
+			player.setHand(PokerHand.getBestHandFromSeven(cards));
+			player.placeBet(sidePots ? (i + 1) * PokerLib.ANTE : PokerLib.ANTE * players, pot);
+			rankList.add(player);
+		}
+		Collections.sort(rankList, new Comparator<PlayerStats>() {
+			@Override
+			public int compare(PlayerStats o1, PlayerStats o2) {
+				return o2.getHand().compareTo(o1.getHand());
+			}
+		});
+		final PlayerStats folded = new PlayerStats("folded", PokerLib.STARTING_VALUE);
+		folded.resetBetweenRounds();
+		folded.placeBet(PokerLib.ANTE, pot);
+		folded.setFolded(true);
+		dealt.foldedList = Lists.newArrayList(folded);
+		return dealt;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BATCH)
+	public void payout(Blackhole blackhole) {
+		for (int i = 0; i < BATCH; i++) {
+			final Table table = tables.get(i);
+			blackhole.consume(table.pot.payout(table.rankList, table.foldedList));
+		}
+	}
+
+}
@@ -1,10 +1,23 @@
 package com.swandev.poker;
 
+import java.util.List;
+
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.RequiredArgsConstructor;
 
+/**
+ * A playing card. There are exactly 52 instances, one per card, obtained through {@link #of} or {@link #fromIndex}.
+ *
+ * Each card also has a compact encoding: an index in 0..51 laid out as suit * 13 + rank, and a single bit at that index in a long. A set of cards is the OR of their masks, and the 13 bits belonging to one suit are that suit's rank mask as used by {@link HandEvaluator}.
+ */
 @Data
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
 public class Card implements Comparable<Card> {
 
+	public static final int NUM_RANKS = 13;
+	public static final int NUM_CARDS = 52;
+
 	private final Suit suit;
 	private final Rank rank;
 
@@ -16,13 +29,59 @@ public class Card implements Comparable<Card> {
 		TWO, THREE, FOUR, FIVE, SIX, SEVEN, EIGHT, NINE, TEN, JACK, QUEEN, KING, ACE;
 	}
 
+	private static final Card[] CARDS = new Card[NUM_CARDS];
+	private static final int[] IMAGE_NUMBERS = new int[NUM_CARDS];
+
+	static {
+		for (Suit suit : Suit.values()) {
+			for (Rank rank : Rank.values()) {
+				final int index = getIndex(suit, rank);
+				CARDS[index] = new Card(suit, rank);
+				// image numbers are the suit (1-4) followed by the two digit face value (2-14)
+				IMAGE_NUMBERS[index] = (suit.ordinal() + 1) * 100 + rank.ordinal() + 2;
+			}
+		}
+	}
+
+	public static Card of(Suit suit, Rank rank) {
+		return CARDS[getIndex(suit, rank)];
+	}
+
+	public static Card fromIndex(int index) {
+		return CARDS[index];
+	}
+
+	public static int getIndex(Suit suit, Rank rank) {
+		return suit.ordinal() * NUM_RANKS + rank.ordinal();
+	}
+
+	public static int getImageNumber(int index) {
+		return IMAGE_NUMBERS[index];
+	}
+
+	public static long toMask(List<Card> cards) {
+		long mask = 0;
+		for (int i = 0; i < cards.size(); i++) {
+			mask |= cards.get(i).getMask();
+		}
+		return mask;
+	}
+
+	public int getIndex() {
+		return getIndex(suit, rank);
+	}
+
+	public long getMask() {
+		return 1L << getIndex();
+	}
+
 	@Override
 	public int compareTo(Card otherCard) {
 		return getRank().ordinal() - otherCard.getRank().ordinal();
 	}
 
 	public int getImageNumber() {
-		return Integer.parseInt(String.format("%d%02d", suit.ordinal() + 1, rank.ordinal() + 2));
+		return IMAGE_NUMBERS[getIndex()];
 	}
 
 	@Override
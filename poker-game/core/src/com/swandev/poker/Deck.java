@@ -1,37 +1,56 @@
 package com.swandev.poker;
 
-import java.util.Collections;
 import java.util.List;
+import java.util.Random;
 
+import com.google.common.base.Preconditions;
 import com.google.common.collect.Lists;
-import com.swandev.poker.Card.Rank;
-import com.swandev.poker.Card.Suit;
 
+/** A deck of card indices. Dealing hands out the interned {@link Card} instances, so nothing is allocated per card */
 public class Deck {
 
-	List<Card> deck = Lists.newArrayList();
+	private final int[] deck = new int[Card.NUM_CARDS];
+	private final Random random;
+	private int top;
 
 	public Deck() {
+		this(new Random());
+	}
+
+	public Deck(Random random) {
+		this.random = random;
 		reset();
 	}
 
 	public void reset() {
-		deck.clear();
-		for (Suit suit : Suit.values()) {
-			for (Rank rank : Rank.values()) {
-				deck.add(new Card(suit, rank));
-			}
+		for (int i = 0; i < deck.length; i++) {
+			deck[i] = i;
 		}
+		top = 0;
 	}
 
+	/** Shuffles the cards that haven't been dealt yet */
 	public void shuffle() {
-		Collections.shuffle(deck);
+		for (int i = deck.length - 1; i > top; i--) {
+			final int j = top + random.nextInt(i - top + 1);
+			final int swap = deck[i];
+			deck[i] = deck[j];
+			deck[j] = swap;
+		}
 	}
 
 	public Card dealTop() {
-		final Card card = deck.get(0);
-		deck.remove(0);
-		return card;
+		Preconditions.checkState(top < deck.length, "The deck is empty");
+		return Card.fromIndex(deck[top++]);
+	}
+
+	/** The cards that haven't been dealt yet, as a bitmask of card indices */
+	public long getRemainingMask() {
+		long mask = 0;
+		for (int i = top; i < deck.length; i++) {
+			mask |= 1L << deck[i];
+		}
+		return mask;
 	}
 
 	public void deal(PlayerStats player) {
@@ -0,0 +1,298 @@
+package com.swandev.poker;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import lombok.Data;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Computes every live player's chance of winning or tying the hand from their hole cards and the board cards seen so far.
+ *
+ * When few board cards are missing every run-out is enumerated, split across the worker pool by the first missing card. Otherwise the board is completed at random in rounds of batches, one batch per worker, until the 95% confidence interval on every player's equity is narrow enough.
+ */
+public class EquityCalculator {
+
+	/** Enumerate every run-out when there are at most this many */
+	static final int EXHAUSTIVE_LIMIT = 100000;
+
+	static final int TRIALS_PER_BATCH = 5000;
+	static final int MAX_TRIALS = 500000;
+	/** Stop sampling once every player's equity is known to within this much, 95% of the time */
+	static final double TARGET_HALF_WIDTH = 0.005;
+	private static final double Z_95 = 1.96;
+
+	private static final int BOARD_SIZE = 5;
+
+	private final ExecutorService workers;
+	private final ExecutorService coordinator;
+	private final int parallelism;
+	private final Random seeds = new Random();
+
+	public interface EquityListener {
+		/** Called on a background thread with one result per player, in the order they were given */
+		void onEquity(Equity[] equities);
+	}
+
+	@Data
+	public static class Equity {
+		/** Fraction of boards this player wins outright */
+		private final double win;
+		/** Fraction of boards this player ties for the best hand */
+		private final double tie;
+		/** Share of the pot this player expects, counting a tie between n players as 1/n of a win */
+		private final double equity;
+	}
+
+	public EquityCalculator() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	public EquityCalculator(int parallelism) {
+		this.parallelism = parallelism;
+		workers = Executors.newFixedThreadPool(parallelism, new ThreadFactoryBuilder().setDaemon(true).setNameFormat("equity-worker-%d").build());
+		coordinator = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder().setDaemon(true).setNameFormat("equity-coordinator").build());
+	}
+
+	/** Computes the equities off the calling thread and hands them to the listener */
+	public Future<?> calculateAsync(final long[] holeCards, final long board, final EquityListener listener) {
+		return coordinator.submit(new Runnable() {
+
+			@Override
+			public void run() {
+				listener.onEquity(calculate(holeCards, board));
+			}
+		});
+	}
+
+	/**
+	 * @param holeCards
+	 *            each player's private cards as a card bitmask, see {@link Card#getMask()}
+	 * @param board
+	 *            the board cards dealt so far as a card bitmask
+	 */
+	public Equity[] calculate(long[] holeCards, long board) {
+		Preconditions.checkArgument(holeCards.length >= 1);
+		Preconditions.checkArgument(Long.bitCount(board) <= BOARD_SIZE);
+		long dead = board;
+		for (long hole : holeCards) {
+			Preconditions.checkArgument((dead & hole) == 0, "A card was dealt twice");
+			dead |= hole;
+		}
+		final int[] remaining = new int[Card.NUM_CARDS - Long.bitCount(dead)];
+		for (int card = 0, i = 0; card < Card.NUM_CARDS; card++) {
+			if ((dead & (1L << card)) == 0) {
+				remaining[i++] = card;
+			}
+		}
+		final int missing = BOARD_SIZE - Long.bitCount(board);
+		final Tally tally = combinations(remaining.length, missing) <= EXHAUSTIVE_LIMIT ? enumerate(holeCards, board, remaining, missing) : sample(holeCards, board, remaining, missing);
+		return tally.toEquities();
+	}
+
+	private Tally enumerate(long[] holeCards, long board, int[] remaining, int missing) {
+		if (missing == 0) {
+			final Tally tally = new Tally(holeCards.length);
+			tally.record(holeCards, board);
+			return tally;
+		}
+		final List<Callable<Tally>> tasks = Lists.newArrayList();
+		for (int first = 0; first <= remaining.length - missing; first++) {
+			tasks.add(new EnumerationTask(holeCards, board, remaining, missing, first));
+		}
+		return runAll(tasks, new Tally(holeCards.length));
+	}
+
+	private Tally sample(long[] holeCards, long board, int[] remaining, int missing) {
+		final Tally tally = new Tally(holeCards.length);
+		while (tally.trials < MAX_TRIALS) {
+			final List<Callable<Tally>> tasks = Lists.newArrayList();
+			for (int i = 0; i < parallelism; i++) {
+				tasks.add(new SamplingTask(holeCards, board, remaining, missing, seeds.nextLong()));
+			}
+			runAll(tasks, tally);
+			if (tally.getMaxHalfWidth() <= TARGET_HALF_WIDTH) {
+				break;
+			}
+		}
+		return tally;
+	}
+
+	private Tally runAll(List<Callable<Tally>> tasks, Tally total) {
+		try {
+			for (Future<Tally> result : workers.invokeAll(tasks)) {
+				total.add(result.get());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while computing equity", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Failed to compute equity", e.getCause());
+		}
+		return total;
+	}
+
+	public void dispose() {
+		coordinator.shutdownNow();
+		workers.shutdownNow();
+	}
+
+	static long combinations(int n, int k) {
+		long result = 1;
+		for (int i = 1; i <= k; i++) {
+			result = result * (n - k + i) / i;
+		}
+		return result;
+	}
+
+	/** Runs every completion of the board whose lowest new card is remaining[first] */
+	private static class EnumerationTask implements Callable<Tally> {
+		private final long[] holeCards;
+		private final long board;
+		private final int[] remaining;
+		private final int missing;
+		private final int first;
+		private final Tally tally;
+
+		EnumerationTask(long[] holeCards, long board, int[] remaining, int missing, int first) {
+			this.holeCards = holeCards;
+			this.board = board;
+			this.remaining = remaining;
+			this.missing = missing;
+			this.first = first;
+			this.tally = new Tally(holeCards.length);
+		}
+
+		@Override
+		public Tally call() {
+			enumerate(first + 1, missing - 1, board | (1L << remaining[first]));
+			return tally;
+		}
+
+		private void enumerate(int start, int toDeal, long cards) {
+			if (toDeal == 0) {
+				tally.record(holeCards, cards);
+				return;
+			}
+			for (int i = start; i <= remaining.length - toDeal; i++) {
+				enumerate(i + 1, toDeal - 1, cards | (1L << remaining[i]));
+			}
+		}
+	}
+
+	private static class SamplingTask implements Callable<Tally> {
+		private final long[] holeCards;
+		private final long board;
+		private final int[] deck;
+		private final int missing;
+		private final Random random;
+
+		SamplingTask(long[] holeCards, long board, int[] remaining, int missing, long seed) {
+			this.holeCards = holeCards;
+			this.board = board;
+			this.deck = remaining.clone();
+			this.missing = missing;
+			this.random = new Random(seed);
+		}
+
+		@Override
+		public Tally call() {
+			final Tally tally = new Tally(holeCards.length);
+			for (int trial = 0; trial < TRIALS_PER_BATCH; trial++) {
+				long cards = board;
+				// partial Fisher-Yates: the first `missing` slots end up a uniform random draw
+				for (int i = 0; i < missing; i++) {
+					final int j = i + random.nextInt(deck.length - i);
+					final int card = deck[j];
+					deck[j] = deck[i];
+					deck[i] = card;
+					cards |= 1L << card;
+				}
+				tally.record(holeCards, cards);
+			}
+			return tally;
+		}
+	}
+
+	private static class Tally {
+		private final long[] wins;
+		private final long[] ties;
+		private final double[] shares;
+		private final double[] sharesSquared;
+		private final int[] ranks;
+		private long trials;
+
+		Tally(int players) {
+			ranks = new int[players];
+			wins = new long[players];
+			ties = new long[players];
+			shares = new double[players];
+			sharesSquared = new double[players];
+		}
+
+		void record(long[] holeCards, long board) {
+			int best = -1;
+			int numBest = 0;
+			for (int i = 0; i < holeCards.length; i++) {
+				final int rank = HandEvaluator.evaluate(holeCards[i] | board);
+				ranks[i] = rank;
+				if (rank > best) {
+					best = rank;
+					numBest = 1;
+				} else if (rank == best) {
+					numBest++;
+				}
+			}
+			for (int i = 0; i < holeCards.length; i++) {
+				if (ranks[i] == best) {
+					final double share = 1.0 / numBest;
+					if (numBest == 1) {
+						wins[i]++;
+					} else {
+						ties[i]++;
+					}
+					shares[i] += share;
+					sharesSquared[i] += share * share;
+				}
+			}
+			trials++;
+		}
+
+		void add(Tally other) {
+			for (int i = 0; i < wins.length; i++) {
+				wins[i] += other.wins[i];
+				ties[i] += other.ties[i];
+				shares[i] += other.shares[i];
+				sharesSquared[i] += other.sharesSquared[i];
+			}
+			trials += other.trials;
+		}
+
+		double getMaxHalfWidth() {
+			double maxHalfWidth = 0;
+			for (int i = 0; i < shares.length; i++) {
+				final double mean = shares[i] / trials;
+				final double variance = Math.max(0, sharesSquared[i] / trials - mean * mean);
+				maxHalfWidth = Math.max(maxHalfWidth, Z_95 * Math.sqrt(variance / trials));
+			}
+			return maxHalfWidth;
+		}
+
+		Equity[] toEquities() {
+			final Equity[] equities = new Equity[wins.length];
+			for (int i = 0; i < wins.length; i++) {
+				equities[i] = new Equity((double) wins[i] / trials, (double) ties[i] / trials, shares[i] / trials);
+			}
+			return equities;
+		}
+	}
+
+}
@@ -0,0 +1,155 @@
+package com.swandev.poker;
+
+import java.util.List;
+
+import com.google.common.base.Preconditions;
+import com.swandev.poker.PokerHand.HandType;
+
+/**
+ * Evaluates five to seven cards into a single int rank without allocating. Higher ranks are better hands, equal ranks are exact ties.
+ *
+ * The rank packs the {@link HandType} ordinal above five 4-bit kicker slots, most significant kicker first. Each slot holds a {@link Card.Rank} ordinal, so two ranks of the same hand type compare exactly as poker does. Cards are folded into four 13-bit per-suit rank masks (which is exactly how a card bitmask is laid out) and everything else is a lookup into tables indexed by a rank mask.
+ */
+public class HandEvaluator {
+
+	public static final int KICKER_BITS = 4;
+	public static final int HAND_TYPE_SHIFT = 5 * KICKER_BITS;
+
+	private static final HandType[] HAND_TYPES = HandType.values();
+
+	private static final int NUM_RANKS = Card.NUM_RANKS;
+	private static final int RANK_MASK_SIZE = 1 << NUM_RANKS;
+
+	/** Highest rank ordinal in the mask, or -1 for an empty mask */
+	private static final byte[] TOP_RANK = new byte[RANK_MASK_SIZE];
+
+	/** Highest rank ordinal of a five card straight in the mask, plus one; 0 if there is no straight. The wheel (A-2-3-4-5) counts as five high */
+	private static final byte[] STRAIGHT_HIGH = new byte[RANK_MASK_SIZE];
+
+	/** The five highest rank ordinals in the mask, packed into kicker slots with the highest in the top slot */
+	private static final int[] TOP_FIVE = new int[RANK_MASK_SIZE];
+
+	static {
+		for (int mask = 0; mask < RANK_MASK_SIZE; mask++) {
+			TOP_RANK[mask] = (byte) (31 - Integer.numberOfLeadingZeros(mask));
+
+			int kickers = 0;
+			int remaining = mask;
+			for (int slot = 4; slot >= 0 && remaining != 0; slot--) {
+				final int rank = 31 - Integer.numberOfLeadingZeros(remaining);
+				kickers |= rank << (slot * KICKER_BITS);
+				remaining &= ~(1 << rank);
+			}
+			TOP_FIVE[mask] = kickers;
+
+			for (int high = NUM_RANKS - 1; high >= 4; high--) {
+				final int straight = 0x1F << (high - 4);
+				if ((mask & straight) == straight) {
+					STRAIGHT_HIGH[mask] = (byte) (high + 1);
+					break;
+				}
+			}
+			// A-2-3-4-5: the ace plays low
+			final int wheel = (1 << Card.Rank.ACE.ordinal()) | 0xF;
+			if (STRAIGHT_HIGH[mask] == 0 && (mask & wheel) == wheel) {
+				STRAIGHT_HIGH[mask] = (byte) (Card.Rank.FIVE.ordinal() + 1);
+			}
+		}
+	}
+
+	private HandEvaluator() {
+	}
+
+	public static int evaluate(List<Card> cards) {
+		Preconditions.checkArgument(cards.size() >= 5 && cards.size() <= 7);
+		return evaluate(Card.toMask(cards));
+	}
+
+	/** Evaluates a set of five to seven cards given as a bitmask of card indices, see {@link Card#getMask()} */
+	public static int evaluate(long cards) {
+		return evaluate(suitMask(cards, 0), suitMask(cards, 1), suitMask(cards, 2), suitMask(cards, 3));
+	}
+
+	/** Evaluates the hand given as one 13-bit rank mask per suit. The masks must hold between five and seven cards in total */
+	public static int evaluate(int suit0, int suit1, int suit2, int suit3) {
+		int flush = 0;
+		if (Integer.bitCount(suit0) >= 5) {
+			flush = suit0;
+		} else if (Integer.bitCount(suit1) >= 5) {
+			flush = suit1;
+		} else if (Integer.bitCount(suit2) >= 5) {
+			flush = suit2;
+		} else if (Integer.bitCount(suit3) >= 5) {
+			flush = suit3;
+		}
+		// With at most seven cards a flush rules out four of a kind and full houses, so it is the best hand unless it is also a straight
+		if (flush != 0) {
+			final int straightFlushHigh = STRAIGHT_HIGH[flush];
+			if (straightFlushHigh != 0) {
+				return rank(HandType.STRAIGHTFLUSH, (straightFlushHigh - 1) << (4 * KICKER_BITS));
+			}
+			return rank(HandType.FLUSH, TOP_FIVE[flush]);
+		}
+
+		final int any = suit0 | suit1 | suit2 | suit3;
+		final int atLeastTwo = (suit0 & suit1) | (suit0 & suit2) | (suit0 & suit3) | (suit1 & suit2) | (suit1 & suit3) | (suit2 & suit3);
+		final int atLeastThree = (suit0 & suit1 & suit2) | (suit0 & suit1 & suit3) | (suit0 & suit2 & suit3) | (suit1 & suit2 & suit3);
+		final int quads = suit0 & suit1 & suit2 & suit3;
+		final int trips = atLeastThree & ~quads;
+		final int pairs = atLeastTwo & ~atLeastThree;
+
+		if (quads != 0) {
+			final int quad = TOP_RANK[quads];
+			return rank(HandType.FOUROFAKIND, quad << (4 * KICKER_BITS) | TOP_RANK[any & ~(1 << quad)] << (3 * KICKER_BITS));
+		}
+		if (trips != 0) {
+			final int trip = TOP_RANK[trips];
+			final int pairCandidates = (trips & ~(1 << trip)) | pairs;
+			if (pairCandidates != 0) {
+				return rank(HandType.FULLHOUSE, trip << (4 * KICKER_BITS) | TOP_RANK[pairCandidates] << (3 * KICKER_BITS));
+			}
+		}
+		final int straightHigh = STRAIGHT_HIGH[any];
+		if (straightHigh != 0) {
+			return rank(HandType.STRAIGHT, (straightHigh - 1) << (4 * KICKER_BITS));
+		}
+		if (trips != 0) {
+			final int trip = TOP_RANK[trips];
+			return rank(HandType.THREEOFAKIND, trip << (4 * KICKER_BITS) | TOP_FIVE[any & ~(1 << trip)] >>> KICKER_BITS & topSlots(2));
+		}
+		if (Integer.bitCount(pairs) >= 2) {
+			final int highPair = TOP_RANK[pairs];
+			final int lowPair = TOP_RANK[pairs & ~(1 << highPair)];
+			final int kicker = TOP_RANK[any & ~(1 << highPair) & ~(1 << lowPair)];
+			return rank(HandType.TWOPAIR, highPair << (4 * KICKER_BITS) | lowPair << (3 * KICKER_BITS) | kicker << (2 * KICKER_BITS));
+		}
+		if (pairs != 0) {
+			final int pair = TOP_RANK[pairs];
+			return rank(HandType.ONEPAIR, pair << (4 * KICKER_BITS) | TOP_FIVE[any & ~(1 << pair)] >>> KICKER_BITS & topSlots(3));
+		}
+		return rank(HandType.HIGHCARD, TOP_FIVE[any]);
+	}
+
+	public static HandType getHandType(int rank) {
+		return HAND_TYPES[rank >>> HAND_TYPE_SHIFT];
+	}
+
+	/** Returns the rank ordinal held in the given kicker slot, where slot 0 is the most significant */
+	public static int getKicker(int rank, int slot) {
+		return (rank >>> ((4 - slot) * KICKER_BITS)) & ((1 << KICKER_BITS) - 1);
+	}
+
+	private static int suitMask(long cards, int suit) {
+		return (int) (cards >>> (suit * Card.NUM_RANKS)) & (RANK_MASK_SIZE - 1);
+	}
+
+	private static int rank(HandType handType, int kickers) {
+		return handType.ordinal() << HAND_TYPE_SHIFT | kickers;
+	}
+
+	/** A mask covering the top n kicker slots below the first one */
+	private static int topSlots(int n) {
+		return ((1 << (n * KICKER_BITS)) - 1) << ((4 - n) * KICKER_BITS);
+	}
+
+}
@@ -3,12 +3,10 @@ package com.swandev.poker;
 import io.socket.IOAcknowledge;
 
 import java.util.List;
-import java.util.Map;
 
 import lombok.Getter;
 
 import org.apache.commons.lang3.mutable.MutableInt;
-import org.json.JSONArray;
 
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.Input.Keys;
@@ -29,6 +27,7 @@ import com.badlogic.gdx.scenes.scene2d.utils.Align;
 import com.badlogic.gdx.scenes.scene2d.utils.ChangeListener;
 import com.badlogic.gdx.scenes.scene2d.utils.DragListener;
 import com.badlogic.gdx.scenes.scene2d.utils.TextureRegionDrawable;
+import com.badlogic.gdx.utils.IntMap;
 import com.badlogic.gdx.utils.viewport.StretchViewport;
 import com.swandev.poker.HandScreen.HandRenderer.CardImage;
 import com.swandev.swanlib.screen.SwanGameStartScreen;
@@ -84,6 +83,13 @@ public class HandScreen extends SwanGameStartScreen {
 	private Label betLabel;
 	private Label callLabel;
 
+	// Counts down the player's turn. The server only says how long they have, the countdown itself is local
+	private Label clockLabel;
+	private boolean clockRunning;
+	private float actionSecondsLeft;
+	private float timeBankSecondsLeft;
+	private int shownSeconds;
+
 	private Image handOver;
 
 	// The hand is a member so we can dynamically change the values and the
@@ -105,7 +111,7 @@ public class HandScreen extends SwanGameStartScreen {
 	private Image backgroundImage;
 
 	/** Textures **/
-	private final Map<Integer, TextureRegion> cardTextureMap;
+	private final IntMap<TextureRegion> cardTextureMap;
 
 	private int width;
 	private int height;
@@ -124,11 +130,12 @@ public class HandScreen extends SwanGameStartScreen {
 	protected void registerEvents() {
 		registerEvent(PokerLib.DEAL_HAND, new EventCallback() {
 
+			@SuppressWarnings("unchecked")
 			@Override
 			public void onEvent(IOAcknowledge ack, Object... args) {
 				state.clearHand();
 				handOver.setVisible(false);
-				List<Integer> hand = SwanUtil.parseJsonList((JSONArray) args[0]);
+				List<Integer> hand = (List<Integer>) args[0];
 				state.betValue = (Integer) args[1];
 				state.chipValue = (Integer) args[2];
 				state.callValue = (Integer) args[3];
@@ -164,6 +171,18 @@ public class HandScreen extends SwanGameStartScreen {
 				cashLabel.setText(Integer.toString(state.chipValue));
 				callLabel.setText(Integer.toString(state.callValue));
 				disableActionButtons();
+				stopClock();
+			}
+		});
+		registerEvent(PokerLib.TURN_CLOCK, new EventCallback() {
+
+			@Override
+			public void onEvent(IOAcknowledge ack, Object... args) {
+				actionSecondsLeft = (Integer) args[0] / 1000f;
+				timeBankSecondsLeft = (Integer) args[1] / 1000f;
+				shownSeconds = -1;
+				clockRunning = true;
+				clockLabel.setVisible(true);
 			}
 		});
 		registerEvent(PokerLib.HAND_COMPLETE, new EventCallback() {
@@ -186,6 +205,7 @@ public class HandScreen extends SwanGameStartScreen {
 				cashLabel.setText(Integer.toString(state.chipValue));
 				callLabel.setText(Integer.toString(state.callValue));
 				disableActionButtons();
+				stopClock();
 
 				myHand.setCardVisibility(false);
 			}
@@ -343,6 +363,12 @@ public class HandScreen extends SwanGameStartScreen {
 		nameTable.add(userNameLabel).width(USERNAME_WIDTH).height(USERNAME_HEIGHT);
 		nameTable.row();
 
+		clockLabel = new Label("", skin);
+		clockLabel.setAlignment(Align.center);
+		clockLabel.setVisible(false);
+		nameTable.add(clockLabel).width(USERNAME_WIDTH).height(USERNAME_HEIGHT);
+		nameTable.row();
+
 		nameTable.center().top();
 		nameTable.setFillParent(true);
 		nameTable.debug();
@@ -398,10 +424,37 @@ public class HandScreen extends SwanGameStartScreen {
 		// disable the buttons while you wait for the ack; the valid ones will be re-enabled on a YOUR_TURN
 		// method or in response to an INVALID_ACTION call (shouldn't happen if the buttons were enabled properly)
 		disableActionButtons();
+		stopClock();
+	}
+
+	private void stopClock() {
+		clockRunning = false;
+		clockLabel.setVisible(false);
+	}
+
+	private void tickClock(float delta) {
+		if (!clockRunning) {
+			return;
+		}
+		actionSecondsLeft -= delta;
+		if (actionSecondsLeft < 0) {
+			// the action time is used up, so the time bank pays for the rest
+			timeBankSecondsLeft = Math.max(0, timeBankSecondsLeft + actionSecondsLeft);
+			actionSecondsLeft = 0;
+		}
+		final boolean onTimeBank = actionSecondsLeft == 0;
+		final int seconds = (int) Math.ceil(onTimeBank ? timeBankSecondsLeft : actionSecondsLeft);
+		if (seconds != shownSeconds) {
+			// only rebuild the text once a second rather than every frame
+			shownSeconds = seconds;
+			clockLabel.setText((onTimeBank ? "Time bank: " : "Time: ") + seconds);
+			clockLabel.setColor(onTimeBank ? Color.ORANGE : Color.WHITE);
+		}
 	}
 
 	@Override
 	public void doRender(float delta) {
+		tickClock(delta);
 		stage.draw();
 		stage.act(delta);
 	}
@@ -1,7 +1,5 @@
 package com.swandev.poker;
 
-import java.util.Map;
-
 import lombok.Getter;
 
 import com.badlogic.gdx.Gdx;
@@ -13,6 +11,8 @@ import com.badlogic.gdx.scenes.scene2d.ui.Skin;
 import com.badlogic.gdx.scenes.scene2d.ui.Table;
 import com.badlogic.gdx.scenes.scene2d.utils.Align;
 import com.badlogic.gdx.scenes.scene2d.utils.TextureRegionDrawable;
+import com.badlogic.gdx.utils.IntMap;
+import com.swandev.poker.EquityCalculator.Equity;
 
 public class PlayerTable extends Table {
 	private final String playerName;
@@ -25,13 +25,14 @@ public class PlayerTable extends Table {
 
 	private final Label chipValueLabel;
 	private final Label actionLabel;
+	private final Label equityLabel;
 
 	private final Image card1Image;
 	private final Image card2Image;
 
-	private final Map<Integer, TextureRegion> cardToImage;
+	private final IntMap<TextureRegion> cardToImage;
 
-	public PlayerTable(Skin skin, String name, Integer chipValue, Map<Integer, TextureRegion> cardAtlas) {
+	public PlayerTable(Skin skin, String name, Integer chipValue, IntMap<TextureRegion> cardAtlas) {
 		playerName = name;
 		nameLabel = new Label(name, skin);
 		nameLabel.setWrap(true);
@@ -44,6 +45,8 @@ public class PlayerTable extends Table {
 		actionLabel = new Label("", skin);
 		actionLabel.setVisible(false);
 
+		equityLabel = new Label("", skin);
+
 		TextureRegion chevronL = new TextureRegion(new Texture(Gdx.files.internal("images/cur_player_chevron.png")));
 		TextureRegion chevronR = new TextureRegion(new Texture(Gdx.files.internal("images/cur_player_chevron.png")));
 		chevronR.flip(true, false); // flip the image in the X direction
@@ -73,6 +76,9 @@ public class PlayerTable extends Table {
 		add(chipValueLabel).width(PokerGameScreen.PLAYER_MONEY_WIDTH);
 		add(actionLabel).width(PokerGameScreen.PLAYER_ACTION_WIDTH);
 		row();
+		add();
+		add(equityLabel).colspan(2);
+		row();
 		debug();
 	}
 
@@ -108,6 +114,14 @@ public class PlayerTable extends Table {
 		actionLabel.setVisible(false);
 	}
 
+	public void setEquity(Equity equity) {
+		equityLabel.setText(String.format("Win %d%% Tie %d%%", Math.round(equity.getWin() * 100), Math.round(equity.getTie() * 100)));
+	}
+
+	public void clearEquity() {
+		equityLabel.setText("");
+	}
+
 	public void setCurrentTurn(boolean myTurn) {
 		Gdx.app.log("PLAYER_TABLE", playerName + ": " + (myTurn ? "Setting" : "Clearing") + " Current Turn");
 		chevronRight.setVisible(myTurn);
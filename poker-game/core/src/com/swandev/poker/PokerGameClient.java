@@ -33,6 +33,9 @@ public class PokerGameClient extends Game {
 		spriteBatch = new SpriteBatch();
 		assets = new Assets();
 		socketIO = new SocketIOState();
+		PokerLib.registerCodecs(socketIO);
+		// lets the table send hands packed, which keeps turns snappy on busy Wi-Fi
+		socketIO.setBinaryPayloads(true);
 		shapeRenderer = new ShapeRenderer();
 		connectScreen = new PokerClientConnectScreen(this, socketIO, spriteBatch);
 		handScreen = new HandScreen(this);
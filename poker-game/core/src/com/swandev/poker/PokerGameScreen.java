@@ -4,8 +4,8 @@ import io.socket.IOAcknowledge;
 
 import java.util.List;
 import java.util.Map;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.graphics.Color;
@@ -17,17 +17,22 @@ import com.badlogic.gdx.scenes.scene2d.ui.Label;
 import com.badlogic.gdx.scenes.scene2d.ui.Skin;
 import com.badlogic.gdx.scenes.scene2d.ui.Table;
 import com.badlogic.gdx.scenes.scene2d.utils.TextureRegionDrawable;
+import com.badlogic.gdx.utils.IntMap;
 import com.badlogic.gdx.utils.viewport.StretchViewport;
 import com.google.common.base.Function;
 import com.google.common.base.Joiner;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.swandev.poker.EquityCalculator.Equity;
+import com.swandev.poker.EquityCalculator.EquityListener;
 import com.swandev.swanlib.screen.SwanGameStartScreen;
 import com.swandev.swanlib.socket.EventCallback;
 import com.swandev.swanlib.util.SwanUtil;
+import com.swandev.swanlib.util.TimerWheel.Timeout;
 
-public class PokerGameScreen extends SwanGameStartScreen {
+public class PokerGameScreen extends SwanGameStartScreen implements PokerTableListener {
 
 	private static final Color DEALER_COLOUR = Color.ORANGE;
 
@@ -85,21 +90,26 @@ public class PokerGameScreen extends SwanGameStartScreen {
 
 	final PokerGameServer game;
 
-	Map<Integer, TextureRegion> cardToImage = Maps.newHashMap();
+	IntMap<TextureRegion> cardToImage;
 	List<String> playerNames;
 
 	private final Stage stage;
 	private final Image[] tableCards = new Image[5];
 	private final Map<String, PlayerTable> nameToTableMap = Maps.newHashMap();
 	private Label potValueLabel;
+	private Label sidePotsLabel;
 
 	private Image backgroundImage;
 
 	private Label winnersValueLabel;
 
-	enum PokerRound {
-		PREFLOP, FLOP, TURN, RIVER
-	}
+	private final EquityCalculator equityCalculator = new EquityCalculator();
+	// bumped on every street so that a slow calculation for an earlier street doesn't overwrite a newer one
+	private final AtomicInteger equityStreet = new AtomicInteger();
+
+	private Timeout nextHand;
+
+	private TurnClock turnClock;
 
 	@Override
 	protected void registerEvents() {
@@ -118,22 +128,20 @@ public class PokerGameScreen extends SwanGameStartScreen {
 				final Integer amount = (Integer) args[1];
 				final PlayerStats player = playerMap.get(playerName);
 				pokerTable.betPlayer(player, amount);
-				// UI
-				nameToTableMap.get(playerName).setChipValue(player.getMoney());
-				setPotValue(pokerTable.getPot().getValue());
 			}
 		});
 	}
 
 	public void uiForDrawCards(PokerRound round) {
 		int i;
-		for (i = 0; i < round.ordinal() + 2; i++) {
+		for (i = 0; i < round.getNumTableCards(); i++) {
 			tableCards[i].setDrawable(new TextureRegionDrawable(cardToImage.get(pokerTable.getTableCards().get(i).getImageNumber())));
 			tableCards[i].setVisible(true);
 		}
 		for (; i < tableCards.length; i++) {
 			tableCards[i].setVisible(false);
 		}
+		updateEquity(round);
 	}
 
 	public void uiForPreFlop() {
@@ -147,6 +155,45 @@ public class PokerGameScreen extends SwanGameStartScreen {
 			card.setDrawable(new TextureRegionDrawable(cardToImage.get(PokerLib.CARD_BACK)));
 			card.setVisible(false);
 		}
+		updateEquity(PokerRound.PREFLOP);
+	}
+
+	/** Recomputes the equity of every player still in the hand against the table cards shown in the given round */
+	private void updateEquity(PokerRound round) {
+		final int street = equityStreet.incrementAndGet();
+		final List<PlayerStats> livePlayers = Lists.newArrayList();
+		for (PlayerStats player : playerMap.values()) {
+			nameToTableMap.get(player.getName()).clearEquity();
+			if (player.isAlive() && !player.isFolded() && player.getPrivateCards().size() == 2) {
+				livePlayers.add(player);
+			}
+		}
+		if (livePlayers.size() < 2) {
+			return;
+		}
+		final long[] holeCards = new long[livePlayers.size()];
+		for (int i = 0; i < holeCards.length; i++) {
+			holeCards[i] = Card.toMask(livePlayers.get(i).getPrivateCards());
+		}
+		final long board = Card.toMask(pokerTable.getTableCards().subList(0, round.getNumTableCards()));
+		equityCalculator.calculateAsync(holeCards, board, new EquityListener() {
+
+			@Override
+			public void onEquity(final Equity[] equities) {
+				Gdx.app.postRunnable(new Runnable() {
+
+					@Override
+					public void run() {
+						if (street != equityStreet.get()) {
+							return;
+						}
+						for (int i = 0; i < equities.length; i++) {
+							nameToTableMap.get(livePlayers.get(i).getName()).setEquity(equities[i]);
+						}
+					}
+				});
+			}
+		});
 	}
 
 	public PokerGameScreen(PokerGameServer game) {
@@ -176,6 +223,7 @@ public class PokerGameScreen extends SwanGameStartScreen {
 
 	public void clearPlayerCards(String playerName) {
 		nameToTableMap.get(playerName).setCardsVisible(false);
+		nameToTableMap.get(playerName).clearEquity();
 	}
 
 	@Override
@@ -211,13 +259,18 @@ public class PokerGameScreen extends SwanGameStartScreen {
 		buildCards();
 		buildPlayerTables(skin);
 
-		pokerTable = new PokerTable(this, players);
+		pokerTable = new PokerTable(players);
+		pokerTable.addListener(this);
+		final PokerTableBroadcaster broadcaster = new PokerTableBroadcaster(getSocketIO());
+		pokerTable.addListener(broadcaster);
+		// the wheel already hands expired turns to the render thread, which is the table's thread
+		turnClock = new TurnClock(pokerTable, getSocketIO().getScheduler(), MoreExecutors.sameThreadExecutor());
+		turnClock.addListener(broadcaster);
 	}
 
 	@Override
 	protected void onEveryoneReady() {
 		pokerTable.newHand();
-		setPotValue(pokerTable.pot.getValue());
 	}
 
 	private void buildCards() {
@@ -310,6 +363,10 @@ public class PokerGameScreen extends SwanGameStartScreen {
 		potTable.add(potValueLabel);
 		potTable.row();
 
+		sidePotsLabel = new Label("", skin);
+		potTable.add(sidePotsLabel).colspan(2);
+		potTable.row();
+
 		Label winnerTextLabel = new Label("Winners: ", skin);
 		potTable.add(winnerTextLabel);
 		winnersValueLabel = new Label("", skin);
@@ -326,6 +383,19 @@ public class PokerGameScreen extends SwanGameStartScreen {
 		potValueLabel.setText(value.toString());
 	}
 
+	/** Lists the main pot and every side pot, or nothing while there is only the main pot */
+	public void setSidePots(List<SidePot> pots) {
+		if (pots.size() <= 1) {
+			sidePotsLabel.setText("");
+			return;
+		}
+		final StringBuilder text = new StringBuilder("Main: ").append(pots.get(0).getAmount());
+		for (int i = 1; i < pots.size(); i++) {
+			text.append("  Side ").append(i).append(": ").append(pots.get(i).getAmount());
+		}
+		sidePotsLabel.setText(text);
+	}
+
 	public void updateDealer(PlayerStats playerStats) {
 		PlayerTable playerTable = nameToTableMap.get(playerStats.getName());
 		playerTable.getNameLabel().setColor(DEALER_COLOUR);
@@ -353,22 +423,99 @@ public class PokerGameScreen extends SwanGameStartScreen {
 
 		}));
 		winnersValueLabel.setText(winnerText);
+		setSidePots(pokerTable.getPot().getSidePots());
 
-		Timer timer = new Timer("delayBetweenRounds");
-		timer.schedule(new TimerTask() {
+		// runs on the render thread, like everything else that touches the table
+		nextHand = getSocketIO().getScheduler().schedule(new Runnable() {
 
 			@Override
 			public void run() {
+				nextHand = null;
 				winnersValueLabel.setText("");
 				pokerTable.newHand();
-				setPotValue(pokerTable.getPot().getValue());
+			}
+		}, DELAY_BETWEEN_HANDS_IN_MS, TimeUnit.MILLISECONDS);
+	}
 
+	@Override
+	public void onHandStarted(List<PlayerStats> players) {
+		Gdx.app.log(PokerTable.POKER_LOG_TAG, "Starting a new round of poker! Table cards are " + pokerTable.getTableCards());
+		for (PlayerStats player : players) {
+			if (player.isAlive()) {
+				Gdx.app.log(PokerTable.POKER_LOG_TAG, "Dealt " + player.getPrivateCards() + " to player " + player.getName());
 			}
-		}, DELAY_BETWEEN_HANDS_IN_MS);
+		}
+		uiForPreFlop();
+		setPotValue(pokerTable.getPot().getValue());
+		setSidePots(pokerTable.getSidePots());
+	}
+
+	@Override
+	public void onDealerChanged(PlayerStats previousDealer, PlayerStats dealer) {
+		clearDealer(previousDealer);
+		updateDealer(dealer);
+	}
+
+	@Override
+	public void onTurnStarted(PlayerStats player, int callValue) {
+		setPlayerTurn(player.getName(), true); // make the chevrons visible
+		clearPlayerAction(player.getName());
+	}
+
+	@Override
+	public void onTurnEnded(PlayerStats player) {
+		setPlayerTurn(player.getName(), false);
+	}
+
+	@Override
+	public void onPlayerFolded(PlayerStats player) {
+		setPlayerAction(player.getName(), "FOLD");
+		clearPlayerCards(player.getName());
+	}
+
+	@Override
+	public void onPlayerBet(PlayerStats player, String action, int callValue) {
+		setPlayerAction(player.getName(), action);
+		nameToTableMap.get(player.getName()).setChipValue(player.getMoney());
+		setPotValue(pokerTable.getPot().getValue());
+		setSidePots(pokerTable.getSidePots());
+	}
+
+	@Override
+	public void onRoundStarted(PokerRound round) {
+		Gdx.app.log(PokerTable.POKER_LOG_TAG, "Advancing to round " + round);
+		clearPlayerActions();
+		uiForDrawCards(round);
+	}
+
+	@Override
+	public void onHandComplete(List<PlayerStats> players, List<PlayerStats> winners) {
+		uiForDrawCards(PokerRound.RIVER);
+		clearPlayerActions();
+		uiBetweenHands(winners);
+	}
+
+	@Override
+	public void onGameOver(PlayerStats winner) {
+		Gdx.app.log(PokerTable.POKER_LOG_TAG, "Game over detected, " + winner.getName() + " won. Switching to server connect screen");
+		game.setScreen(game.getServerConnectScreen());
+	}
+
+	@Override
+	public void hide() {
+		super.hide();
+		if (turnClock != null) {
+			turnClock.stop();
+		}
+		if (nextHand != null) {
+			nextHand.cancel();
+			nextHand = null;
+		}
 	}
 
 	@Override
 	public void dispose() {
+		equityCalculator.dispose();
 		stage.dispose();
 	}
 
@@ -30,6 +30,11 @@ public class PokerGameServer extends Game {
 		spriteBatch = new SpriteBatch();
 		assets = new Assets();
 		socketIO = new SocketIOState();
+		PokerLib.registerCodecs(socketIO);
+		// hands and cards go out packed to anyone who can read them, which keeps turns snappy on busy Wi-Fi
+		socketIO.setBinaryPayloads(true);
+		// a hand sends every player several messages at once, so send each frame's worth as one packet
+		socketIO.setBatching(true);
 		serverConnectScreen = new PokerGameConnectScreen(this, getSocketIO());
 		pokerServerScreen = new PokerGameScreen(this);
 		setScreen(serverConnectScreen);
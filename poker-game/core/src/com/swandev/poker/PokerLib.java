@@ -1,10 +1,11 @@
 package com.swandev.poker;
 
-import java.util.Map;
-
 import com.badlogic.gdx.graphics.g2d.TextureAtlas;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
-import com.google.common.collect.Maps;
+import com.badlogic.gdx.utils.IntMap;
+import com.swandev.swanlib.codec.Codecs;
+import com.swandev.swanlib.codec.EventCodec;
+import com.swandev.swanlib.socket.SocketIOState;
 
 public class PokerLib {
 	// Defines a bunch of static methods, constants, and messages to be used for
@@ -23,30 +24,28 @@ public class PokerLib {
 	public final static int BET_CHECK = 0;
 	public final static int BET_FOLD = -1;
 
-	public static Map<Integer, TextureRegion> getCardTextures() {
-		// Load the images from the texture pack into a map of card codes ->
-		// TextureRegions
-		Map<Integer, TextureRegion> cardList = Maps.newHashMap();
+	// The atlas numbers cards from the aces down, four regions per face value, in this order of suits
+	private static final int[] ATLAS_SUIT_OFFSET = { 4, 1, 3, 2 };
+
+	public static IntMap<TextureRegion> getCardTextures() {
+		// Load the images from the texture pack into a map of card image
+		// numbers -> TextureRegions
+		IntMap<TextureRegion> cardList = new IntMap<TextureRegion>();
 		TextureAtlas cardAtlas = new TextureAtlas("images/cards/CardImages.pack");
-		for (int i = 5; i <= 52; i++) {
-			int key = ((i % 4) + 1) * 100;
-			key = key + (14 - (i - 1) / 4);
-			if (((i % 4) + 1) == 3) {
-				cardList.put(key, cardAtlas.findRegion(Integer.toString(i + 1)));
-			} else if (((i % 4) + 1) == 4) {
-				cardList.put(key, cardAtlas.findRegion(Integer.toString(i - 1)));
-			} else {
-				cardList.put(key, cardAtlas.findRegion(Integer.toString(i)));
-			}
+		for (int index = 0; index < Card.NUM_CARDS; index++) {
+			final Card card = Card.fromIndex(index);
+			final int region = 4 * (Card.Rank.ACE.ordinal() - card.getRank().ordinal()) + ATLAS_SUIT_OFFSET[card.getSuit().ordinal()];
+			cardList.put(Card.getImageNumber(index), cardAtlas.findRegion(Integer.toString(region)));
 		}
-		cardList.put(214, cardAtlas.findRegion("1"));
-		cardList.put(414, cardAtlas.findRegion("2"));
-		cardList.put(314, cardAtlas.findRegion("3"));
-		cardList.put(114, cardAtlas.findRegion("4"));
 		cardList.put(CARD_BACK, cardAtlas.findRegion("b1fv"));
 		return cardList;
 	}
 
+	/** Sets the layout of the messages that carry more than a few numbers. The server and the clients both call it before connecting */
+	public static void registerCodecs(SocketIOState socketIO) {
+		socketIO.setCodec(DEAL_HAND, EventCodec.of(Codecs.INT_LIST, Codecs.INT, Codecs.INT, Codecs.INT, Codecs.INT));
+	}
+
 	// Define the messages to be passed between client and server
 
 	/*
@@ -133,4 +132,13 @@ public class PokerLib {
 	 * and returns the device to connect screen
 	 */
 
+	public static final String TURN_CLOCK = "turn_clock";
+	/*
+	 * Sender: PokerServer Receiver: HandScreen Purpose: Start the countdown
+	 * for the player's turn, sent right after YOUR_TURN. When it runs out the
+	 * server checks or folds for the player. Additional data: - action time in
+	 * ms (Integer) - time bank in ms (Integer), which starts going down once
+	 * the action time has run out
+	 */
+
 }
@@ -1,132 +1,161 @@
 package com.swandev.poker;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 
 import lombok.Data;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 
 @Data
 public class PokerPot {
 
+	private static final Comparator<PlayerStats> BY_TOTAL_BET = new Comparator<PlayerStats>() {
+
+		@Override
+		public int compare(PlayerStats o1, PlayerStats o2) {
+			return o1.getTotalBet() - o2.getTotalBet();
+		}
+	};
+
 	int value;
-	
-	private int leftover = 0;
-	private int oldLeftover = 0;
+
+	/** Chips that couldn't be split evenly in ANTE units, carried into the next hand's main pot */
+	private int carry = 0;
+
+	/** The pots of the last payout */
+	private List<SidePot> sidePots = Collections.emptyList();
 
 	public void add(int amount) {
 		value += amount;
 	}
 
 	public void reset() {
-		value = leftover + oldLeftover;
-		oldLeftover = leftover;
-		leftover = 0;
+		value = carry;
+		sidePots = Collections.emptyList();
 	}
 
-	public List<PlayerStats> payout(List<PlayerStats> rankList, List<PlayerStats> foldedList) {
-		
-		List<PlayerStats> winners = Lists.newArrayList();
-		List<List<PlayerStats>> tierList = Lists.newArrayList();
-		int i, j, k, l;
-		for (i = 0; i < rankList.size(); i++) {
-			List<PlayerStats> sameTier = Lists.newArrayList();
-			sameTier.add(rankList.get(i));
-			for (i = i + 1; i < rankList.size(); i++) {
-				if (sameTier.get(0).getHand().compareTo(rankList.get(i).getHand()) != 0) {
-					i--;
-					break;
+	/**
+	 * Splits everything bet this hand, plus the carry from the last hand, into a main pot and side pots. Only an all-in caps a pot: each distinct all-in total closes a pot which everyone who bet at least that much, or can still bet more, is eligible for. Everything above the highest all-in is one live pot for the players who aren't all-in, however their bets stand mid-round. Folded players' chips are dead money in the pots their bets reached.
+	 */
+	public List<SidePot> buildSidePots(List<PlayerStats> showdownPlayers, List<PlayerStats> foldedPlayers) {
+		final List<PlayerStats> contenders = Lists.newArrayList(showdownPlayers);
+		Collections.sort(contenders, BY_TOTAL_BET);
+		final int[] contributions = new int[showdownPlayers.size() + foldedPlayers.size()];
+		for (int i = 0; i < showdownPlayers.size(); i++) {
+			contributions[i] = showdownPlayers.get(i).getTotalBet();
+		}
+		for (int i = 0; i < foldedPlayers.size(); i++) {
+			contributions[showdownPlayers.size() + i] = foldedPlayers.get(i).getTotalBet();
+		}
+		Arrays.sort(contributions);
+
+		final List<SidePot> pots = Lists.newArrayList();
+		final List<PlayerStats> live = Lists.newArrayList();
+		int previousLevel = 0;
+		int next = 0;
+		for (PlayerStats contender : contenders) {
+			final int level = contender.getTotalBet();
+			if (!contender.isAllIn()) {
+				live.add(contender);
+				continue;
+			}
+			if (level == previousLevel) {
+				continue;
+			}
+			int amount = 0;
+			// bets that stop inside this pot put in whatever they had above the last level, the rest put in the full difference
+			for (; next < contributions.length && contributions[next] <= level; next++) {
+				amount += contributions[next] - previousLevel;
+			}
+			amount += (contributions.length - next) * (level - previousLevel);
+			if (pots.isEmpty()) {
+				amount += carry;
+			}
+			final List<PlayerStats> eligible = Lists.newArrayList();
+			for (PlayerStats player : contenders) {
+				if (player.getTotalBet() >= level || !player.isAllIn()) {
+					eligible.add(player);
 				}
-				sameTier.add(rankList.get(i));
 			}
-			tierList.add(sameTier);
+			pots.add(new SidePot(level, amount, ImmutableList.copyOf(eligible)));
+			previousLevel = level;
 		}
-
-		// For each list in tierList, sort in ascending order of totalBet
-
-		for (List<PlayerStats> tier : tierList) {
-			Collections.sort(tier, new Comparator<PlayerStats>() {
-
-				@Override
-				public int compare(PlayerStats o1, PlayerStats o2) {
-					return o1.getTotalBet() - o2.getTotalBet();
-				}
-			});
+		// everything above the highest all-in, including folded players who bet more than anyone left in the hand
+		int above = 0;
+		for (; next < contributions.length; next++) {
+			above += contributions[next] - previousLevel;
 		}
+		if (pots.isEmpty()) {
+			above += carry;
+		}
+		if (!live.isEmpty()) {
+			if (above > 0) {
+				pots.add(new SidePot(Math.max(previousLevel, live.get(live.size() - 1).getTotalBet()), above, ImmutableList.copyOf(live)));
+			}
+		} else if (pots.isEmpty()) {
+			if (above > 0) {
+				pots.add(new SidePot(0, above, ImmutableList.copyOf(contenders)));
+			}
+		} else if (above > 0) {
+			final SidePot last = pots.remove(pots.size() - 1);
+			pots.add(new SidePot(last.getLevel(), last.getAmount() + above, last.getEligiblePlayers()));
+		}
+		return pots;
+	}
 
-		// For each person in the same tier, take away their contribution
-		// from remaining players.
-		for (i = 0; i < tierList.size(); i++) {
-			List<PlayerStats> stillIn = Lists.newArrayList(tierList.get(i));
-			for (j = 0; j < tierList.get(i).size(); j++) {
-				if (tierList.get(i).get(j).getTotalBet() == 0) {
-					continue;
-				}
-				int amount = 0;
-				int maxValue = tierList.get(i).get(j).getTotalBet();
-
-				// Collect total pot contribution from each person
-				for (k = i; k < tierList.size(); k++) {
-					for (l = j; l < tierList.get(k).size(); l++) {
-						PlayerStats tmp = tierList.get(k).get(l);
-						if (tmp.getTotalBet() < maxValue) {
-							amount += tmp.getTotalBet();
-							tmp.setTotalBet(0);
-						} else {
-							amount += maxValue;
-							tmp.setTotalBet(tmp.getTotalBet() - maxValue);
-						}
-					}
-				}
-				for (k = 0; k < foldedList.size(); k++) {
-					PlayerStats tmp = foldedList.get(k);
-					if (tmp.getTotalBet() < maxValue) {
-						amount += tmp.getTotalBet();
-						tmp.setTotalBet(0);
-					} else {
-						amount += maxValue;
-						tmp.setTotalBet(tmp.getTotalBet() - maxValue);
-
-					}
-				}
-				if (oldLeftover > 0){
-					if (oldLeftover < maxValue){
-						amount += oldLeftover;
-						oldLeftover = 0;
-					}else{
-						amount += maxValue;
-						oldLeftover -= maxValue;
+	/**
+	 * Pays out every pot to the best hands eligible for it. Ties split the pot in ANTE units and the odd chips are carried into the next hand, so no chips are ever lost.
+	 *
+	 * @param rankList
+	 *            the players in the showdown, best hand first
+	 * @return the players who won a pot someone else could also have won
+	 */
+	public List<PlayerStats> payout(List<PlayerStats> rankList, List<PlayerStats> foldedList) {
+		sidePots = buildSidePots(rankList, foldedList);
+		carry = 0;
+		final List<PlayerStats> winners = Lists.newArrayList();
+		final List<PlayerStats> potWinners = Lists.newArrayList();
+		// Pots are ordered by level, so the pots a tier of equal hands can win are always the next few unclaimed ones
+		int unclaimed = 0;
+		int tierStart = 0;
+		while (tierStart < rankList.size() && unclaimed < sidePots.size()) {
+			int tierEnd = tierStart + 1;
+			while (tierEnd < rankList.size() && rankList.get(tierStart).getHand().compareTo(rankList.get(tierEnd).getHand()) == 0) {
+				tierEnd++;
+			}
+			for (; unclaimed < sidePots.size(); unclaimed++) {
+				final SidePot pot = sidePots.get(unclaimed);
+				potWinners.clear();
+				for (int i = tierStart; i < tierEnd; i++) {
+					if (pot.getEligiblePlayers().contains(rankList.get(i))) {
+						potWinners.add(rankList.get(i));
 					}
 				}
-				
-				int leftover = amount%(stillIn.size() * PokerLib.ANTE);
-				if (leftover > 0){
-					this.leftover += leftover;
-					amount -= leftover;
-				}
-				
-				amount = amount / stillIn.size();
-				
-				for (k = 0; k < stillIn.size(); k++) {
-					stillIn.get(k).setMoney(stillIn.get(k).getMoney() + amount);
-					if (!(tierList.size() == 1) && i == tierList.size()-1 && j == tierList.get(i).size() - 1){
-						// do nothing
-						//Gdx.app.log("poker", "adding nothing list");
-					}
-					else if (!winners.contains(stillIn.get(k))) {
-						
-						//Gdx.app.log("poker", "adding winners list");
-						winners.add(stillIn.get(k));
-					}
+				if (potWinners.isEmpty()) {
+					break;
 				}
-				stillIn.remove(0);
-
+				award(pot, potWinners, winners, unclaimed == 0);
 			}
+			tierStart = tierEnd;
 		}
-
 		return winners;
 	}
 
+	private void award(SidePot pot, List<PlayerStats> potWinners, List<PlayerStats> winners, boolean mainPot) {
+		// a pot with one winner goes to them whole, only splits are rounded down to ANTE units
+		final int share = potWinners.size() == 1 ? pot.getAmount() : pot.getAmount() / (potWinners.size() * PokerLib.ANTE) * PokerLib.ANTE;
+		carry += pot.getAmount() - share * potWinners.size();
+		for (PlayerStats player : potWinners) {
+			player.setMoney(player.getMoney() + share);
+			// a pot only its own bettor could win is just their uncalled chips coming back
+			if ((mainPot || pot.getEligiblePlayers().size() > 1) && !winners.contains(player)) {
+				winners.add(player);
+			}
+		}
+	}
+
 }
@@ -0,0 +1,16 @@
+package com.swandev.poker;
+
+public enum PokerRound {
+	PREFLOP(0), FLOP(3), TURN(4), RIVER(5);
+
+	private final int numTableCards;
+
+	private PokerRound(int numTableCards) {
+		this.numTableCards = numTableCards;
+	}
+
+	/** How many of the table cards are face up during this round */
+	public int getNumTableCards() {
+		return numTableCards;
+	}
+}
@@ -0,0 +1,136 @@
+package com.swandev.poker;
+
+import java.util.List;
+import java.util.Random;
+
+import lombok.Getter;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+
+/**
+ * Plays games of poker between bots on a {@link PokerTable} with no screen or socket, for load and correctness testing. After every hand it checks that no chips were created or lost.
+ *
+ * The table reports each turn synchronously, so acting on it from inside the callback would nest one hand inside the next. Instead the turn is queued and the bot acts from the simulator's loop, keeping the stack flat however many hands are played.
+ */
+public class PokerSimulator extends PokerTableAdapter {
+
+	public interface PokerBot {
+		/** Returns the chips to add to the player's bet, {@link PokerLib#BET_CHECK} or {@link PokerLib#BET_FOLD} */
+		int act(PlayerStats player, int callValue, PokerTable table);
+	}
+
+	/** Folds, calls or raises at random, going all in when it can't cover a raise */
+	public static class RandomBot implements PokerBot {
+		private final Random random;
+
+		public RandomBot(Random random) {
+			this.random = random;
+		}
+
+		@Override
+		public int act(PlayerStats player, int callValue, PokerTable table) {
+			final int toCall = callValue - player.getBet();
+			final int choice = random.nextInt(10);
+			if (toCall > 0 && choice == 0) {
+				return PokerLib.BET_FOLD;
+			}
+			if (choice < 8) {
+				return toCall == 0 ? PokerLib.BET_CHECK : Math.min(toCall, player.getMoney());
+			}
+			return Math.min(toCall + PokerLib.ANTE * (1 + random.nextInt(5)), player.getMoney());
+		}
+	}
+
+	private final int numPlayers;
+	private final PokerBot bot;
+	private final Random random;
+
+	private PokerTable table;
+	private PlayerStats toAct;
+	private int callValue;
+	private boolean gameOver;
+
+	@Getter
+	private long handsPlayed;
+	@Getter
+	private long gamesPlayed;
+	@Getter
+	private long actions;
+
+	public PokerSimulator(int numPlayers, PokerBot bot, Random random) {
+		Preconditions.checkArgument(numPlayers >= 2 && numPlayers <= 8, "You can only play poker with between 2 and 8 players");
+		this.numPlayers = numPlayers;
+		this.bot = bot;
+		this.random = random;
+		newGame();
+	}
+
+	/** Plays the given number of hands, starting a new game whenever one player has won all the chips */
+	public void run(long hands) {
+		final long target = handsPlayed + hands;
+		while (handsPlayed < target) {
+			if (gameOver) {
+				newGame();
+			}
+			table.newHand();
+			while (toAct != null) {
+				final PlayerStats player = toAct;
+				toAct = null;
+				actions++;
+				final int amount = bot.act(player, callValue, table);
+				if (amount == PokerLib.BET_FOLD) {
+					table.foldPlayer(player);
+				} else {
+					table.betPlayer(player, amount);
+				}
+			}
+		}
+	}
+
+	private void newGame() {
+		final List<PlayerStats> players = Lists.newArrayList();
+		for (int i = 0; i < numPlayers; i++) {
+			players.add(new PlayerStats("bot" + i, PokerLib.STARTING_VALUE));
+		}
+		table = new PokerTable(players, new Deck(random));
+		table.addListener(this);
+		gameOver = false;
+		gamesPlayed++;
+	}
+
+	@Override
+	public void onTurnStarted(PlayerStats player, int callValue) {
+		toAct = player;
+		this.callValue = callValue;
+	}
+
+	@Override
+	public void onHandComplete(List<PlayerStats> players, List<PlayerStats> winners) {
+		handsPlayed++;
+		int chips = table.getPot().getCarry();
+		for (PlayerStats player : players) {
+			chips += player.getMoney();
+		}
+		if (chips != numPlayers * PokerLib.STARTING_VALUE) {
+			throw new IllegalStateException("Hand " + handsPlayed + " ended with " + chips + " chips on the table instead of " + numPlayers * PokerLib.STARTING_VALUE);
+		}
+	}
+
+	@Override
+	public void onGameOver(PlayerStats winner) {
+		gameOver = true;
+	}
+
+	public static void main(String[] args) {
+		final int numPlayers = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+		final long hands = args.length > 1 ? Long.parseLong(args[1]) : 1000000;
+		final Random random = new Random();
+		final PokerSimulator simulator = new PokerSimulator(numPlayers, new RandomBot(random), random);
+		final long start = System.nanoTime();
+		simulator.run(hands);
+		final double seconds = (System.nanoTime() - start) / 1e9;
+		System.out.println(String.format("%d hands (%d games, %d actions) between %d players in %.1fs, %.0f hands per minute", simulator.getHandsPlayed(), simulator.getGamesPlayed(), simulator.getActions(), numPlayers, seconds, simulator.getHandsPlayed() * 60 / seconds));
+	}
+
+}
@@ -6,36 +6,50 @@ import java.util.List;
 
 import lombok.Getter;
 
-import com.badlogic.gdx.Gdx;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
-import com.swandev.poker.PokerGameScreen.PokerRound;
 
+/**
+ * The hand and betting state machine for one table. It knows nothing about screens or sockets: everything that happens is reported to the registered {@link PokerTableListener}s, and the table only moves on when {@link #newHand}, {@link #betPlayer} or {@link #foldPlayer} is called.
+ */
 public class PokerTable {
 
 	public static final String POKER_LOG_TAG = "POKER";
 
+	@Getter
 	PokerRound round;
 	@Getter
 	int callValue;
 	@Getter
 	PokerPot pot = new PokerPot();
-	Deck deck = new Deck();
+	final Deck deck;
 	@Getter
 	List<Card> tableCards = Lists.newArrayList();
-	List<PlayerStats> players;
+	@Getter
+	final List<PlayerStats> players;
 	int dealer;
 	int currentPlayer;
 	int numChecksOrFoldsRequiredToAdvanceRounds;
-	final PokerGameScreen pokerGameScreen;
+	private final List<PokerTableListener> listeners = Lists.newArrayList();
+
+	public PokerTable(List<PlayerStats> players) {
+		this(players, new Deck());
+	}
 
-	public PokerTable(PokerGameScreen pokerGameScreen, List<PlayerStats> players) {
-		this.pokerGameScreen = pokerGameScreen;
+	public PokerTable(List<PlayerStats> players, Deck deck) {
 		this.players = players;
+		this.deck = deck;
+	}
+
+	public void addListener(PokerTableListener listener) {
+		listeners.add(listener);
+	}
+
+	public void removeListener(PokerTableListener listener) {
+		listeners.remove(listener);
 	}
 
 	public void newHand() {
-		Gdx.app.log(POKER_LOG_TAG, "Starting a new round of poker!");
 		callValue = 0;
 		deck.reset();
 		round = PokerRound.PREFLOP;
@@ -45,50 +59,47 @@ public class PokerTable {
 		}
 		deck.shuffle();
 		tableCards = deck.dealTable();
-		Gdx.app.log(POKER_LOG_TAG, "Table cards are " + tableCards);
 		for (PlayerStats player : players) {
 			if (player.isAlive()) {
 				deck.deal(player);
-				Gdx.app.log(POKER_LOG_TAG, "Dealt " + player.getPrivateCards() + " to player " + player.getName());
 				player.setHand(getBestHand(player));
 				player.placeBet(PokerLib.ANTE, pot);
 				player.clearBet();
-				pokerGameScreen.getSocketIO().swanEmit(PokerLib.DEAL_HAND, player.getName(), getPictueValuesForCards(player), 0, player.getMoney(), 0, player.getTotalBet());
-			} else {
-				pokerGameScreen.getSocketIO().swanEmit(PokerLib.GAMEOVER, player.getName());
 			}
 		}
 		if (getNumRemainingPlayersInRound() == 1) {
-			pokerGameScreen.getSocketIO().swanBroadcast(PokerLib.GAMEOVER);
-			Gdx.app.log(POKER_LOG_TAG, "Game over detected, switching to server connect screen");
-			pokerGameScreen.game.setScreen(pokerGameScreen.game.getServerConnectScreen());
+			final PlayerStats winner = players.get(nextUnfoldedAlivePlayer(dealer));
+			for (PokerTableListener listener : listeners) {
+				listener.onGameOver(winner);
+			}
 		} else {
 			numChecksOrFoldsRequiredToAdvanceRounds = getNumRemainingPlayersInRound();
 			updateDealer();
 			currentPlayer = nextUnfoldedAlivePlayerThatCanAct(dealer);
-			pokerGameScreen.uiForPreFlop();
+			for (PokerTableListener listener : listeners) {
+				listener.onHandStarted(players);
+			}
 			startTheRound();
 		}
 	}
 
-	private void updateDealer() {
-		pokerGameScreen.clearDealer(players.get(dealer));
-		dealer = nextUnfoldedAlivePlayer(dealer);
-		pokerGameScreen.updateDealer(players.get(dealer));
+	/** The player whose turn it is */
+	public PlayerStats getCurrentPlayer() {
+		return players.get(currentPlayer);
 	}
 
-	private List<Integer> getPictueValuesForCards(PlayerStats player) {
-		final List<Integer> cardPictureValues = Lists.newArrayList();
-		for (Card card : player.getPrivateCards()) {
-			cardPictureValues.add(card.getImageNumber());
+	private void updateDealer() {
+		final PlayerStats previousDealer = players.get(dealer);
+		dealer = nextUnfoldedAlivePlayer(dealer);
+		for (PokerTableListener listener : listeners) {
+			listener.onDealerChanged(previousDealer, players.get(dealer));
 		}
-		return cardPictureValues;
 	}
 
 	private void notifyYourTurn(PlayerStats playerStats) {
-		pokerGameScreen.setPlayerTurn(playerStats.getName(), true); // make the chevrons visible
-		pokerGameScreen.clearPlayerAction(playerStats.getName());
-		pokerGameScreen.getSocketIO().swanEmit(PokerLib.YOUR_TURN, playerStats.getName(), playerStats.getBet(), playerStats.getMoney(), callValue, playerStats.getTotalBet());
+		for (PokerTableListener listener : listeners) {
+			listener.onTurnStarted(playerStats, callValue);
+		}
 	}
 
 	private int nextUnfoldedAlivePlayerThatCanAct(int playerNumber) {
@@ -108,9 +119,8 @@ public class PokerTable {
 	}
 
 	private PokerHand getBestHand(PlayerStats player) {
-		List<Card> combinedHand = Lists.newArrayList(player.getPrivateCards());
-		combinedHand.addAll(getTableCards());
-		return PokerHand.getBestHandFromSeven(combinedHand);
+		final long combinedHand = Card.toMask(player.getPrivateCards()) | Card.toMask(getTableCards());
+		return new PokerHand(HandEvaluator.evaluate(combinedHand));
 	}
 
 	private int getNumRemainingPlayersInRound() {
@@ -125,9 +135,9 @@ public class PokerTable {
 
 	public void foldPlayer(PlayerStats player) {
 		player.setFolded(true);
-		pokerGameScreen.setPlayerAction(player.getName(), "FOLD");
-		// don't need to ACK a fold action because the $$ isn't changing and the handscreen already made its cards invisible.
-		pokerGameScreen.clearPlayerCards(player.getName());
+		for (PokerTableListener listener : listeners) {
+			listener.onPlayerFolded(player);
+		}
 		numChecksOrFoldsRequiredToAdvanceRounds--;
 		nextPlayer();
 	}
@@ -145,14 +155,16 @@ public class PokerTable {
 			action = currentPlayer.getBet() == callValue ? "CALL " + currentPlayer.getBet() : currentPlayer.isAllIn() ? "ALL IN " + currentPlayer.getBet() : "RAISE " + (currentPlayer.getBet() - callValue);
 			callValue = Math.max(callValue, currentPlayer.getBet());
 		}
-		pokerGameScreen.setPlayerAction(currentPlayer.getName(), action);
-		pokerGameScreen.getSocketIO().swanEmit(PokerLib.ACTION_ACKNOWLEDGE, currentPlayer.getName(), currentPlayer.getBet(), currentPlayer.getMoney(), callValue, currentPlayer.getTotalBet());
+		for (PokerTableListener listener : listeners) {
+			listener.onPlayerBet(currentPlayer, action, callValue);
+		}
 		nextPlayer();
 	}
 
 	private void nextPlayer() {
-		// clear the current player's turn
-		pokerGameScreen.setPlayerTurn(players.get(currentPlayer).getName(), false);
+		for (PokerTableListener listener : listeners) {
+			listener.onTurnEnded(players.get(currentPlayer));
+		}
 		if (shouldEndHand()) {
 			endHand();
 		} else if (shouldAdvanceRounds()) {
@@ -172,7 +184,6 @@ public class PokerTable {
 		// If everyone has checked (ie call value is 0 and the player who just played was last alive closest to dealer)
 		boolean shouldAdvance = false;
 		if (numChecksOrFoldsRequiredToAdvanceRounds == 0) {
-			Gdx.app.log(POKER_LOG_TAG, "Advancing rounds because everyone has checked or folded");
 			shouldAdvance = true;
 		} else {
 			// If everyone alive still in has bet the same (non-zero) amount or is all in, the round should end
@@ -190,16 +201,16 @@ public class PokerTable {
 	}
 
 	private void nextRound() {
-		pokerGameScreen.clearPlayerActions();
 		round = PokerRound.values()[round.ordinal() + 1];
-		Gdx.app.log(POKER_LOG_TAG, "Advancing to round " + round);
-		pokerGameScreen.uiForDrawCards(round);
 		for (PlayerStats player : players) {
 			player.clearBet();
 		}
 		callValue = 0;
 		numChecksOrFoldsRequiredToAdvanceRounds = getNumRemainingPlayersInRound() - getNumAllIn();
 		currentPlayer = nextUnfoldedAlivePlayerThatCanAct(dealer);
+		for (PokerTableListener listener : listeners) {
+			listener.onRoundStarted(round);
+		}
 		startTheRound();
 	}
 
@@ -222,16 +233,27 @@ public class PokerTable {
 		return numAllIn;
 	}
 
-	public void endHand() {
-		pokerGameScreen.uiForDrawCards(PokerRound.RIVER);
-		final List<PlayerStats> showdownPlayers = Lists.newArrayList();
-		final List<PlayerStats> foldedList = Lists.newArrayList();
+	/** The pots as they stand, so they can be shown while the hand is still being bet */
+	public List<SidePot> getSidePots() {
+		final List<PlayerStats> inHand = Lists.newArrayList();
+		final List<PlayerStats> folded = Lists.newArrayList();
+		splitByFolded(inHand, folded);
+		return pot.buildSidePots(inHand, folded);
+	}
+
+	private void splitByFolded(List<PlayerStats> inHand, List<PlayerStats> folded) {
 		for (PlayerStats player : players) {
 			if (player.isAlive()) {
-				List<PlayerStats> list = player.isFolded() ? foldedList : showdownPlayers;
+				List<PlayerStats> list = player.isFolded() ? folded : inHand;
 				list.add(player);
 			}
 		}
+	}
+
+	public void endHand() {
+		final List<PlayerStats> showdownPlayers = Lists.newArrayList();
+		final List<PlayerStats> foldedList = Lists.newArrayList();
+		splitByFolded(showdownPlayers, foldedList);
 		Collections.sort(showdownPlayers, new Comparator<PlayerStats>() {
 			@Override
 			public int compare(PlayerStats o1, PlayerStats o2) {
@@ -240,17 +262,16 @@ public class PokerTable {
 		});
 		Collections.reverse(showdownPlayers);
 		pot.payout(showdownPlayers, foldedList);
-		Gdx.app.log(POKER_LOG_TAG, "The winning hand was " + showdownPlayers.get(0).getHand());
 
 		List<PlayerStats> winners = Lists.newArrayList();
 		for (PlayerStats player : players) {
 			player.setAlive(player.getMoney() >= PokerLib.ANTE);
-			pokerGameScreen.getSocketIO().swanEmit(PokerLib.HAND_COMPLETE, player.getName(), 0, player.getMoney(), 0, 0, player.getMoney() >= player.getMoneyAtHandStart());
 			if (player.getMoney() >= player.getMoneyAtHandStart()) {
 				winners.add(player);
 			}
 		}
-		pokerGameScreen.clearPlayerActions();
-		pokerGameScreen.uiBetweenHands(winners);
+		for (PokerTableListener listener : listeners) {
+			listener.onHandComplete(players, winners);
+		}
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,44 @@
+package com.swandev.poker;
+
+import java.util.List;
+
+/** A {@link PokerTableListener} that ignores everything, to be extended by listeners that only care about a few events */
+public class PokerTableAdapter implements PokerTableListener {
+
+	@Override
+	public void onHandStarted(List<PlayerStats> players) {
+	}
+
+	@Override
+	public void onDealerChanged(PlayerStats previousDealer, PlayerStats dealer) {
+	}
+
+	@Override
+	public void onTurnStarted(PlayerStats player, int callValue) {
+	}
+
+	@Override
+	public void onTurnEnded(PlayerStats player) {
+	}
+
+	@Override
+	public void onPlayerFolded(PlayerStats player) {
+	}
+
+	@Override
+	public void onPlayerBet(PlayerStats player, String action, int callValue) {
+	}
+
+	@Override
+	public void onRoundStarted(PokerRound round) {
+	}
+
+	@Override
+	public void onHandComplete(List<PlayerStats> players, List<PlayerStats> winners) {
+	}
+
+	@Override
+	public void onGameOver(PlayerStats winner) {
+	}
+
+}
@@ -0,0 +1,80 @@
+package com.swandev.poker;
+
+import java.util.List;
+
+import com.google.common.collect.Lists;
+import com.swandev.poker.TurnClock.TurnClockListener;
+import com.swandev.swanlib.socket.SocketIOState;
+
+/** Tells each player's HandScreen about the table through the swan server. With {@link SocketIOState#setBatching batching} on, everything a hand sends in one frame goes out as a single packet */
+public class PokerTableBroadcaster extends PokerTableAdapter implements TurnClockListener {
+
+	private final SocketIOState socketIO;
+	private int callValue;
+
+	public PokerTableBroadcaster(SocketIOState socketIO) {
+		this.socketIO = socketIO;
+	}
+
+	@Override
+	public void onHandStarted(List<PlayerStats> players) {
+		final List<String> knockedOut = Lists.newArrayList();
+		for (PlayerStats player : players) {
+			if (player.isAlive()) {
+				socketIO.swanEmit(PokerLib.DEAL_HAND, player.getName(), getPictureValuesForCards(player), 0, player.getMoney(), 0, player.getTotalBet());
+			} else {
+				knockedOut.add(player.getName());
+			}
+		}
+		if (!knockedOut.isEmpty()) {
+			socketIO.swanMulticast(PokerLib.GAMEOVER, knockedOut);
+		}
+	}
+
+	@Override
+	public void onTurnStarted(PlayerStats player, int callValue) {
+		this.callValue = callValue;
+		socketIO.swanEmit(PokerLib.YOUR_TURN, player.getName(), player.getBet(), player.getMoney(), callValue, player.getTotalBet());
+	}
+
+	@Override
+	public void onClockStarted(PlayerStats player, long actionTimeInMs, long timeBankInMs) {
+		socketIO.swanEmit(PokerLib.TURN_CLOCK, player.getName(), (int) actionTimeInMs, (int) timeBankInMs);
+	}
+
+	@Override
+	public void onClockExpired(PlayerStats player) {
+	}
+
+	@Override
+	public void onPlayerFolded(PlayerStats player) {
+		// the HandScreen already knows about folds it asked for, but not about ones made for it when its turn clock ran out
+		socketIO.swanEmit(PokerLib.ACTION_ACKNOWLEDGE, player.getName(), player.getBet(), player.getMoney(), callValue, player.getTotalBet());
+	}
+
+	@Override
+	public void onPlayerBet(PlayerStats player, String action, int callValue) {
+		socketIO.swanEmit(PokerLib.ACTION_ACKNOWLEDGE, player.getName(), player.getBet(), player.getMoney(), callValue, player.getTotalBet());
+	}
+
+	@Override
+	public void onHandComplete(List<PlayerStats> players, List<PlayerStats> winners) {
+		for (PlayerStats player : players) {
+			socketIO.swanEmit(PokerLib.HAND_COMPLETE, player.getName(), 0, player.getMoney(), 0, 0, player.getMoney() >= player.getMoneyAtHandStart());
+		}
+	}
+
+	@Override
+	public void onGameOver(PlayerStats winner) {
+		socketIO.swanBroadcast(PokerLib.GAMEOVER);
+	}
+
+	private static List<Integer> getPictureValuesForCards(PlayerStats player) {
+		final List<Integer> cardPictureValues = Lists.newArrayList();
+		for (Card card : player.getPrivateCards()) {
+			cardPictureValues.add(card.getImageNumber());
+		}
+		return cardPictureValues;
+	}
+
+}
@@ -0,0 +1,44 @@
+package com.swandev.poker;
+
+import java.util.List;
+
+/**
+ * Everything a {@link PokerTable} reports while it runs a game. Calls arrive synchronously on whichever thread drove the table, so a listener must not call back into the table from inside one of these methods unless it is prepared for the re-entrancy.
+ */
+public interface PokerTableListener {
+
+	/** The cards have been dealt and the antes taken; nobody has acted yet. Players who are no longer alive are included but were dealt nothing */
+	void onHandStarted(List<PlayerStats> players);
+
+	void onDealerChanged(PlayerStats previousDealer, PlayerStats dealer);
+
+	/** It is this player's turn to check, bet, call, raise or fold */
+	void onTurnStarted(PlayerStats player, int callValue);
+
+	void onTurnEnded(PlayerStats player);
+
+	void onPlayerFolded(PlayerStats player);
+
+	/**
+	 * @param action
+	 *            a description of the bet for display, e.g. CHECK or RAISE 2000
+	 */
+	void onPlayerBet(PlayerStats player, String action, int callValue);
+
+	/** The table cards for the given round are face up and a new round of betting begins */
+	void onRoundStarted(PokerRound round);
+
+	/**
+	 * The pots have been paid out and players who can no longer pay the ante are no longer alive.
+	 *
+	 * @param players
+	 *            everyone at the table, as in {@link #onHandStarted}
+	 * @param winners
+	 *            the players who have at least as many chips as at the start of the hand
+	 */
+	void onHandComplete(List<PlayerStats> players, List<PlayerStats> winners);
+
+	/** Only one player has chips left, no hand was started */
+	void onGameOver(PlayerStats winner);
+
+}
@@ -0,0 +1,318 @@
+package com.swandev.poker;
+
+import io.socket.IOAcknowledge;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Ticker;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.swandev.poker.TurnClock.TurnClockListener;
+import com.swandev.swanlib.socket.EventCallback;
+import com.swandev.swanlib.socket.SocketIOState;
+import com.swandev.swanlib.socket.Subscription;
+import com.swandev.swanlib.util.TimerWheel;
+
+/**
+ * Hosts many {@link PokerTable}s in one process. Tables are sharded across a fixed number of single-threaded workers and everything a table does (starting hands, applying bets and folds, calling its listeners) runs on its shard's thread, so no table is ever touched by two threads and the tables need no locking.
+ *
+ * Bets and folds are routed by table id, or by the table the player is seated at when no id is given. Every table has a {@link TurnClock}; the clocks all share one timer wheel, which only hands expired turns over to the tables' shards. A closed table is forgotten once its last hand is over, so the manager only holds the tables still playing.
+ */
+public class PokerTableManager {
+
+	public static final long DEFAULT_DELAY_BETWEEN_HANDS_IN_MS = 10000;
+
+	private final ScheduledExecutorService[] shards;
+	private final long delayBetweenHandsInMs;
+	private final long actionTimeInMs;
+	private final long timeBankInMs;
+	private final TimerWheel turnClockWheel = new TimerWheel(MoreExecutors.sameThreadExecutor());
+	private final AtomicInteger nextTableId = new AtomicInteger();
+	private final Map<Integer, ManagedTable> tables = new ConcurrentHashMap<Integer, ManagedTable>();
+	private final ConcurrentMap<String, Integer> seats = new ConcurrentHashMap<String, Integer>();
+	/** Bets and folds for a player who isn't seated, or a table that doesn't exist, such as ones still in flight when a table closed */
+	private final AtomicLong unroutedActions = new AtomicLong();
+
+	public PokerTableManager() {
+		this(Runtime.getRuntime().availableProcessors(), DEFAULT_DELAY_BETWEEN_HANDS_IN_MS);
+	}
+
+	public PokerTableManager(int numShards, long delayBetweenHandsInMs) {
+		this(numShards, delayBetweenHandsInMs, TurnClock.DEFAULT_ACTION_TIME_IN_MS, TurnClock.DEFAULT_TIME_BANK_IN_MS);
+	}
+
+	/**
+	 * @param actionTimeInMs
+	 *            how long each player has to act on their turn, see {@link TurnClock}
+	 * @param timeBankInMs
+	 *            extra time each player can draw on over the whole game
+	 */
+	public PokerTableManager(int numShards, long delayBetweenHandsInMs, long actionTimeInMs, long timeBankInMs) {
+		Preconditions.checkArgument(numShards > 0);
+		this.delayBetweenHandsInMs = delayBetweenHandsInMs;
+		this.actionTimeInMs = actionTimeInMs;
+		this.timeBankInMs = timeBankInMs;
+		shards = new ScheduledExecutorService[numShards];
+		for (int i = 0; i < numShards; i++) {
+			shards[i] = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setDaemon(true).setNameFormat("poker-shard-" + i).build());
+		}
+	}
+
+	/**
+	 * Seats the players at a new table. The listeners are called on the table's shard thread, and listeners that are also {@link TurnClockListener}s hear about the table's turn clock. Nothing happens until {@link #startTable}; after that a new hand starts a fixed delay after each hand completes, until the game is over or the table is closed.
+	 *
+	 * @return the new table's id
+	 */
+	public int createTable(List<PlayerStats> players, PokerTableListener... listeners) {
+		Preconditions.checkArgument(players.size() >= 2 && players.size() <= 8, "You can only play poker with between 2 and 8 players");
+		final int tableId = nextTableId.getAndIncrement();
+		// seats are claimed one by one, so two tables created at once can't both seat the same player
+		for (int i = 0; i < players.size(); i++) {
+			final String name = players.get(i).getName();
+			final Integer seatedAt = seats.putIfAbsent(name, tableId);
+			if (seatedAt != null) {
+				for (PlayerStats seated : players.subList(0, i)) {
+					seats.remove(seated.getName(), tableId);
+				}
+				throw new IllegalArgumentException(name + " is already seated at table " + seatedAt);
+			}
+		}
+		final ManagedTable table = new ManagedTable(tableId, new PokerTable(players), shards[tableId % shards.length]);
+		for (PokerTableListener listener : listeners) {
+			table.table.addListener(listener);
+		}
+		final TurnClock turnClock = new TurnClock(table.table, turnClockWheel, table.shard, actionTimeInMs, timeBankInMs, Ticker.systemTicker());
+		for (PokerTableListener listener : listeners) {
+			if (listener instanceof TurnClockListener) {
+				turnClock.addListener((TurnClockListener) listener);
+			}
+		}
+		// added last so that every other listener has seen the hand complete before the next one is scheduled
+		table.table.addListener(table);
+		tables.put(tableId, table);
+		return tableId;
+	}
+
+	public void startTable(int tableId) {
+		final ManagedTable table = getTable(tableId);
+		table.shard.execute(new Runnable() {
+
+			@Override
+			public void run() {
+				table.newHand();
+			}
+		});
+	}
+
+	/** Stops the table from starting any more hands and frees its players' seats. A hand in progress can still be played out, after which the table is gone */
+	public void closeTable(int tableId) {
+		final ManagedTable table = getTable(tableId);
+		for (PlayerStats player : table.players.values()) {
+			seats.remove(player.getName(), tableId);
+		}
+		synchronized (table) {
+			table.closed = true;
+			if (!table.handInProgress) {
+				tables.remove(tableId);
+			}
+		}
+	}
+
+	/** The table the player is seated at, or null */
+	public Integer getTableId(String playerName) {
+		return seats.get(playerName);
+	}
+
+	/** Bets for the player at whichever table they are seated. Late requests are normal once a table closes or a player is knocked out, so ones that can't be routed are only counted, see {@link #getUnroutedActions()} */
+	public void bet(String playerName, int amount) {
+		act(seats.get(playerName), playerName, amount);
+	}
+
+	public void fold(String playerName) {
+		act(seats.get(playerName), playerName, PokerLib.BET_FOLD);
+	}
+
+	public void bet(int tableId, String playerName, int amount) {
+		act(tableId, playerName, amount);
+	}
+
+	public void fold(int tableId, String playerName) {
+		act(tableId, playerName, PokerLib.BET_FOLD);
+	}
+
+	/** Bets and folds that were dropped because the player wasn't seated or the table didn't exist */
+	public long getUnroutedActions() {
+		return unroutedActions.get();
+	}
+
+	private void act(Integer tableId, String playerName, int amount) {
+		final ManagedTable table = tableId == null ? null : tables.get(tableId);
+		if (table == null) {
+			unroutedActions.incrementAndGet();
+			return;
+		}
+		table.act(playerName, amount);
+	}
+
+	public TableStats getStats(int tableId) {
+		return getTable(tableId).getStats();
+	}
+
+	public Map<Integer, TableStats> getAllStats() {
+		final Map<Integer, TableStats> stats = Maps.newTreeMap();
+		for (ManagedTable table : tables.values()) {
+			stats.put(table.tableId, table.getStats());
+		}
+		return stats;
+	}
+
+	/**
+	 * Routes bets and folds from the players' HandScreens to their tables. Both requests carry the player's name first; a BET_REQUEST then has the amount, and either may end with a table id, otherwise the player's seat decides. Cancel the subscriptions returned to stop routing them.
+	 */
+	public List<Subscription> registerEvents(SocketIOState socketIO) {
+		final Subscription bets = socketIO.on(PokerLib.BET_REQUEST, new EventCallback() {
+
+			@Override
+			public void onEvent(IOAcknowledge ack, Object... args) {
+				final String player = (String) args[0];
+				final int amount = (Integer) args[1];
+				act(args.length > 2 ? (Integer) args[2] : seats.get(player), player, amount);
+			}
+		});
+		final Subscription folds = socketIO.on(PokerLib.FOLD_REQUEST, new EventCallback() {
+
+			@Override
+			public void onEvent(IOAcknowledge ack, Object... args) {
+				final String player = (String) args[0];
+				act(args.length > 1 ? (Integer) args[1] : seats.get(player), player, PokerLib.BET_FOLD);
+			}
+		});
+		return ImmutableList.of(bets, folds);
+	}
+
+	public void shutdown() {
+		turnClockWheel.stop();
+		for (ExecutorService shard : shards) {
+			shard.shutdownNow();
+		}
+	}
+
+	private ManagedTable getTable(int tableId) {
+		final ManagedTable table = tables.get(tableId);
+		Preconditions.checkArgument(table != null, "There is no table %s", tableId);
+		return table;
+	}
+
+	private class ManagedTable extends PokerTableAdapter {
+		private final int tableId;
+		private final PokerTable table;
+		private final ScheduledExecutorService shard;
+		private final Map<String, PlayerStats> players = Maps.newHashMap();
+		private final long createdAt = System.nanoTime();
+		// changed under the table's lock, so a hand can't start between closing the table and forgetting it. The shard thread, the only one to change handInProgress, can read it without
+		private boolean closed;
+		private boolean handInProgress;
+
+		private final AtomicLong handsPlayed = new AtomicLong();
+		private final AtomicLong actions = new AtomicLong();
+		private final AtomicLong rejectedActions = new AtomicLong();
+		private final AtomicLong totalLatencyNanos = new AtomicLong();
+		private final AtomicLong maxLatencyNanos = new AtomicLong();
+
+		ManagedTable(int tableId, PokerTable table, ScheduledExecutorService shard) {
+			this.tableId = tableId;
+			this.table = table;
+			this.shard = shard;
+			for (PlayerStats player : table.getPlayers()) {
+				players.put(player.getName(), player);
+			}
+		}
+
+		synchronized void newHand() {
+			if (!closed) {
+				table.newHand();
+			}
+		}
+
+		void act(final String playerName, final int amount) {
+			final long receivedAt = System.nanoTime();
+			final PlayerStats player = players.get(playerName);
+			if (player == null) {
+				rejectedActions.incrementAndGet();
+				return;
+			}
+			shard.execute(new Runnable() {
+
+				@Override
+				public void run() {
+					// a late or duplicated request must not act for whoever's turn it is now
+					if (!handInProgress || table.getCurrentPlayer() != player || player.isFolded()) {
+						rejectedActions.incrementAndGet();
+						return;
+					}
+					if (amount == PokerLib.BET_FOLD) {
+						table.foldPlayer(player);
+					} else {
+						table.betPlayer(player, amount);
+					}
+					final long latency = System.nanoTime() - receivedAt;
+					actions.incrementAndGet();
+					totalLatencyNanos.addAndGet(latency);
+					if (latency > maxLatencyNanos.get()) {
+						// only the shard thread writes, so a plain set can't lose a larger value
+						maxLatencyNanos.set(latency);
+					}
+				}
+			});
+		}
+
+		@Override
+		public synchronized void onHandStarted(List<PlayerStats> players) {
+			handInProgress = true;
+		}
+
+		@Override
+		public void onHandComplete(List<PlayerStats> players, List<PlayerStats> winners) {
+			handsPlayed.incrementAndGet();
+			synchronized (this) {
+				handInProgress = false;
+				if (closed) {
+					tables.remove(tableId);
+					return;
+				}
+			}
+			shard.schedule(new Runnable() {
+
+				@Override
+				public void run() {
+					newHand();
+				}
+			}, delayBetweenHandsInMs, TimeUnit.MILLISECONDS);
+		}
+
+		@Override
+		public void onGameOver(PlayerStats winner) {
+			closeTable(tableId);
+		}
+
+		TableStats getStats() {
+			final long numActions = actions.get();
+			final double seconds = (System.nanoTime() - createdAt) / 1e9;
+			final double meanLatencyMicros = numActions == 0 ? 0 : totalLatencyNanos.get() / 1e3 / numActions;
+			return new TableStats(tableId, handsPlayed.get(), numActions, rejectedActions.get(), numActions / seconds, meanLatencyMicros, maxLatencyNanos.get() / 1e3);
+		}
+	}
+
+}
@@ -0,0 +1,15 @@
+package com.swandev.poker;
+
+import java.util.List;
+
+import lombok.Data;
+
+/** One pot of a hand. The first pot built for a hand is the main pot, every later one only the bigger all-ins can win */
+@Data
+public class SidePot {
+	/** The total bet a player needed to put in to be eligible for this pot */
+	private final int level;
+	private final int amount;
+	/** The players still in the hand who can win this pot, in ascending order of total bet */
+	private final List<PlayerStats> eligiblePlayers;
+}
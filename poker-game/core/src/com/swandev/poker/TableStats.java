@@ -0,0 +1,18 @@
+package com.swandev.poker;
+
+import lombok.Data;
+
+/** A snapshot of how busy one managed table has been, see {@link PokerTableManager#getStats} */
+@Data
+public class TableStats {
+	private final int tableId;
+	private final long handsPlayed;
+	/** Bets and folds the table has applied */
+	private final long actions;
+	/** Bets and folds that arrived from a player whose turn it wasn't, or who isn't at this table */
+	private final long rejectedActions;
+	private final double actionsPerSecond;
+	/** Time from a bet or fold reaching the manager until the table has applied it, which includes waiting behind other tables on the same shard */
+	private final double meanLatencyMicros;
+	private final double maxLatencyMicros;
+}
@@ -1,16 +1,25 @@
 package com.swandev.poker;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.Test;
 
+import com.google.common.base.Ticker;
 import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.swandev.poker.Card.Rank;
 import com.swandev.poker.Card.Suit;
 import com.swandev.poker.PokerHand.HandType;
+import com.swandev.swanlib.util.TimerWheel;
 
 public class TestPoker {
 
@@ -18,22 +27,22 @@ public class TestPoker {
 	public void test_tie_breaking() {
 		List<Card> table = Lists.newArrayList();
 		// table
-		table.add(new Card(Suit.SPADE, Rank.KING));
-		table.add(new Card(Suit.CLUB, Rank.SIX));
-		table.add(new Card(Suit.HEART, Rank.ACE));
-		table.add(new Card(Suit.DIAMOND, Rank.SEVEN));
-		table.add(new Card(Suit.SPADE, Rank.SIX));
+		table.add(Card.of(Suit.SPADE, Rank.KING));
+		table.add(Card.of(Suit.CLUB, Rank.SIX));
+		table.add(Card.of(Suit.HEART, Rank.ACE));
+		table.add(Card.of(Suit.DIAMOND, Rank.SEVEN));
+		table.add(Card.of(Suit.SPADE, Rank.SIX));
 
 		List<Card> batman = Lists.newArrayList(table);
 		// batman
-		batman.add(new Card(Suit.CLUB, Rank.FIVE));
-		batman.add(new Card(Suit.DIAMOND, Rank.NINE));
+		batman.add(Card.of(Suit.CLUB, Rank.FIVE));
+		batman.add(Card.of(Suit.DIAMOND, Rank.NINE));
 		PokerHand batmanHand = PokerHand.getBestHandFromSeven(batman);
 
 		// yoshi
 		List<Card> yoshi = Lists.newArrayList(table);
-		yoshi.add(new Card(Suit.SPADE, Rank.TEN));
-		yoshi.add(new Card(Suit.SPADE, Rank.NINE));
+		yoshi.add(Card.of(Suit.SPADE, Rank.TEN));
+		yoshi.add(Card.of(Suit.SPADE, Rank.NINE));
 		PokerHand yoshiHand = PokerHand.getBestHandFromSeven(yoshi);
 
 		List<PokerHand> hands = Lists.newArrayList(yoshiHand, batmanHand);
@@ -43,13 +52,13 @@ public class TestPoker {
 	@Test
 	public void test_straight_flush() {
 		List<Card> cards = Lists.newArrayList();
-		cards.add(new Card(Suit.DIAMOND, Rank.FOUR));
-		cards.add(new Card(Suit.DIAMOND, Rank.FIVE));
-		cards.add(new Card(Suit.DIAMOND, Rank.SIX));
-		cards.add(new Card(Suit.DIAMOND, Rank.SEVEN));
-		cards.add(new Card(Suit.DIAMOND, Rank.EIGHT));
-		cards.add(new Card(Suit.HEART, Rank.FOUR));
-		cards.add(new Card(Suit.SPADE, Rank.FOUR));
+		cards.add(Card.of(Suit.DIAMOND, Rank.FOUR));
+		cards.add(Card.of(Suit.DIAMOND, Rank.FIVE));
+		cards.add(Card.of(Suit.DIAMOND, Rank.SIX));
+		cards.add(Card.of(Suit.DIAMOND, Rank.SEVEN));
+		cards.add(Card.of(Suit.DIAMOND, Rank.EIGHT));
+		cards.add(Card.of(Suit.HEART, Rank.FOUR));
+		cards.add(Card.of(Suit.SPADE, Rank.FOUR));
 		Collections.shuffle(cards);
 		PokerHand bestHandFromSeven = PokerHand.getBestHandFromSeven(cards);
 		assertEquals(HandType.STRAIGHTFLUSH, bestHandFromSeven.getHandType());
@@ -58,13 +67,13 @@ public class TestPoker {
 	@Test
 	public void test_pair() {
 		List<Card> cards = Lists.newArrayList();
-		cards.add(new Card(Suit.DIAMOND, Rank.JACK));
-		cards.add(new Card(Suit.DIAMOND, Rank.NINE));
-		cards.add(new Card(Suit.SPADE, Rank.SIX));
-		cards.add(new Card(Suit.DIAMOND, Rank.SEVEN));
-		cards.add(new Card(Suit.DIAMOND, Rank.EIGHT));
-		cards.add(new Card(Suit.HEART, Rank.FOUR));
-		cards.add(new Card(Suit.SPADE, Rank.FOUR));
+		cards.add(Card.of(Suit.DIAMOND, Rank.JACK));
+		cards.add(Card.of(Suit.DIAMOND, Rank.NINE));
+		cards.add(Card.of(Suit.SPADE, Rank.SIX));
+		cards.add(Card.of(Suit.DIAMOND, Rank.SEVEN));
+		cards.add(Card.of(Suit.DIAMOND, Rank.EIGHT));
+		cards.add(Card.of(Suit.HEART, Rank.FOUR));
+		cards.add(Card.of(Suit.SPADE, Rank.FOUR));
 		Collections.shuffle(cards);
 		PokerHand bestHandFromSeven = PokerHand.getBestHandFromSeven(cards);
 		assertEquals(HandType.ONEPAIR, bestHandFromSeven.getHandType());
@@ -73,13 +82,13 @@ public class TestPoker {
 	@Test
 	public void test_two_pair() {
 		List<Card> cards = Lists.newArrayList();
-		cards.add(new Card(Suit.DIAMOND, Rank.JACK));
-		cards.add(new Card(Suit.SPADE, Rank.JACK));
-		cards.add(new Card(Suit.SPADE, Rank.SIX));
-		cards.add(new Card(Suit.DIAMOND, Rank.SIX));
-		cards.add(new Card(Suit.DIAMOND, Rank.EIGHT));
-		cards.add(new Card(Suit.HEART, Rank.NINE));
-		cards.add(new Card(Suit.SPADE, Rank.TEN));
+		cards.add(Card.of(Suit.DIAMOND, Rank.JACK));
+		cards.add(Card.of(Suit.SPADE, Rank.JACK));
+		cards.add(Card.of(Suit.SPADE, Rank.SIX));
+		cards.add(Card.of(Suit.DIAMOND, Rank.SIX));
+		cards.add(Card.of(Suit.DIAMOND, Rank.EIGHT));
+		cards.add(Card.of(Suit.HEART, Rank.NINE));
+		cards.add(Card.of(Suit.SPADE, Rank.TEN));
 		Collections.shuffle(cards);
 		PokerHand bestHandFromSeven = PokerHand.getBestHandFromSeven(cards);
 		assertEquals(HandType.TWOPAIR, bestHandFromSeven.getHandType());
@@ -88,13 +97,13 @@ public class TestPoker {
 	@Test
 	public void test_best_two_pair() {
 		List<Card> cards = Lists.newArrayList();
-		cards.add(new Card(Suit.DIAMOND, Rank.JACK));
-		cards.add(new Card(Suit.SPADE, Rank.JACK));
-		cards.add(new Card(Suit.SPADE, Rank.SIX));
-		cards.add(new Card(Suit.DIAMOND, Rank.SIX));
-		cards.add(new Card(Suit.DIAMOND, Rank.EIGHT));
-		cards.add(new Card(Suit.HEART, Rank.EIGHT));
-		cards.add(new Card(Suit.SPADE, Rank.TEN));
+		cards.add(Card.of(Suit.DIAMOND, Rank.JACK));
+		cards.add(Card.of(Suit.SPADE, Rank.JACK));
+		cards.add(Card.of(Suit.SPADE, Rank.SIX));
+		cards.add(Card.of(Suit.DIAMOND, Rank.SIX));
+		cards.add(Card.of(Suit.DIAMOND, Rank.EIGHT));
+		cards.add(Card.of(Suit.HEART, Rank.EIGHT));
+		cards.add(Card.of(Suit.SPADE, Rank.TEN));
 		Collections.shuffle(cards);
 		PokerHand bestHandFromSeven = PokerHand.getBestHandFromSeven(cards);
 		assertEquals(HandType.TWOPAIR, bestHandFromSeven.getHandType());
@@ -105,13 +114,13 @@ public class TestPoker {
 	@Test
 	public void three_of_a_kind() {
 		List<Card> cards = Lists.newArrayList();
-		cards.add(new Card(Suit.DIAMOND, Rank.JACK));
-		cards.add(new Card(Suit.SPADE, Rank.JACK));
-		cards.add(new Card(Suit.HEART, Rank.JACK));
-		cards.add(new Card(Suit.DIAMOND, Rank.SIX));
-		cards.add(new Card(Suit.DIAMOND, Rank.EIGHT));
-		cards.add(new Card(Suit.HEART, Rank.NINE));
-		cards.add(new Card(Suit.SPADE, Rank.TEN));
+		cards.add(Card.of(Suit.DIAMOND, Rank.JACK));
+		cards.add(Card.of(Suit.SPADE, Rank.JACK));
+		cards.add(Card.of(Suit.HEART, Rank.JACK));
+		cards.add(Card.of(Suit.DIAMOND, Rank.SIX));
+		cards.add(Card.of(Suit.DIAMOND, Rank.EIGHT));
+		cards.add(Card.of(Suit.HEART, Rank.NINE));
+		cards.add(Card.of(Suit.SPADE, Rank.TEN));
 		Collections.shuffle(cards);
 		PokerHand bestHandFromSeven = PokerHand.getBestHandFromSeven(cards);
 		assertEquals(HandType.THREEOFAKIND, bestHandFromSeven.getHandType());
@@ -120,13 +129,13 @@ public class TestPoker {
 	@Test
 	public void full_house() {
 		List<Card> cards = Lists.newArrayList();
-		cards.add(new Card(Suit.CLUB, Rank.ACE));
-		cards.add(new Card(Suit.SPADE, Rank.ACE));
-		cards.add(new Card(Suit.HEART, Rank.ACE));
-		cards.add(new Card(Suit.CLUB, Rank.EIGHT));
-		cards.add(new Card(Suit.CLUB, Rank.EIGHT));
-		cards.add(new Card(Suit.HEART, Rank.NINE));
-		cards.add(new Card(Suit.SPADE, Rank.TEN));
+		cards.add(Card.of(Suit.CLUB, Rank.ACE));
+		cards.add(Card.of(Suit.SPADE, Rank.ACE));
+		cards.add(Card.of(Suit.HEART, Rank.ACE));
+		cards.add(Card.of(Suit.CLUB, Rank.EIGHT));
+		cards.add(Card.of(Suit.DIAMOND, Rank.EIGHT));
+		cards.add(Card.of(Suit.HEART, Rank.NINE));
+		cards.add(Card.of(Suit.SPADE, Rank.TEN));
 		Collections.shuffle(cards);
 		PokerHand bestHandFromSeven = PokerHand.getBestHandFromSeven(cards);
 		assertEquals(HandType.FULLHOUSE, bestHandFromSeven.getHandType());
@@ -135,13 +144,13 @@ public class TestPoker {
 	@Test
 	public void test_best_full_house() {
 		List<Card> cards = Lists.newArrayList();
-		cards.add(new Card(Suit.CLUB, Rank.ACE));
-		cards.add(new Card(Suit.SPADE, Rank.ACE));
-		cards.add(new Card(Suit.HEART, Rank.ACE));
-		cards.add(new Card(Suit.CLUB, Rank.EIGHT));
-		cards.add(new Card(Suit.CLUB, Rank.EIGHT));
-		cards.add(new Card(Suit.HEART, Rank.NINE));
-		cards.add(new Card(Suit.SPADE, Rank.NINE));
+		cards.add(Card.of(Suit.CLUB, Rank.ACE));
+		cards.add(Card.of(Suit.SPADE, Rank.ACE));
+		cards.add(Card.of(Suit.HEART, Rank.ACE));
+		cards.add(Card.of(Suit.CLUB, Rank.EIGHT));
+		cards.add(Card.of(Suit.DIAMOND, Rank.EIGHT));
+		cards.add(Card.of(Suit.HEART, Rank.NINE));
+		cards.add(Card.of(Suit.SPADE, Rank.NINE));
 		Collections.shuffle(cards);
 		PokerHand bestHandFromSeven = PokerHand.getBestHandFromSeven(cards);
 		assertEquals(HandType.FULLHOUSE, bestHandFromSeven.getHandType());
@@ -152,16 +161,273 @@ public class TestPoker {
 	@Test
 	public void four_of_a_kind() {
 		List<Card> cards = Lists.newArrayList();
-		cards.add(new Card(Suit.DIAMOND, Rank.JACK));
-		cards.add(new Card(Suit.SPADE, Rank.JACK));
-		cards.add(new Card(Suit.HEART, Rank.JACK));
-		cards.add(new Card(Suit.CLUB, Rank.JACK));
-		cards.add(new Card(Suit.DIAMOND, Rank.EIGHT));
-		cards.add(new Card(Suit.HEART, Rank.NINE));
-		cards.add(new Card(Suit.SPADE, Rank.TEN));
+		cards.add(Card.of(Suit.DIAMOND, Rank.JACK));
+		cards.add(Card.of(Suit.SPADE, Rank.JACK));
+		cards.add(Card.of(Suit.HEART, Rank.JACK));
+		cards.add(Card.of(Suit.CLUB, Rank.JACK));
+		cards.add(Card.of(Suit.DIAMOND, Rank.EIGHT));
+		cards.add(Card.of(Suit.HEART, Rank.NINE));
+		cards.add(Card.of(Suit.SPADE, Rank.TEN));
 		Collections.shuffle(cards);
 		PokerHand bestHandFromSeven = PokerHand.getBestHandFromSeven(cards);
 		assertEquals(HandType.FOUROFAKIND, bestHandFromSeven.getHandType());
 	}
 
+	@Test
+	public void equity_on_the_turn_is_exact() {
+		final long aces = Card.of(Suit.SPADE, Rank.ACE).getMask() | Card.of(Suit.HEART, Rank.ACE).getMask();
+		final long kings = Card.of(Suit.SPADE, Rank.KING).getMask() | Card.of(Suit.HEART, Rank.KING).getMask();
+		final long board = Card.toMask(Lists.newArrayList(Card.of(Suit.CLUB, Rank.TWO), Card.of(Suit.DIAMOND, Rank.SEVEN), Card.of(Suit.SPADE, Rank.NINE), Card.of(Suit.DIAMOND, Rank.KING)));
+		final EquityCalculator calculator = new EquityCalculator(2);
+		final EquityCalculator.Equity[] equities = calculator.calculate(new long[] { aces, kings }, board);
+		calculator.dispose();
+		// only the two remaining aces out of 44 unseen cards save the aces
+		assertEquals(2.0 / 44, equities[0].getWin(), 1e-9);
+		assertEquals(42.0 / 44, equities[1].getWin(), 1e-9);
+		assertEquals(0, equities[0].getTie(), 1e-9);
+	}
+
+	@Test
+	public void equity_split_pot() {
+		final long board = Card.toMask(Lists.newArrayList(Card.of(Suit.HEART, Rank.TEN), Card.of(Suit.HEART, Rank.JACK), Card.of(Suit.DIAMOND, Rank.QUEEN), Card.of(Suit.CLUB, Rank.KING), Card.of(Suit.DIAMOND, Rank.ACE)));
+		final long first = Card.of(Suit.CLUB, Rank.TWO).getMask() | Card.of(Suit.CLUB, Rank.THREE).getMask();
+		final long second = Card.of(Suit.DIAMOND, Rank.FOUR).getMask() | Card.of(Suit.DIAMOND, Rank.FIVE).getMask();
+		final EquityCalculator calculator = new EquityCalculator(1);
+		final EquityCalculator.Equity[] equities = calculator.calculate(new long[] { first, second }, board);
+		calculator.dispose();
+		assertEquals(1.0, equities[0].getTie(), 1e-9);
+		assertEquals(0.5, equities[1].getEquity(), 1e-9);
+	}
+
+	@Test
+	public void equity_pre_flop_is_sampled() {
+		final long aces = Card.of(Suit.SPADE, Rank.ACE).getMask() | Card.of(Suit.HEART, Rank.ACE).getMask();
+		final long kings = Card.of(Suit.CLUB, Rank.KING).getMask() | Card.of(Suit.DIAMOND, Rank.KING).getMask();
+		final EquityCalculator calculator = new EquityCalculator();
+		final EquityCalculator.Equity[] equities = calculator.calculate(new long[] { aces, kings }, 0);
+		calculator.dispose();
+		// aces hold up against kings about 82% of the time
+		assertEquals(0.82, equities[0].getEquity(), 0.02);
+		assertEquals(1.0, equities[0].getEquity() + equities[1].getEquity(), 1e-9);
+	}
+
+	private static PlayerStats bettor(String name, int totalBet, int handRank, PokerPot pot) {
+		return bettor(name, PokerLib.STARTING_VALUE, totalBet, handRank, pot);
+	}
+
+	private static PlayerStats bettor(String name, int money, int totalBet, int handRank, PokerPot pot) {
+		final PlayerStats player = new PlayerStats(name, money);
+		player.placeBet(totalBet, pot);
+		player.setHand(new PokerHand(handRank));
+		return player;
+	}
+
+	@Test
+	public void side_pots() {
+		final PokerPot pot = new PokerPot();
+		final PlayerStats shortStack = bettor("short", 1000, 1000, 300, pot);
+		final PlayerStats middle = bettor("middle", 3000, 3000, 200, pot);
+		final PlayerStats bigStack = bettor("big", 5000, 100, pot);
+		final PlayerStats folder = bettor("folder", 2000, 0, pot);
+
+		final List<SidePot> pots = pot.buildSidePots(Lists.newArrayList(bigStack, shortStack, middle), Lists.newArrayList(folder));
+		assertEquals(3, pots.size());
+		assertEquals(4000, pots.get(0).getAmount());
+		assertEquals(5000, pots.get(1).getAmount());
+		assertEquals(2000, pots.get(2).getAmount());
+		assertEquals(Lists.newArrayList(middle, bigStack), pots.get(1).getEligiblePlayers());
+
+		final List<PlayerStats> winners = pot.payout(Lists.newArrayList(shortStack, middle, bigStack), Lists.newArrayList(folder));
+		assertEquals(4000, shortStack.getMoney());
+		assertEquals(5000, middle.getMoney());
+		assertEquals(PokerLib.STARTING_VALUE - 5000 + 2000, bigStack.getMoney());
+		assertEquals(Lists.newArrayList(shortStack, middle), winners);
+		assertEquals(0, pot.getCarry());
+	}
+
+	@Test
+	public void raises_without_an_all_in_make_one_pot() {
+		final PokerPot pot = new PokerPot();
+		final PlayerStats raiser = bettor("raiser", 4000, 100, pot);
+		final PlayerStats caller = bettor("caller", 2000, 200, pot);
+		final PlayerStats blind = bettor("blind", 1000, 300, pot);
+		final PlayerStats folder = bettor("folder", 1000, 0, pot);
+
+		// mid-round, before the raise has been called
+		final List<SidePot> pots = pot.buildSidePots(Lists.newArrayList(raiser, caller, blind), Lists.newArrayList(folder));
+		assertEquals(1, pots.size());
+		assertEquals(8000, pots.get(0).getAmount());
+		assertEquals(Lists.newArrayList(blind, caller, raiser), pots.get(0).getEligiblePlayers());
+	}
+
+	@Test
+	public void split_pot_carries_odd_chips() {
+		final PokerPot pot = new PokerPot();
+		final PlayerStats first = bettor("first", 1500, 300, pot);
+		final PlayerStats second = bettor("second", 1500, 300, pot);
+		final PlayerStats folder = bettor("folder", 500, 0, pot);
+
+		pot.payout(Lists.newArrayList(first, second), Lists.newArrayList(folder));
+		assertEquals(PokerLib.STARTING_VALUE - 1500 + 1000, first.getMoney());
+		assertEquals(PokerLib.STARTING_VALUE - 1500 + 1000, second.getMoney());
+		assertEquals(1500, pot.getCarry());
+
+		// the odd chips go to the next hand's main pot
+		pot.reset();
+		assertEquals(1500, pot.getValue());
+		first.resetBetweenRounds();
+		second.resetBetweenRounds();
+		first.placeBet(1000, pot);
+		second.placeBet(1000, pot);
+		first.setHand(new PokerHand(400));
+		pot.payout(Lists.newArrayList(first, second), Lists.<PlayerStats> newArrayList());
+		assertEquals(PokerLib.STARTING_VALUE - 1500 + 1000 - 1000 + 3500, first.getMoney());
+		assertEquals(0, pot.getCarry());
+	}
+
+	@Test
+	public void simulated_hands_conserve_chips() {
+		for (int players = 2; players <= 8; players++) {
+			final Random random = new Random(players);
+			final PokerSimulator simulator = new PokerSimulator(players, new PokerSimulator.RandomBot(random), random);
+			// throws if a hand ends with chips created or lost
+			simulator.run(2000);
+			assertEquals(2000, simulator.getHandsPlayed());
+		}
+	}
+
+	@Test
+	public void managed_tables_play_concurrently() throws InterruptedException {
+		final int numTables = 12;
+		final int handsPerTable = 50;
+		final PokerTableManager manager = new PokerTableManager(4, 0);
+		final CountDownLatch done = new CountDownLatch(numTables);
+		// closed tables are forgotten, so their stats are taken on the way out
+		final List<TableStats> finished = Collections.synchronizedList(Lists.<TableStats> newArrayList());
+		final Random random = new Random(7);
+		final PokerSimulator.RandomBot bot = new PokerSimulator.RandomBot(random);
+		for (int i = 0; i < numTables; i++) {
+			final List<PlayerStats> players = Lists.newArrayList();
+			for (int j = 0; j < 4; j++) {
+				players.add(new PlayerStats("table" + i + "player" + j, PokerLib.STARTING_VALUE));
+			}
+			final int[] hands = new int[1];
+			final int tableId = manager.createTable(players, new PokerTableAdapter() {
+
+				@Override
+				public void onTurnStarted(PlayerStats player, int callValue) {
+					final int amount = bot.act(player, callValue, null);
+					if (amount == PokerLib.BET_FOLD) {
+						manager.fold(player.getName());
+					} else {
+						manager.bet(player.getName(), amount);
+					}
+				}
+
+				@Override
+				public void onHandComplete(List<PlayerStats> players, List<PlayerStats> winners) {
+					if (++hands[0] == handsPerTable) {
+						final int tableId = manager.getTableId(players.get(0).getName());
+						finished.add(manager.getStats(tableId));
+						manager.closeTable(tableId);
+						done.countDown();
+					}
+				}
+
+				@Override
+				public void onGameOver(PlayerStats winner) {
+					finished.add(manager.getStats(manager.getTableId(winner.getName())));
+					done.countDown();
+				}
+			});
+			assertEquals(Integer.valueOf(tableId), manager.getTableId("table" + i + "player0"));
+			manager.startTable(tableId);
+		}
+		assertTrue(done.await(30, TimeUnit.SECONDS));
+		assertEquals(numTables, finished.size());
+		for (TableStats stats : finished) {
+			assertTrue(stats.getHandsPlayed() > 0);
+			assertEquals(0, stats.getRejectedActions());
+		}
+		manager.shutdown();
+	}
+
+	@Test
+	public void late_requests_are_counted_not_thrown() {
+		final PokerTableManager manager = new PokerTableManager(1, 0);
+		final List<PlayerStats> players = Lists.newArrayList(new PlayerStats("alice", PokerLib.STARTING_VALUE), new PlayerStats("bob", PokerLib.STARTING_VALUE));
+		final int tableId = manager.createTable(players);
+		manager.bet(tableId, "carol", 10);
+		assertEquals(1, manager.getStats(tableId).getRejectedActions());
+		manager.closeTable(tableId);
+		manager.bet("alice", 10);
+		manager.fold("bob");
+		manager.fold(tableId, "alice");
+		manager.fold(tableId + 1, "alice");
+		assertEquals(4, manager.getUnroutedActions());
+		// no hand was in progress, so the table is forgotten straight away
+		assertTrue(manager.getAllStats().isEmpty());
+		manager.shutdown();
+	}
+
+	@Test
+	public void players_can_only_be_seated_once() {
+		final PokerTableManager manager = new PokerTableManager(1, 0);
+		final PlayerStats alice = new PlayerStats("alice", PokerLib.STARTING_VALUE);
+		final int tableId = manager.createTable(Lists.newArrayList(alice, new PlayerStats("bob", PokerLib.STARTING_VALUE)));
+		try {
+			manager.createTable(Lists.newArrayList(new PlayerStats("carol", PokerLib.STARTING_VALUE), alice));
+			fail("alice was seated twice");
+		} catch (IllegalArgumentException e) {
+			// carol's seat is given back along with the table that couldn't be created
+			assertNull(manager.getTableId("carol"));
+		}
+		manager.closeTable(tableId);
+		manager.createTable(Lists.newArrayList(new PlayerStats("carol", PokerLib.STARTING_VALUE), alice));
+		manager.shutdown();
+	}
+
+	@Test
+	public void turn_clock_plays_for_idle_players() throws InterruptedException {
+		final List<PlayerStats> players = Lists.newArrayList();
+		for (int i = 0; i < 3; i++) {
+			players.add(new PlayerStats("player" + i, PokerLib.STARTING_VALUE));
+		}
+		final PokerTable table = new PokerTable(players, new Deck(new Random(3)));
+		final TimerWheel wheel = new TimerWheel(MoreExecutors.sameThreadExecutor(), 1, TimeUnit.MILLISECONDS, 64);
+		// nobody ever acts, so the table is driven entirely from the wheel's thread
+		final TurnClock clock = new TurnClock(table, wheel, MoreExecutors.sameThreadExecutor(), 20, 30, Ticker.systemTicker());
+		final int[] expired = new int[1];
+		clock.addListener(new TurnClock.TurnClockListener() {
+
+			@Override
+			public void onClockStarted(PlayerStats player, long actionTimeInMs, long timeBankInMs) {
+			}
+
+			@Override
+			public void onClockExpired(PlayerStats player) {
+				expired[0]++;
+			}
+		});
+		final CountDownLatch handComplete = new CountDownLatch(1);
+		table.addListener(new PokerTableAdapter() {
+
+			@Override
+			public void onHandComplete(List<PlayerStats> players, List<PlayerStats> winners) {
+				handComplete.countDown();
+			}
+		});
+		table.newHand();
+		assertTrue(handComplete.await(10, TimeUnit.SECONDS));
+		wheel.stop();
+		// with no bets everyone is checked through all four rounds, and the first expiry for each player empties their time bank
+		assertEquals(4 * players.size(), expired[0]);
+		int chips = 0;
+		for (PlayerStats player : players) {
+			assertEquals(0, clock.getTimeBankInMs(player));
+			chips += player.getMoney();
+		}
+		assertEquals(players.size() * PokerLib.STARTING_VALUE, chips + table.getPot().getCarry());
+	}
+
 }
@@ -0,0 +1,147 @@
+package com.swandev.poker;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Ticker;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.swandev.swanlib.util.TimerWheel;
+import com.swandev.swanlib.util.TimerWheel.Timeout;
+
+/**
+ * Makes sure one idle player can't hold up a table. Each turn a player has a fixed time to act, and after that a time bank that lasts them the whole game. Once both run out the clock checks for them if they can, and folds them otherwise, through the table's own {@link PokerTable#betPlayer} and {@link PokerTable#foldPlayer}.
+ *
+ * The deadlines are timeouts on a {@link TimerWheel}, so a clock costs nothing between turns and any number of tables can share one wheel. Expired turns are acted on through the table's executor, on the thread that drives the table.
+ */
+public class TurnClock extends PokerTableAdapter {
+
+	public static final long DEFAULT_ACTION_TIME_IN_MS = 30000;
+	public static final long DEFAULT_TIME_BANK_IN_MS = 60000;
+
+	public interface TurnClockListener {
+		/** The player's clock is running, with this long to act before their time bank starts going down */
+		void onClockStarted(PlayerStats player, long actionTimeInMs, long timeBankInMs);
+
+		/** The player ran out of time and is about to be checked or folded */
+		void onClockExpired(PlayerStats player);
+	}
+
+	private final PokerTable table;
+	private final TimerWheel wheel;
+	private final Executor tableExecutor;
+	private final long actionTimeInMs;
+	private final Ticker ticker;
+	private final List<TurnClockListener> listeners = Lists.newArrayList();
+	// everything below is only touched on the table's thread
+	private final Map<String, Long> timeBanks = Maps.newHashMap();
+	private final long initialTimeBankInMs;
+	/** Bumped on every turn, so an expiry that was already on its way when the turn ended is ignored */
+	private int turn;
+	private PlayerStats player;
+	private long turnStartedAt;
+	private Timeout timeout;
+
+	public TurnClock(PokerTable table, TimerWheel wheel, Executor tableExecutor) {
+		this(table, wheel, tableExecutor, DEFAULT_ACTION_TIME_IN_MS, DEFAULT_TIME_BANK_IN_MS, Ticker.systemTicker());
+	}
+
+	/**
+	 * @param tableExecutor
+	 *            runs tasks on the thread that drives the table. Expired turns are acted on through it
+	 */
+	public TurnClock(PokerTable table, TimerWheel wheel, Executor tableExecutor, long actionTimeInMs, long timeBankInMs, Ticker ticker) {
+		Preconditions.checkArgument(actionTimeInMs > 0 && timeBankInMs >= 0);
+		this.table = table;
+		this.wheel = wheel;
+		this.tableExecutor = tableExecutor;
+		this.actionTimeInMs = actionTimeInMs;
+		this.initialTimeBankInMs = timeBankInMs;
+		this.ticker = ticker;
+		table.addListener(this);
+	}
+
+	public void addListener(TurnClockListener listener) {
+		listeners.add(listener);
+	}
+
+	/** What is left of the player's time bank, not counting a turn in progress */
+	public long getTimeBankInMs(PlayerStats player) {
+		final Long timeBank = timeBanks.get(player.getName());
+		return timeBank == null ? initialTimeBankInMs : timeBank;
+	}
+
+	/** Stops the clock for the turn in progress, if any. It starts again with the next turn */
+	public void stop() {
+		turn++;
+		player = null;
+		if (timeout != null) {
+			timeout.cancel();
+			timeout = null;
+		}
+	}
+
+	@Override
+	public void onTurnStarted(PlayerStats player, int callValue) {
+		stop();
+		this.player = player;
+		turnStartedAt = ticker.read();
+		final long timeBank = getTimeBankInMs(player);
+		final int expiringTurn = turn;
+		timeout = wheel.schedule(new Runnable() {
+
+			@Override
+			public void run() {
+				tableExecutor.execute(new Runnable() {
+
+					@Override
+					public void run() {
+						expire(expiringTurn);
+					}
+				});
+			}
+		}, actionTimeInMs + timeBank, TimeUnit.MILLISECONDS);
+		for (TurnClockListener listener : listeners) {
+			listener.onClockStarted(player, actionTimeInMs, timeBank);
+		}
+	}
+
+	@Override
+	public void onTurnEnded(PlayerStats player) {
+		if (player == this.player) {
+			final long usedInMs = TimeUnit.NANOSECONDS.toMillis(ticker.read() - turnStartedAt);
+			timeBanks.put(player.getName(), Math.max(0, getTimeBankInMs(player) - Math.max(0, usedInMs - actionTimeInMs)));
+		}
+		stop();
+	}
+
+	@Override
+	public void onHandComplete(List<PlayerStats> players, List<PlayerStats> winners) {
+		stop();
+	}
+
+	@Override
+	public void onGameOver(PlayerStats winner) {
+		stop();
+	}
+
+	private void expire(int expiringTurn) {
+		if (expiringTurn != turn || player == null || table.getCurrentPlayer() != player) {
+			return;
+		}
+		final PlayerStats idle = player;
+		for (TurnClockListener listener : listeners) {
+			listener.onClockExpired(idle);
+		}
+		// ends the turn, which stops the clock and empties their time bank
+		if (idle.getBet() >= table.getCallValue()) {
+			table.betPlayer(idle, PokerLib.BET_CHECK);
+		} else {
+			table.foldPlayer(idle);
+		}
+	}
+
+}
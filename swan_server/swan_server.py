@@ -115,6 +115,20 @@ class SwanNamespace(BaseNamespace, RoomsMixin, BroadcastMixin):
         print "SENDING TO ", nickname, " EVENT ", event, " WITH ARGS ", args
         self.emit_to_nickname(nickname, event, args)
 
+    def on_swan_multicast(self, nicknames, event, args):
+        for nickname in nicknames:
+            self.emit_to_nickname(nickname, event, args)
+
+    def on_swan_emit_batch(self, batch):
+        # each entry is [addressee, event, args]; the addressee is a nickname, a list of nicknames, or None for everyone
+        for addressee, event, args in batch:
+            if addressee is None:
+                self.broadcast_event(event, *args)
+            elif isinstance(addressee, list):
+                self.on_swan_multicast(addressee, event, args)
+            else:
+                self.emit_to_nickname(addressee, event, args)
+
     def on_swan_get_nicknames(self):
         self.emit_to_socket("swan_get_nicknames", self.socket, self.request['nicknames'])
 
@@ -0,0 +1,125 @@
+package com.swandev.swanlib.codec;
+
+import com.google.common.base.Charsets;
+
+/** Reads what a {@link BinaryWriter} wrote. Values carry no type information, so a codec has to read exactly what it wrote, every list included */
+public class BinaryReader implements CodecReader {
+
+	private final byte[] bytes;
+	private int position;
+	/** How many values are left in each list being read, the innermost last */
+	private int[] remaining = new int[4];
+	private int depth;
+
+	public BinaryReader(byte[] bytes) {
+		this.bytes = bytes;
+	}
+
+	@Override
+	public boolean hasNext() {
+		return depth == 0 ? position < bytes.length : remaining[depth - 1] > 0;
+	}
+
+	/** Counts off one value of the innermost list */
+	private void consume() {
+		if (depth > 0) {
+			if (remaining[depth - 1] == 0) {
+				throw new CodecException("Read past the end of a list");
+			}
+			remaining[depth - 1]--;
+		}
+	}
+
+	private byte nextByte() {
+		if (position >= bytes.length) {
+			throw new CodecException("Ran out of bytes");
+		}
+		return bytes[position++];
+	}
+
+	private long readVarint() {
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			final byte b = nextByte();
+			value |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new CodecException("Malformed varint");
+	}
+
+	@Override
+	public int readInt() {
+		consume();
+		final long zigzag = readVarint();
+		return (int) (zigzag >>> 1) ^ -(int) (zigzag & 1);
+	}
+
+	@Override
+	public long readLong() {
+		consume();
+		final long zigzag = readVarint();
+		return (zigzag >>> 1) ^ -(zigzag & 1);
+	}
+
+	@Override
+	public double readDouble() {
+		consume();
+		long bits = 0;
+		for (int i = 0; i < 8; i++) {
+			bits = (bits << 8) | (nextByte() & 0xFF);
+		}
+		return Double.longBitsToDouble(bits);
+	}
+
+	@Override
+	public boolean readBoolean() {
+		consume();
+		return nextByte() != 0;
+	}
+
+	@Override
+	public String readString() {
+		consume();
+		final long length = readVarint() - 1;
+		if (length < 0) {
+			return null;
+		}
+		if (length > bytes.length - position) {
+			throw new CodecException("A string runs past the end of the bytes");
+		}
+		final String value = new String(bytes, position, (int) length, Charsets.UTF_8);
+		position += (int) length;
+		return value;
+	}
+
+	@Override
+	public int beginList() {
+		consume();
+		final long size = readVarint();
+		// every value takes at least a byte, which stops a corrupt count from allocating a huge list
+		if (size < 0 || size > bytes.length - position) {
+			throw new CodecException("Bad list size " + size);
+		}
+		if (depth == remaining.length) {
+			final int[] larger = new int[remaining.length * 2];
+			System.arraycopy(remaining, 0, larger, 0, remaining.length);
+			remaining = larger;
+		}
+		remaining[depth++] = (int) size;
+		return (int) size;
+	}
+
+	@Override
+	public void endList() {
+		if (depth == 0) {
+			throw new CodecException("Not in a list");
+		}
+		if (remaining[depth - 1] != 0) {
+			throw new CodecException(remaining[depth - 1] + " values were left unread at the end of a list");
+		}
+		depth--;
+	}
+
+}
@@ -0,0 +1,93 @@
+package com.swandev.swanlib.codec;
+
+import com.google.common.base.Charsets;
+
+/**
+ * Writes values in the compact binary layout read by {@link BinaryReader}. Nothing is tagged, since both ends share the codec: integers are zigzag varints, so small numbers of either sign take a byte or two, strings are a varint length followed by UTF-8, and lists are a varint count followed by their values.
+ */
+public class BinaryWriter implements CodecWriter {
+
+	private byte[] buffer = new byte[64];
+	private int size;
+	private int openLists;
+
+	private void ensure(int extra) {
+		if (size + extra > buffer.length) {
+			final byte[] larger = new byte[Math.max(buffer.length * 2, size + extra)];
+			System.arraycopy(buffer, 0, larger, 0, size);
+			buffer = larger;
+		}
+	}
+
+	private void writeVarint(long value) {
+		ensure(10);
+		while ((value & ~0x7FL) != 0) {
+			buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		buffer[size++] = (byte) value;
+	}
+
+	@Override
+	public void writeInt(int value) {
+		writeVarint(((value << 1) ^ (value >> 31)) & 0xFFFFFFFFL);
+	}
+
+	@Override
+	public void writeLong(long value) {
+		writeVarint((value << 1) ^ (value >> 63));
+	}
+
+	@Override
+	public void writeDouble(double value) {
+		final long bits = Double.doubleToLongBits(value);
+		ensure(8);
+		for (int shift = 56; shift >= 0; shift -= 8) {
+			buffer[size++] = (byte) (bits >>> shift);
+		}
+	}
+
+	@Override
+	public void writeBoolean(boolean value) {
+		ensure(1);
+		buffer[size++] = (byte) (value ? 1 : 0);
+	}
+
+	/** The length is written one higher than it is, leaving 0 for null */
+	@Override
+	public void writeString(String value) {
+		if (value == null) {
+			writeVarint(0);
+			return;
+		}
+		final byte[] bytes = value.getBytes(Charsets.UTF_8);
+		writeVarint(bytes.length + 1L);
+		ensure(bytes.length);
+		System.arraycopy(bytes, 0, buffer, size, bytes.length);
+		size += bytes.length;
+	}
+
+	@Override
+	public void beginList(int size) {
+		writeVarint(size);
+		openLists++;
+	}
+
+	@Override
+	public void endList() {
+		if (openLists == 0) {
+			throw new CodecException("Not in a list");
+		}
+		openLists--;
+	}
+
+	public byte[] toByteArray() {
+		if (openLists != 0) {
+			throw new CodecException(openLists + " lists were never ended");
+		}
+		final byte[] bytes = new byte[size];
+		System.arraycopy(buffer, 0, bytes, 0, size);
+		return bytes;
+	}
+
+}
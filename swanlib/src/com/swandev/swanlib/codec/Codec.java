@@ -0,0 +1,14 @@
+package com.swandev.swanlib.codec;
+
+/**
+ * Reads and writes one kind of value, field by field, straight from and to the wire. The same codec works with any {@link CodecReader}/{@link CodecWriter} pair, so a value's layout is written down once.
+ *
+ * Values are positional: a codec reads back exactly what it wrote, in the same order, with no field names.
+ */
+public interface Codec<T> {
+
+	void write(CodecWriter out, T value);
+
+	T read(CodecReader in);
+
+}
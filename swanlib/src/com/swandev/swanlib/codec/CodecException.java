@@ -0,0 +1,16 @@
+package com.swandev.swanlib.codec;
+
+/** Thrown when a value can't be read or written, most often because the sender and receiver disagree about an event's layout */
+public class CodecException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	public CodecException(String message) {
+		super(message);
+	}
+
+	public CodecException(String message, Throwable cause) {
+		super(message, cause);
+	}
+
+}
@@ -0,0 +1,30 @@
+package com.swandev.swanlib.codec;
+
+/** A cursor over a sequence of values. Each read consumes the next value and fails with a {@link CodecException} if it is missing or of the wrong type */
+public interface CodecReader {
+
+	/** Whether there is another value before the end of the current list, or of the top level sequence */
+	boolean hasNext();
+
+	int readInt();
+
+	long readLong();
+
+	double readDouble();
+
+	boolean readBoolean();
+
+	/** May return null */
+	String readString();
+
+	/**
+	 * Steps into a list
+	 *
+	 * @return how many values it holds
+	 */
+	int beginList();
+
+	/** Steps back out of the current list. Codecs read every value they wrote, since not every layout can skip the rest */
+	void endList();
+
+}
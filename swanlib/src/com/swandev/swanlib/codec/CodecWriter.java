@@ -0,0 +1,22 @@
+package com.swandev.swanlib.codec;
+
+/** Appends values to a sequence, the mirror image of {@link CodecReader} */
+public interface CodecWriter {
+
+	void writeInt(int value);
+
+	void writeLong(long value);
+
+	void writeDouble(double value);
+
+	void writeBoolean(boolean value);
+
+	/** Null is allowed */
+	void writeString(String value);
+
+	/** Starts a list of exactly this many values, ended by {@link #endList()} */
+	void beginList(int size);
+
+	void endList();
+
+}
@@ -0,0 +1,97 @@
+package com.swandev.swanlib.codec;
+
+import java.util.Collection;
+import java.util.List;
+
+import com.google.common.collect.Lists;
+
+/** Codecs for the basic types, and for lists of anything */
+public class Codecs {
+
+	public static final Codec<Integer> INT = new Codec<Integer>() {
+
+		@Override
+		public void write(CodecWriter out, Integer value) {
+			out.writeInt(value);
+		}
+
+		@Override
+		public Integer read(CodecReader in) {
+			return in.readInt();
+		}
+	};
+
+	public static final Codec<Long> LONG = new Codec<Long>() {
+
+		@Override
+		public void write(CodecWriter out, Long value) {
+			out.writeLong(value);
+		}
+
+		@Override
+		public Long read(CodecReader in) {
+			return in.readLong();
+		}
+	};
+
+	public static final Codec<Boolean> BOOLEAN = new Codec<Boolean>() {
+
+		@Override
+		public void write(CodecWriter out, Boolean value) {
+			out.writeBoolean(value);
+		}
+
+		@Override
+		public Boolean read(CodecReader in) {
+			return in.readBoolean();
+		}
+	};
+
+	public static final Codec<String> STRING = new Codec<String>() {
+
+		@Override
+		public void write(CodecWriter out, String value) {
+			out.writeString(value);
+		}
+
+		@Override
+		public String read(CodecReader in) {
+			return in.readString();
+		}
+	};
+
+	public static final Codec<List<Integer>> INT_LIST = listOf(INT);
+	public static final Codec<List<String>> STRING_LIST = listOf(STRING);
+
+	/** Writes any collection of values, and reads them back as a list */
+	public static <T> Codec<List<T>> listOf(final Codec<T> element) {
+		return new Codec<List<T>>() {
+
+			@Override
+			public void write(CodecWriter out, List<T> values) {
+				writeAll(out, element, values);
+			}
+
+			@Override
+			public List<T> read(CodecReader in) {
+				final int size = in.beginList();
+				final List<T> values = Lists.newArrayListWithCapacity(size);
+				for (int i = 0; i < size; i++) {
+					values.add(element.read(in));
+				}
+				in.endList();
+				return values;
+			}
+		};
+	}
+
+	/** Writes the values as a list, for when they are held in some other collection */
+	public static <T> void writeAll(CodecWriter out, Codec<T> element, Collection<? extends T> values) {
+		out.beginList(values.size());
+		for (T value : values) {
+			element.write(out, value);
+		}
+		out.endList();
+	}
+
+}
@@ -0,0 +1,96 @@
+package com.swandev.swanlib.codec;
+
+import com.google.common.base.Preconditions;
+import com.google.common.io.BaseEncoding;
+
+/**
+ * The layout of one event's arguments: a codec for each of the leading arguments, in order. Each codec reads and writes exactly one argument. Any arguments after those are passed through untouched, which suits trailing strings and numbers.
+ *
+ * Register one with {@link com.swandev.swanlib.socket.SocketIOState#setCodec} on both the sending and the receiving end. Incoming events are then decoded on the socket thread, so callbacks get typed values and the render thread does no parsing at all.
+ *
+ * The leading arguments can go out as JSON, or packed by a {@link BinaryWriter} into a single base64 string under the event's name plus {@link #BINARY_SUFFIX}. The binary form is typically a third of the size, and only sent to clients that said they understand it (see {@link com.swandev.swanlib.socket.SocketIOState#setBinaryPayloads}).
+ */
+public class EventCodec {
+
+	/** Marks an event whose leading arguments are packed into one base64 string */
+	public static final String BINARY_SUFFIX = "#bin";
+
+	private final Codec<?>[] codecs;
+
+	private EventCodec(Codec<?>[] codecs) {
+		this.codecs = codecs;
+	}
+
+	public static EventCodec of(Codec<?>... codecs) {
+		Preconditions.checkArgument(codecs.length > 0);
+		return new EventCodec(codecs.clone());
+	}
+
+	/** Turns the arguments as they came off the socket into the values the codecs describe */
+	public Object[] decode(Object[] args) {
+		if (args.length < codecs.length) {
+			throw new CodecException("Expected at least " + codecs.length + " arguments but got " + args.length);
+		}
+		final Object[] decoded = args.clone();
+		final JsonArgsReader in = new JsonArgsReader(args);
+		for (int i = 0; i < codecs.length; i++) {
+			decoded[i] = codecs[i].read(in);
+		}
+		return decoded;
+	}
+
+	/** Turns the values the codecs describe into arguments the client can send */
+	@SuppressWarnings("unchecked")
+	public Object[] encode(Object[] args) {
+		if (args.length < codecs.length) {
+			throw new CodecException("Expected at least " + codecs.length + " arguments but got " + args.length);
+		}
+		final JsonArgsWriter out = new JsonArgsWriter();
+		for (int i = 0; i < codecs.length; i++) {
+			((Codec<Object>) codecs[i]).write(out, args[i]);
+		}
+		final Object[] encoded = args.clone();
+		System.arraycopy(out.toArgs(), 0, encoded, 0, codecs.length);
+		return encoded;
+	}
+
+	/** Like {@link #decode}, for an event sent with {@link #encodeBinary} */
+	public Object[] decodeBinary(Object[] args) {
+		if (args.length < 1 || !(args[0] instanceof String)) {
+			throw new CodecException("Expected a base64 string");
+		}
+		final byte[] bytes;
+		try {
+			bytes = BaseEncoding.base64().decode((String) args[0]);
+		} catch (IllegalArgumentException e) {
+			throw new CodecException("Expected a base64 string", e);
+		}
+		final BinaryReader in = new BinaryReader(bytes);
+		final Object[] decoded = new Object[codecs.length + args.length - 1];
+		for (int i = 0; i < codecs.length; i++) {
+			decoded[i] = codecs[i].read(in);
+		}
+		if (in.hasNext()) {
+			throw new CodecException("Bytes were left over after the last argument");
+		}
+		System.arraycopy(args, 1, decoded, codecs.length, args.length - 1);
+		return decoded;
+	}
+
+	/** Packs the leading arguments into one base64 string, followed by the rest as they are */
+	@SuppressWarnings("unchecked")
+	public Object[] encodeBinary(Object[] args) {
+		if (args.length < codecs.length) {
+			throw new CodecException("Expected at least " + codecs.length + " arguments but got " + args.length);
+		}
+		final BinaryWriter out = new BinaryWriter();
+		for (int i = 0; i < codecs.length; i++) {
+			((Codec<Object>) codecs[i]).write(out, args[i]);
+		}
+		final Object[] encoded = new Object[args.length - codecs.length + 1];
+		encoded[0] = BaseEncoding.base64().encode(out.toByteArray());
+		System.arraycopy(args, codecs.length, encoded, 1, args.length - codecs.length);
+		return encoded;
+	}
+
+}
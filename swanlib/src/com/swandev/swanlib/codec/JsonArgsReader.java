@@ -0,0 +1,140 @@
+package com.swandev.swanlib.codec;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Reads the arguments of a socket.io event in place, as the client handed them over. Lists may be org.json arrays, as they come off the wire, or plain arrays and lists, as they are before being sent, and are walked without being copied.
+ *
+ * Not thread safe, and meant to be used for one event.
+ */
+public class JsonArgsReader implements CodecReader {
+
+	/** The lists being read, outermost first. The top level is the arguments themselves */
+	private final List<Object> lists = new ArrayList<Object>(4);
+	private int[] positions = new int[4];
+	private int[] sizes = new int[4];
+	private int depth;
+
+	public JsonArgsReader(Object[] args) {
+		lists.add(args);
+		sizes[0] = args.length;
+	}
+
+	@Override
+	public boolean hasNext() {
+		return positions[depth] < sizes[depth];
+	}
+
+	private Object next() {
+		if (!hasNext()) {
+			throw new CodecException("Ran out of values at depth " + depth);
+		}
+		return get(lists.get(depth), positions[depth]++);
+	}
+
+	private static Object get(Object list, int index) {
+		if (list instanceof JSONArray) {
+			return ((JSONArray) list).opt(index);
+		} else if (list instanceof Object[]) {
+			return ((Object[]) list)[index];
+		}
+		return ((List<?>) list).get(index);
+	}
+
+	private static int size(Object list) {
+		if (list instanceof JSONArray) {
+			return ((JSONArray) list).length();
+		} else if (list instanceof Object[]) {
+			return ((Object[]) list).length;
+		}
+		return ((List<?>) list).size();
+	}
+
+	private Number nextNumber() {
+		final Object value = next();
+		if (value instanceof Number) {
+			return (Number) value;
+		}
+		throw new CodecException("Expected a number but got " + value);
+	}
+
+	@Override
+	public int readInt() {
+		return nextNumber().intValue();
+	}
+
+	@Override
+	public long readLong() {
+		return nextNumber().longValue();
+	}
+
+	@Override
+	public double readDouble() {
+		return nextNumber().doubleValue();
+	}
+
+	@Override
+	public boolean readBoolean() {
+		final Object value = next();
+		if (value instanceof Boolean) {
+			return (Boolean) value;
+		}
+		throw new CodecException("Expected a boolean but got " + value);
+	}
+
+	@Override
+	public String readString() {
+		final Object value = next();
+		if (isNull(value)) {
+			return null;
+		} else if (value instanceof String) {
+			return (String) value;
+		}
+		throw new CodecException("Expected a string but got " + value);
+	}
+
+	private static boolean isNull(Object value) {
+		return value == null || value == JSONObject.NULL;
+	}
+
+	@Override
+	public int beginList() {
+		final Object value = next();
+		if (!(value instanceof JSONArray || value instanceof Object[] || value instanceof List)) {
+			throw new CodecException("Expected a list but got " + value);
+		}
+		depth++;
+		if (depth == positions.length) {
+			positions = grow(positions);
+			sizes = grow(sizes);
+		}
+		if (lists.size() == depth) {
+			lists.add(value);
+		} else {
+			lists.set(depth, value);
+		}
+		positions[depth] = 0;
+		sizes[depth] = size(value);
+		return sizes[depth];
+	}
+
+	private static int[] grow(int[] array) {
+		final int[] larger = new int[array.length * 2];
+		System.arraycopy(array, 0, larger, 0, array.length);
+		return larger;
+	}
+
+	@Override
+	public void endList() {
+		if (depth == 0) {
+			throw new CodecException("Not in a list");
+		}
+		lists.set(depth, null);
+		depth--;
+	}
+
+}
@@ -0,0 +1,71 @@
+package com.swandev.swanlib.codec;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds the arguments of a socket.io event out of plain lists, strings, numbers and booleans, which the client serializes directly. org.json types aren't used because the client serializes those reflectively, and wrongly.
+ */
+public class JsonArgsWriter implements CodecWriter {
+
+	private final List<Object> args = new ArrayList<Object>();
+	/** The lists being written, the innermost last */
+	private final List<List<Object>> open = new ArrayList<List<Object>>(4);
+
+	private void add(Object value) {
+		if (open.isEmpty()) {
+			args.add(value);
+		} else {
+			open.get(open.size() - 1).add(value);
+		}
+	}
+
+	@Override
+	public void writeInt(int value) {
+		add(value);
+	}
+
+	@Override
+	public void writeLong(long value) {
+		add(value);
+	}
+
+	@Override
+	public void writeDouble(double value) {
+		add(value);
+	}
+
+	@Override
+	public void writeBoolean(boolean value) {
+		add(value);
+	}
+
+	@Override
+	public void writeString(String value) {
+		add(value);
+	}
+
+	@Override
+	public void beginList(int size) {
+		final List<Object> list = new ArrayList<Object>(size);
+		add(list);
+		open.add(list);
+	}
+
+	@Override
+	public void endList() {
+		if (open.isEmpty()) {
+			throw new CodecException("Not in a list");
+		}
+		open.remove(open.size() - 1);
+	}
+
+	/** Everything written so far, ready to be emitted */
+	public Object[] toArgs() {
+		if (!open.isEmpty()) {
+			throw new CodecException(open.size() + " lists were never ended");
+		}
+		return args.toArray();
+	}
+
+}
@@ -0,0 +1,125 @@
+package com.swandev.swanlib.codec;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.io.BaseEncoding;
+
+public class TestCodecs {
+
+	private static final Codec<List<List<Integer>>> NESTED = Codecs.listOf(Codecs.INT_LIST);
+
+	@Test
+	public void ints_round_trip_at_the_edges() {
+		final BinaryWriter out = new BinaryWriter();
+		final int[] values = { Integer.MIN_VALUE, -1, 0, 1, Integer.MAX_VALUE };
+		for (int value : values) {
+			out.writeInt(value);
+		}
+		final BinaryReader in = new BinaryReader(out.toByteArray());
+		for (int value : values) {
+			assertEquals(value, in.readInt());
+		}
+		assertFalse(in.hasNext());
+	}
+
+	@Test
+	public void longs_round_trip_at_the_edges() {
+		final BinaryWriter out = new BinaryWriter();
+		final long[] values = { Long.MIN_VALUE, -1, 0, Long.MAX_VALUE };
+		for (long value : values) {
+			out.writeLong(value);
+		}
+		final BinaryReader in = new BinaryReader(out.toByteArray());
+		for (long value : values) {
+			assertEquals(value, in.readLong());
+		}
+		assertFalse(in.hasNext());
+	}
+
+	@Test
+	public void null_and_empty_strings_stay_apart() {
+		final BinaryWriter out = new BinaryWriter();
+		out.writeString(null);
+		out.writeString("");
+		out.writeString("héllo ♠");
+		final BinaryReader in = new BinaryReader(out.toByteArray());
+		assertNull(in.readString());
+		assertEquals("", in.readString());
+		assertEquals("héllo ♠", in.readString());
+		assertFalse(in.hasNext());
+	}
+
+	@Test
+	public void empty_and_nested_lists_round_trip() {
+		final List<List<Integer>> nested = ImmutableList.<List<Integer>> of(ImmutableList.<Integer> of(), ImmutableList.of(Integer.MIN_VALUE, 7), ImmutableList.<Integer> of());
+		final BinaryWriter out = new BinaryWriter();
+		Codecs.INT_LIST.write(out, Collections.<Integer> emptyList());
+		NESTED.write(out, nested);
+		final BinaryReader in = new BinaryReader(out.toByteArray());
+		assertEquals(Collections.emptyList(), Codecs.INT_LIST.read(in));
+		assertEquals(nested, NESTED.read(in));
+		assertFalse(in.hasNext());
+	}
+
+	@Test
+	public void trailing_arguments_pass_through_binary_events() {
+		final EventCodec codec = EventCodec.of(Codecs.STRING, Codecs.LONG, Codecs.STRING_LIST);
+		final Object[] args = { "nickname", Long.MIN_VALUE, Lists.newArrayList("a", null, ""), "trailing", 42 };
+		final Object[] encoded = codec.encodeBinary(args);
+		assertEquals(3, encoded.length);
+		assertEquals("trailing", encoded[1]);
+		assertEquals(42, encoded[2]);
+		assertArrayEquals(args, codec.decodeBinary(encoded));
+	}
+
+	@Test(expected = CodecException.class)
+	public void truncated_varint_is_a_codec_exception() {
+		final BinaryWriter out = new BinaryWriter();
+		out.writeLong(Long.MIN_VALUE);
+		final byte[] bytes = out.toByteArray();
+		final byte[] truncated = new byte[bytes.length - 1];
+		System.arraycopy(bytes, 0, truncated, 0, truncated.length);
+		new BinaryReader(truncated).readLong();
+	}
+
+	@Test(expected = CodecException.class)
+	public void truncated_string_is_a_codec_exception() {
+		final BinaryWriter out = new BinaryWriter();
+		out.writeString("hello");
+		final byte[] bytes = out.toByteArray();
+		final byte[] truncated = new byte[bytes.length - 2];
+		System.arraycopy(bytes, 0, truncated, 0, truncated.length);
+		new BinaryReader(truncated).readString();
+	}
+
+	@Test(expected = CodecException.class)
+	public void truncated_list_is_a_codec_exception() {
+		final BinaryWriter out = new BinaryWriter();
+		Codecs.INT_LIST.write(out, ImmutableList.of(1, 2, 3));
+		final byte[] bytes = out.toByteArray();
+		final byte[] truncated = new byte[bytes.length - 1];
+		System.arraycopy(bytes, 0, truncated, 0, truncated.length);
+		Codecs.INT_LIST.read(new BinaryReader(truncated));
+	}
+
+	@Test(expected = CodecException.class)
+	public void truncated_event_is_a_codec_exception() {
+		final EventCodec codec = EventCodec.of(Codecs.STRING, Codecs.INT);
+		final String packed = (String) codec.encodeBinary(new Object[] { "nickname", Integer.MAX_VALUE })[0];
+		final byte[] bytes = BaseEncoding.base64().decode(packed);
+		final byte[] truncated = new byte[bytes.length - 1];
+		System.arraycopy(bytes, 0, truncated, 0, truncated.length);
+		codec.decodeBinary(new Object[] { BaseEncoding.base64().encode(truncated) });
+	}
+
+}
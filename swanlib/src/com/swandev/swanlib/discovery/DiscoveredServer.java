@@ -0,0 +1,64 @@
+package com.swandev.swanlib.discovery;
+
+import lombok.Getter;
+import lombok.ToString;
+
+/** A server that answered {@link ServerDiscovery}'s probes, and how quickly */
+@ToString
+public class DiscoveredServer {
+
+	/** New round trip times are blended in with this weight, so one slow answer doesn't reorder the list */
+	static final double RTT_SMOOTHING = 0.25;
+
+	@Getter
+	private final String serverId;
+	@Getter
+	private final String name;
+	private String host;
+	private int port;
+	private double rttInMs;
+	private long lastSeenInMs;
+	/** The latest probe answered, so copies of it arriving over other interfaces are skipped */
+	private long lastNonce;
+
+	DiscoveredServer(String serverId, String name, String host, int port, double rttInMs, long nonce, long now) {
+		this.serverId = serverId;
+		this.name = name;
+		this.host = host;
+		this.port = port;
+		this.rttInMs = rttInMs;
+		this.lastNonce = nonce;
+		this.lastSeenInMs = now;
+	}
+
+	/**
+	 * Answers to one probe come back fastest over the best route, so the first one wins and the rest only keep the server alive.
+	 */
+	synchronized void update(String host, int port, double rttInMs, long nonce, long now) {
+		lastSeenInMs = now;
+		if (nonce == lastNonce) {
+			return;
+		}
+		lastNonce = nonce;
+		this.host = host;
+		this.port = port;
+		this.rttInMs += RTT_SMOOTHING * (rttInMs - this.rttInMs);
+	}
+
+	public synchronized String getHost() {
+		return host;
+	}
+
+	public synchronized int getPort() {
+		return port;
+	}
+
+	public synchronized double getRttInMs() {
+		return rttInMs;
+	}
+
+	public synchronized long getLastSeenInMs() {
+		return lastSeenInMs;
+	}
+
+}
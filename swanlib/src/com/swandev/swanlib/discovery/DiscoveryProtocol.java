@@ -0,0 +1,56 @@
+package com.swandev.swanlib.discovery;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+import com.google.common.base.Charsets;
+
+/**
+ * The datagrams used to find swan servers on the LAN. Clients send a probe to the broadcast address, a multicast group and loopback, and every server that hears it answers the sender directly:
+ *
+ * <pre>
+ * SWAN1 PROBE &lt;nonce&gt;
+ * SWAN1 HERE &lt;nonce&gt; &lt;server id&gt; &lt;socket.io port&gt; &lt;name&gt;
+ * </pre>
+ *
+ * The nonce is the probe's send time, echoed back, which gives the round trip time without either side keeping any state.
+ */
+class DiscoveryProtocol {
+
+	static final String MAGIC = "SWAN1";
+	static final String PROBE = "PROBE";
+	static final String HERE = "HERE";
+	static final int MAX_PACKET_SIZE = 512;
+
+	/** Administratively scoped, so it stays on the LAN */
+	static final InetAddress MULTICAST_GROUP = address("239.255.83.87");
+	static final InetAddress BROADCAST = address("255.255.255.255");
+	static final InetAddress LOOPBACK = address("127.0.0.1");
+
+	private static InetAddress address(String literal) {
+		try {
+			return InetAddress.getByName(literal);
+		} catch (UnknownHostException e) {
+			// a literal is never looked up
+			throw new IllegalStateException(e);
+		}
+	}
+
+	static byte[] probe(long nonce) {
+		return (MAGIC + " " + PROBE + " " + nonce).getBytes(Charsets.UTF_8);
+	}
+
+	static byte[] here(String nonce, String serverId, int port, String name) {
+		return (MAGIC + " " + HERE + " " + nonce + " " + serverId + " " + port + " " + name).getBytes(Charsets.UTF_8);
+	}
+
+	/** Splits a datagram into its fields, the last of which may contain spaces, or returns null if it isn't ours */
+	static String[] parse(byte[] data, int length, String type, int fields) {
+		final String[] parts = new String(data, 0, length, Charsets.UTF_8).split(" ", fields);
+		if (parts.length != fields || !MAGIC.equals(parts[0]) || !type.equals(parts[1])) {
+			return null;
+		}
+		return parts;
+	}
+
+}
@@ -0,0 +1,109 @@
+package com.swandev.swanlib.discovery;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.InetSocketAddress;
+import java.net.MulticastSocket;
+import java.net.SocketException;
+import java.util.Random;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Makes a swan server findable by {@link ServerDiscovery}: answers every probe it hears, on its own daemon thread, with the port players should connect to. Runs next to the relay, in the screen or standalone.
+ */
+public class DiscoveryResponder implements Runnable {
+
+	private static final Logger log = Logger.getLogger(DiscoveryResponder.class.getName());
+
+	public static final int DEFAULT_DISCOVERY_PORT = 41080;
+
+	private final int discoveryPort;
+	private final int serverPort;
+	private final String name;
+	/** Tells apart the answers from one server arriving over several interfaces */
+	private final String serverId = Long.toHexString(new Random().nextLong());
+	private MulticastSocket socket;
+	private Thread thread;
+	private volatile boolean running;
+
+	/**
+	 * @param serverPort
+	 *            the socket.io port players should connect to
+	 * @param name
+	 *            shown to players choosing a server
+	 */
+	public DiscoveryResponder(int serverPort, String name) {
+		this(DEFAULT_DISCOVERY_PORT, serverPort, name);
+	}
+
+	public DiscoveryResponder(int discoveryPort, int serverPort, String name) {
+		Preconditions.checkArgument(!name.isEmpty());
+		this.discoveryPort = discoveryPort;
+		this.serverPort = serverPort;
+		this.name = name;
+	}
+
+	/** Binds on the calling thread, so a port in use fails here, then answers on a daemon thread */
+	public synchronized void start() throws IOException {
+		socket = new MulticastSocket(null);
+		socket.setReuseAddress(true);
+		socket.bind(new InetSocketAddress(discoveryPort));
+		try {
+			socket.joinGroup(DiscoveryProtocol.MULTICAST_GROUP);
+		} catch (IOException e) {
+			// broadcast and loopback probes still get through
+			log.log(Level.INFO, "Couldn't join the discovery multicast group", e);
+		}
+		running = true;
+		thread = new Thread(this, "swan-discovery-responder");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/** The port probes are answered on, which for a responder asked to use port 0 is only known once it has started */
+	public synchronized int getDiscoveryPort() {
+		return socket == null ? discoveryPort : socket.getLocalPort();
+	}
+
+	public synchronized void stop() {
+		running = false;
+		if (socket != null) {
+			// unblocks the receive
+			socket.close();
+			socket = null;
+		}
+		if (thread != null) {
+			try {
+				thread.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			thread = null;
+		}
+	}
+
+	@Override
+	public void run() {
+		final MulticastSocket socket = this.socket;
+		final DatagramPacket packet = new DatagramPacket(new byte[DiscoveryProtocol.MAX_PACKET_SIZE], DiscoveryProtocol.MAX_PACKET_SIZE);
+		while (running) {
+			try {
+				packet.setLength(DiscoveryProtocol.MAX_PACKET_SIZE);
+				socket.receive(packet);
+				final String[] probe = DiscoveryProtocol.parse(packet.getData(), packet.getLength(), DiscoveryProtocol.PROBE, 3);
+				if (probe != null) {
+					final byte[] answer = DiscoveryProtocol.here(probe[2], serverId, serverPort, name);
+					socket.send(new DatagramPacket(answer, answer.length, packet.getSocketAddress()));
+				}
+			} catch (SocketException e) {
+				// closed by stop()
+			} catch (IOException e) {
+				log.log(Level.FINE, "Couldn't answer a discovery probe", e);
+			}
+		}
+	}
+
+}
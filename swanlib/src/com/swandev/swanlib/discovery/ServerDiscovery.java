@@ -0,0 +1,201 @@
+package com.swandev.swanlib.discovery;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.primitives.Doubles;
+
+/**
+ * Keeps a live list of the swan servers on the LAN, so players can pick one instead of typing an address.
+ *
+ * A daemon thread probes the broadcast address, the discovery multicast group and loopback every {@link #PROBE_INTERVAL_IN_MS}, and times the answers from every {@link DiscoveryResponder} that hears them. Servers that stop answering drop off the list after {@link #EXPIRY_IN_MS}. The list can be read from any thread.
+ *
+ * Android only delivers multicast to apps holding a WifiManager.MulticastLock, so on phones the broadcast probe does the work.
+ */
+public class ServerDiscovery implements Runnable {
+
+	private static final Logger log = Logger.getLogger(ServerDiscovery.class.getName());
+
+	public static final long PROBE_INTERVAL_IN_MS = 1000;
+	/** Three missed probes */
+	public static final long EXPIRY_IN_MS = 3500;
+
+	private static final Comparator<DiscoveredServer> BY_RTT = new Comparator<DiscoveredServer>() {
+
+		@Override
+		public int compare(DiscoveredServer left, DiscoveredServer right) {
+			return Doubles.compare(left.getRttInMs(), right.getRttInMs());
+		}
+	};
+
+	private final int discoveryPort;
+	private final List<InetAddress> targets;
+	private final long probeIntervalInMs;
+	private final long expiryInMs;
+	private final Map<String, DiscoveredServer> servers = new ConcurrentHashMap<String, DiscoveredServer>();
+	private DatagramSocket socket;
+	private Thread thread;
+	private volatile boolean running;
+
+	public ServerDiscovery() {
+		this(DiscoveryResponder.DEFAULT_DISCOVERY_PORT);
+	}
+
+	public ServerDiscovery(int discoveryPort) {
+		this(discoveryPort, ImmutableList.of(DiscoveryProtocol.BROADCAST, DiscoveryProtocol.MULTICAST_GROUP, DiscoveryProtocol.LOOPBACK));
+	}
+
+	/**
+	 * @param targets
+	 *            where probes are sent. Only loopback is needed to find a server on this machine
+	 */
+	public ServerDiscovery(int discoveryPort, List<InetAddress> targets) {
+		this(discoveryPort, targets, PROBE_INTERVAL_IN_MS, EXPIRY_IN_MS);
+	}
+
+	/** For tests, which can't wait seconds for a server to expire */
+	ServerDiscovery(int discoveryPort, List<InetAddress> targets, long probeIntervalInMs, long expiryInMs) {
+		this.discoveryPort = discoveryPort;
+		this.targets = ImmutableList.copyOf(targets);
+		this.probeIntervalInMs = probeIntervalInMs;
+		this.expiryInMs = expiryInMs;
+	}
+
+	public synchronized void start() throws SocketException {
+		if (thread != null) {
+			return;
+		}
+		socket = new DatagramSocket();
+		socket.setBroadcast(true);
+		running = true;
+		thread = new Thread(this, "swan-discovery");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/** Stops probing. The servers found so far are forgotten */
+	public synchronized void stop() {
+		running = false;
+		if (socket != null) {
+			socket.close();
+			socket = null;
+		}
+		if (thread != null) {
+			try {
+				thread.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			thread = null;
+		}
+		servers.clear();
+	}
+
+	/** The servers still answering, closest first */
+	public List<DiscoveredServer> getServers() {
+		final long now = System.currentTimeMillis();
+		final List<DiscoveredServer> live = Lists.newArrayList();
+		for (DiscoveredServer server : servers.values()) {
+			if (now - server.getLastSeenInMs() <= expiryInMs) {
+				live.add(server);
+			}
+		}
+		Collections.sort(live, BY_RTT);
+		return live;
+	}
+
+	/** The closest server still answering, or null if none has been found */
+	public DiscoveredServer getBest() {
+		final List<DiscoveredServer> live = getServers();
+		return live.isEmpty() ? null : live.get(0);
+	}
+
+	@Override
+	public void run() {
+		final DatagramSocket socket = this.socket;
+		final DatagramPacket packet = new DatagramPacket(new byte[DiscoveryProtocol.MAX_PACKET_SIZE], DiscoveryProtocol.MAX_PACKET_SIZE);
+		long nextProbe = 0;
+		while (running) {
+			try {
+				final long now = System.currentTimeMillis();
+				if (now >= nextProbe) {
+					probe(socket);
+					expire(now);
+					nextProbe = now + probeIntervalInMs;
+				}
+				socket.setSoTimeout((int) Math.max(1, nextProbe - now));
+				packet.setLength(DiscoveryProtocol.MAX_PACKET_SIZE);
+				socket.receive(packet);
+				onAnswer(packet);
+			} catch (SocketTimeoutException e) {
+				// time to probe again
+			} catch (SocketException e) {
+				// closed by stop()
+			} catch (IOException e) {
+				log.log(Level.FINE, "Discovery probe failed", e);
+			}
+		}
+	}
+
+	private void probe(DatagramSocket socket) {
+		final byte[] probe = DiscoveryProtocol.probe(System.nanoTime());
+		for (InetAddress target : targets) {
+			try {
+				socket.send(new DatagramPacket(probe, probe.length, target, discoveryPort));
+			} catch (IOException e) {
+				// a network without broadcast or multicast still has the other targets
+				log.log(Level.FINEST, "Couldn't probe " + target, e);
+			}
+		}
+	}
+
+	private void onAnswer(DatagramPacket packet) {
+		final String[] answer = DiscoveryProtocol.parse(packet.getData(), packet.getLength(), DiscoveryProtocol.HERE, 6);
+		if (answer == null) {
+			return;
+		}
+		final long nonce;
+		final int port;
+		try {
+			nonce = Long.parseLong(answer[2]);
+			port = Integer.parseInt(answer[4]);
+		} catch (NumberFormatException e) {
+			return;
+		}
+		final double rttInMs = (System.nanoTime() - nonce) / (double) TimeUnit.MILLISECONDS.toNanos(1);
+		if (rttInMs < 0 || rttInMs > expiryInMs) {
+			return;
+		}
+		final String host = packet.getAddress().getHostAddress();
+		final long now = System.currentTimeMillis();
+		final DiscoveredServer known = servers.get(answer[3]);
+		if (known == null) {
+			servers.put(answer[3], new DiscoveredServer(answer[3], answer[5], host, port, rttInMs, nonce, now));
+		} else {
+			known.update(host, port, rttInMs, nonce, now);
+		}
+	}
+
+	private void expire(long now) {
+		for (DiscoveredServer server : servers.values()) {
+			if (now - server.getLastSeenInMs() > expiryInMs) {
+				servers.remove(server.getServerId());
+			}
+		}
+	}
+
+}
@@ -0,0 +1,61 @@
+package com.swandev.swanlib.discovery;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+
+public class TestDiscovery {
+
+	private static final long PROBE_INTERVAL_IN_MS = 50;
+	private static final long EXPIRY_IN_MS = 200;
+	private static final long WAIT_IN_MS = 5000;
+
+	private static DiscoveredServer awaitServer(ServerDiscovery discovery) throws InterruptedException {
+		final long giveUpAt = System.currentTimeMillis() + WAIT_IN_MS;
+		DiscoveredServer best;
+		while ((best = discovery.getBest()) == null && System.currentTimeMillis() < giveUpAt) {
+			Thread.sleep(10);
+		}
+		return best;
+	}
+
+	private static List<DiscoveredServer> awaitExpiry(ServerDiscovery discovery) throws InterruptedException {
+		final long giveUpAt = System.currentTimeMillis() + WAIT_IN_MS;
+		List<DiscoveredServer> servers;
+		while (!(servers = discovery.getServers()).isEmpty() && System.currentTimeMillis() < giveUpAt) {
+			Thread.sleep(10);
+		}
+		return servers;
+	}
+
+	@Test
+	public void servers_are_found_over_loopback_and_expire() throws IOException, InterruptedException {
+		final DiscoveryResponder responder = new DiscoveryResponder(0, 8123, "poker table");
+		responder.start();
+		final ServerDiscovery discovery = new ServerDiscovery(responder.getDiscoveryPort(), ImmutableList.of(DiscoveryProtocol.LOOPBACK), PROBE_INTERVAL_IN_MS, EXPIRY_IN_MS);
+		discovery.start();
+		try {
+			final DiscoveredServer server = awaitServer(discovery);
+			assertNotNull(server);
+			assertEquals("127.0.0.1", server.getHost());
+			assertEquals(8123, server.getPort());
+			// the name is the last field, so it can have spaces
+			assertEquals("poker table", server.getName());
+			assertTrue(server.getRttInMs() >= 0);
+
+			responder.stop();
+			assertTrue(awaitExpiry(discovery).isEmpty());
+		} finally {
+			discovery.stop();
+			responder.stop();
+		}
+	}
+
+}
@@ -0,0 +1,213 @@
+package com.swandev.swanlib.relay;
+
+import java.lang.reflect.Array;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import lombok.Getter;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.swandev.swanlib.socket.SwanTransport;
+
+/**
+ * Connects {@link com.swandev.swanlib.socket.SocketIOState}s in the same process through a {@link SwanRelay} of their own, with no server and no sockets, for tests and for a screen with players on the same machine. Connect a state with {@code socketIO.connect(hub, nickname, isScreen, callback)}.
+ *
+ * Nothing is serialized. Arguments are copied into the same JSONArray, JSONObject and boxed number types that socket.io would deliver, so callbacks and codecs see exactly what they would over a network, and the relay hands every recipient that one copy. Everything the relay does, it does on the hub's one daemon thread. Each session calls its listener on a daemon thread of its own, just as socket.io calls it on the socket's thread, so a state whose event queue is full holds up only itself and never the hub or the other states.
+ */
+public class LoopbackHub implements SwanTransport.Factory {
+
+	@Getter
+	private final SwanRelay relay = new SwanRelay();
+	private final ExecutorService thread = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder().setDaemon(true).setNameFormat("swan-loopback").build());
+	private final AtomicLong nextSessionId = new AtomicLong();
+	private final Set<LoopbackSession> sessions = Sets.newSetFromMap(new ConcurrentHashMap<LoopbackSession, Boolean>());
+
+	@Override
+	public SwanTransport create() {
+		return new LoopbackSession(Long.toString(nextSessionId.incrementAndGet()));
+	}
+
+	/** Stops the hub's thread. States still connected to it hear nothing more from it */
+	public void shutdown() {
+		thread.shutdownNow();
+		for (LoopbackSession session : sessions) {
+			session.delivery.shutdownNow();
+		}
+	}
+
+	private class LoopbackSession extends RelaySession implements SwanTransport {
+
+		/** Calls the listener, in the order the hub hands it events. Its thread only starts with the first of them */
+		private final ExecutorService delivery;
+		private volatile Listener listener;
+		private volatile boolean connected;
+
+		LoopbackSession(String id) {
+			super("loopback-" + id);
+			delivery = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder().setDaemon(true).setNameFormat("swan-loopback-" + id).build());
+		}
+
+		@Override
+		public void connect(final Listener listener) {
+			this.listener = listener;
+			sessions.add(this);
+			thread.execute(new Runnable() {
+
+				@Override
+				public void run() {
+					connected = true;
+					relay.onConnect(LoopbackSession.this);
+					delivery.execute(new Runnable() {
+
+						@Override
+						public void run() {
+							listener.onConnect();
+						}
+					});
+				}
+			});
+		}
+
+		@Override
+		public boolean isConnected() {
+			return connected;
+		}
+
+		@Override
+		public void emit(final String event, Object... args) {
+			// copied on the caller's thread, because the caller is free to reuse what it passed
+			final JSONArray copy = toJSONArray(args);
+			thread.execute(new Runnable() {
+
+				@Override
+				public void run() {
+					if (connected) {
+						relay.onEvent(LoopbackSession.this, event, copy);
+					}
+				}
+			});
+		}
+
+		@Override
+		public void disconnect() {
+			thread.execute(new Runnable() {
+
+				@Override
+				public void run() {
+					if (connected) {
+						// handled as a closed socket would be. A player leaving for good has already said so with swan_leave
+						close();
+						relay.onDisconnect(LoopbackSession.this);
+					}
+				}
+			});
+		}
+
+		/** Runs on the hub's thread, as every relay call does */
+		@Override
+		protected void send(RelayPacket packet) {
+			if (!connected || packet.getName() == null) {
+				return;
+			}
+			final String name = packet.getName();
+			final JSONArray args = packet.getArgs();
+			final Object[] arguments = new Object[args.length()];
+			for (int i = 0; i < arguments.length; i++) {
+				// as socket.io does, JSON nulls arrive as null
+				arguments[i] = args.isNull(i) ? null : args.opt(i);
+			}
+			delivery.execute(new Runnable() {
+
+				@Override
+				public void run() {
+					listener.onEvent(name, null, arguments);
+				}
+			});
+		}
+
+		@Override
+		protected void close() {
+			if (connected) {
+				connected = false;
+				sessions.remove(this);
+				delivery.execute(new Runnable() {
+
+					@Override
+					public void run() {
+						listener.onDisconnect();
+					}
+				});
+				// lets the events already handed over, and the disconnect, through first
+				delivery.shutdown();
+			}
+		}
+	}
+
+	static JSONArray toJSONArray(Object[] args) {
+		final JSONArray array = new JSONArray();
+		for (Object arg : args) {
+			array.put(toJSON(arg));
+		}
+		return array;
+	}
+
+	private static Object toJSON(long number) {
+		if (number == (int) number) {
+			return Integer.valueOf((int) number);
+		}
+		return Long.valueOf(number);
+	}
+
+	/** What the value would be after a trip through JSON, without making the trip. Only the types JSON has, and collections, maps and arrays of them, can be sent */
+	private static Object toJSON(Object value) {
+		if (value == null) {
+			return JSONObject.NULL;
+		} else if (value instanceof JSONArray || value instanceof JSONObject || value instanceof String || value instanceof Boolean || value instanceof Integer) {
+			// the org.json types are only ever read, so they can be shared
+			return value;
+		} else if (value instanceof Long || value instanceof Byte || value instanceof Short) {
+			return toJSON(((Number) value).longValue());
+		} else if (value instanceof Number) {
+			// whole numbers are written without a decimal point, so they are read back as integers
+			final double number = ((Number) value).doubleValue();
+			return number == (long) number ? toJSON((long) number) : Double.valueOf(number);
+		} else if (value instanceof Character) {
+			return value.toString();
+		} else if (value instanceof Collection) {
+			final JSONArray array = new JSONArray();
+			for (Object element : (Collection<?>) value) {
+				array.put(toJSON(element));
+			}
+			return array;
+		} else if (value.getClass().isArray()) {
+			final JSONArray array = new JSONArray();
+			for (int i = 0; i < Array.getLength(value); i++) {
+				array.put(toJSON(Array.get(value, i)));
+			}
+			return array;
+		} else if (value instanceof Map) {
+			final JSONObject object = new JSONObject();
+			try {
+				for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+					object.put(String.valueOf(entry.getKey()), toJSON(entry.getValue()));
+				}
+			} catch (JSONException e) {
+				throw new IllegalArgumentException("Can't send " + value, e);
+			}
+			return object;
+		}
+		// JSONObject.wrap would take anything, but it is only on Android from API 19
+		throw new IllegalArgumentException("Can't send a " + value.getClass().getName() + " as JSON: " + value);
+	}
+
+}
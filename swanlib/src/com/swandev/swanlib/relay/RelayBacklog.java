@@ -0,0 +1,67 @@
+package com.swandev.swanlib.relay;
+
+import java.util.List;
+
+import lombok.Getter;
+
+import com.google.common.collect.Lists;
+
+/**
+ * The last events sent to one named client, so that if its connection drops it can reconnect and pick up where it left off. Events are counted from the start of the client's first connection, which is also how the client counts them, so the client only has to say how many it got.
+ */
+class RelayBacklog {
+
+	static final int CAPACITY = 512;
+
+	/** Proves a resuming client is the one that had the nickname */
+	@Getter
+	private final String token;
+	private final RelayPacket[] packets = new RelayPacket[CAPACITY];
+	/** Every event the client has been sent */
+	@Getter
+	private long delivered;
+	/** When the client's connection dropped, or 0 while it is connected */
+	@Getter
+	private long suspendedAt;
+
+	RelayBacklog(String token, long alreadyDelivered) {
+		this.token = token;
+		this.delivered = alreadyDelivered;
+	}
+
+	void record(RelayPacket packet) {
+		packets[(int) (delivered % CAPACITY)] = packet;
+		delivered++;
+	}
+
+	void suspend(long now) {
+		suspendedAt = now;
+	}
+
+	void resume() {
+		suspendedAt = 0;
+	}
+
+	boolean isSuspended() {
+		return suspendedAt != 0;
+	}
+
+	/** What was sent after the first {@code received} events, or null if some of it is no longer kept */
+	List<RelayPacket> since(long received) {
+		final long missed = delivered - received;
+		if (missed < 0 || missed > CAPACITY) {
+			return null;
+		}
+		final List<RelayPacket> since = Lists.newArrayListWithCapacity((int) missed);
+		for (long i = received; i < delivered; i++) {
+			final RelayPacket packet = packets[(int) (i % CAPACITY)];
+			if (packet == null) {
+				// sent before the backlog was started
+				return null;
+			}
+			since.add(packet);
+		}
+		return since;
+	}
+
+}
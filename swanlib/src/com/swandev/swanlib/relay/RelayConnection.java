@@ -0,0 +1,276 @@
+package com.swandev.swanlib.relay;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Map;
+
+import lombok.Getter;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Maps;
+
+/**
+ * One client socket of a {@link SwanRelayServer}. It starts out reading a single HTTP request, which is either the socket.io handshake or the websocket upgrade, and after an upgrade reads websocket frames.
+ *
+ * Everything here runs on the server's I/O thread. Writes never block: whatever the socket won't take is queued until it becomes writable again.
+ */
+class RelayConnection extends RelaySession {
+
+	private static final int INITIAL_BUFFER_SIZE = 4096;
+	private static final int MAX_HEADER_SIZE = 8192;
+	/** The largest message a client may send, after reassembling fragments */
+	static final int MAX_MESSAGE_SIZE = 1 << 20;
+	/** A client that falls this far behind reading is dropped rather than buffered for */
+	static final int MAX_BACKLOG = 4 << 20;
+
+	private static final int OPCODE_CONTINUATION = 0x0;
+	private static final int OPCODE_TEXT = 0x1;
+	private static final int OPCODE_CLOSE = 0x8;
+	private static final int OPCODE_PING = 0x9;
+
+	enum State {
+		HTTP, WEBSOCKET, CLOSED
+	}
+
+	private final SwanRelayServer server;
+	private final SocketChannel channel;
+	private final SelectionKey key;
+	@Getter
+	private final long openedAt;
+	private ByteBuffer in = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+	private final ArrayDeque<ByteBuffer> out = new ArrayDeque<ByteBuffer>();
+	private int backlog;
+	private boolean closeWhenFlushed;
+	private final ByteArrayOutputStream fragments = new ByteArrayOutputStream();
+	@Getter
+	private State state = State.HTTP;
+	@Getter
+	private long lastReceived;
+
+	RelayConnection(SwanRelayServer server, SocketChannel channel, SelectionKey key, long now) {
+		super(Long.toHexString(server.nextSessionId()));
+		this.server = server;
+		this.channel = channel;
+		this.key = key;
+		this.openedAt = now;
+		this.lastReceived = now;
+	}
+
+	void read(long now) throws IOException {
+		if (!in.hasRemaining()) {
+			final ByteBuffer larger = ByteBuffer.allocate(in.capacity() * 2);
+			in.flip();
+			larger.put(in);
+			in = larger;
+		}
+		final int read = channel.read(in);
+		if (read < 0) {
+			server.close(this);
+			return;
+		}
+		lastReceived = now;
+		in.flip();
+		if (state == State.HTTP) {
+			readRequest();
+		}
+		if (state == State.WEBSOCKET) {
+			readFrames();
+		}
+		in.compact();
+	}
+
+	private void readRequest() {
+		final int end = indexOfHeaderEnd();
+		if (end < 0) {
+			if (in.remaining() > MAX_HEADER_SIZE) {
+				server.close(this);
+			}
+			return;
+		}
+		final byte[] header = new byte[end - in.position()];
+		in.get(header);
+		in.position(end + 4);
+		final String[] lines = new String(header, Charsets.ISO_8859_1).split("\r\n");
+		final String[] requestLine = lines[0].split(" ");
+		final Map<String, String> headers = Maps.newHashMap();
+		for (int i = 1; i < lines.length; i++) {
+			final int colon = lines[i].indexOf(':');
+			if (colon > 0) {
+				headers.put(lines[i].substring(0, colon).trim().toLowerCase(), lines[i].substring(colon + 1).trim());
+			}
+		}
+		if (requestLine.length < 2 || !"GET".equals(requestLine[0])) {
+			respond("405 Method Not Allowed", "");
+			return;
+		}
+		server.onRequest(this, requestLine[1], headers);
+	}
+
+	private int indexOfHeaderEnd() {
+		for (int i = in.position(); i + 3 < in.limit(); i++) {
+			if (in.get(i) == '\r' && in.get(i + 1) == '\n' && in.get(i + 2) == '\r' && in.get(i + 3) == '\n') {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/** Sends a complete HTTP response and closes the connection once it has been written */
+	void respond(String status, String body) {
+		final byte[] content = body.getBytes(Charsets.UTF_8);
+		final String head = "HTTP/1.1 " + status + "\r\nContent-Type: text/plain; charset=UTF-8\r\nContent-Length: " + content.length + "\r\nAccess-Control-Allow-Origin: *\r\nConnection: close\r\n\r\n";
+		write(ByteBuffer.wrap(head.getBytes(Charsets.ISO_8859_1)));
+		write(ByteBuffer.wrap(content));
+		closeWhenFlushed = true;
+		flushIfIdle();
+	}
+
+	void upgrade(String accept) {
+		final String head = "HTTP/1.1 101 Switching Protocols\r\nUpgrade: websocket\r\nConnection: Upgrade\r\nSec-WebSocket-Accept: " + accept + "\r\n\r\n";
+		write(ByteBuffer.wrap(head.getBytes(Charsets.ISO_8859_1)));
+		state = State.WEBSOCKET;
+		send(RelayPacket.CONNECT);
+	}
+
+	private void readFrames() {
+		while (state == State.WEBSOCKET && in.remaining() >= 2) {
+			final int start = in.position();
+			final int first = in.get(start) & 0xFF;
+			final int second = in.get(start + 1) & 0xFF;
+			final boolean fin = (first & 0x80) != 0;
+			final int opcode = first & 0x0F;
+			final boolean masked = (second & 0x80) != 0;
+			long length = second & 0x7F;
+			int headerLength = 2;
+			if (length == 126) {
+				if (in.remaining() < 4) {
+					return;
+				}
+				length = in.getShort(start + 2) & 0xFFFF;
+				headerLength = 4;
+			} else if (length == 127) {
+				if (in.remaining() < 10) {
+					return;
+				}
+				length = in.getLong(start + 2);
+				headerLength = 10;
+			}
+			if (length < 0 || length + fragments.size() > MAX_MESSAGE_SIZE) {
+				server.close(this);
+				return;
+			}
+			final int maskLength = masked ? 4 : 0;
+			if (in.remaining() < headerLength + maskLength + length) {
+				return;
+			}
+			final byte[] payload = new byte[(int) length];
+			in.position(start + headerLength + maskLength);
+			in.get(payload);
+			if (masked) {
+				for (int i = 0; i < payload.length; i++) {
+					payload[i] ^= in.get(start + headerLength + (i & 3));
+				}
+			}
+			onFrame(fin, opcode, payload);
+		}
+	}
+
+	private void onFrame(boolean fin, int opcode, byte[] payload) {
+		switch (opcode) {
+		case OPCODE_TEXT:
+		case OPCODE_CONTINUATION:
+			if (fin && fragments.size() == 0) {
+				server.onMessage(this, new String(payload, Charsets.UTF_8));
+			} else {
+				fragments.write(payload, 0, payload.length);
+				if (fin) {
+					final String message = new String(fragments.toByteArray(), Charsets.UTF_8);
+					fragments.reset();
+					server.onMessage(this, message);
+				}
+			}
+			break;
+		case OPCODE_PING:
+			write(ByteBuffer.wrap(RelayPacket.frame(0xA, payload)));
+			flushIfIdle();
+			break;
+		case OPCODE_CLOSE:
+			write(ByteBuffer.wrap(RelayPacket.frame(OPCODE_CLOSE, payload)));
+			closeWhenFlushed = true;
+			flushIfIdle();
+			break;
+		default:
+			// pongs and binary frames mean nothing to socket.io 0.9
+			break;
+		}
+	}
+
+	@Override
+	protected void send(RelayPacket packet) {
+		if (state != State.WEBSOCKET || closeWhenFlushed) {
+			return;
+		}
+		write(ByteBuffer.wrap(packet.getFrame()));
+		flushIfIdle();
+	}
+
+	private void write(ByteBuffer buffer) {
+		out.add(buffer);
+		backlog += buffer.remaining();
+		if (backlog > MAX_BACKLOG) {
+			// can't close in the middle of a broadcast, the server does it after this event
+			server.closeLater(this);
+		}
+	}
+
+	/** Tries writing straight away unless earlier writes are already waiting for the socket */
+	private void flushIfIdle() {
+		if ((key.interestOps() & SelectionKey.OP_WRITE) == 0) {
+			try {
+				flush();
+			} catch (IOException e) {
+				server.closeLater(this);
+			}
+		}
+	}
+
+	void flush() throws IOException {
+		while (!out.isEmpty()) {
+			final ByteBuffer buffer = out.peek();
+			backlog -= channel.write(buffer);
+			if (buffer.hasRemaining()) {
+				key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+				return;
+			}
+			out.poll();
+		}
+		key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+		if (closeWhenFlushed) {
+			server.closeLater(this);
+		}
+	}
+
+	@Override
+	protected void close() {
+		server.closeLater(this);
+	}
+
+	/** Called by the server, which owns the bookkeeping. Returns whether the relay knew about this session */
+	boolean closeChannel() {
+		final boolean wasWebSocket = state == State.WEBSOCKET;
+		state = State.CLOSED;
+		key.cancel();
+		try {
+			channel.close();
+		} catch (IOException e) {
+			// closing anyway
+		}
+		out.clear();
+		return wasWebSocket;
+	}
+
+}
@@ -0,0 +1,113 @@
+package com.swandev.swanlib.relay;
+
+import lombok.Getter;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import com.google.common.base.Charsets;
+
+/**
+ * A socket.io 0.9 packet, framed once as a websocket text frame so a broadcast encodes it once however many sessions it goes to.
+ *
+ * Events keep their name and arguments and are only encoded the first time a websocket session needs them, so packets that only go to {@link LoopbackHub} sessions are never encoded at all.
+ */
+public final class RelayPacket {
+
+	static final RelayPacket CONNECT = new RelayPacket("1::");
+	static final RelayPacket HEARTBEAT = new RelayPacket("2::");
+	static final RelayPacket DISCONNECT = new RelayPacket("0::");
+
+	private static final int OPCODE_TEXT = 0x1;
+	private static final int FIN = 0x80;
+
+	/** The event's name, or null for the packets that aren't events */
+	@Getter
+	private final String name;
+	/** Shared by every recipient, so nothing may change it */
+	@Getter
+	private final JSONArray args;
+	private String text;
+	/** Server to client frames are never masked, so every recipient can be sent the same bytes */
+	private byte[] frame;
+
+	private RelayPacket(String text) {
+		this.name = null;
+		this.args = null;
+		this.text = text;
+		// shared by every relay, so never left to be framed lazily
+		this.frame = frame(OPCODE_TEXT, text.getBytes(Charsets.UTF_8));
+	}
+
+	private RelayPacket(String name, JSONArray args) {
+		this.name = name;
+		this.args = args;
+	}
+
+	public static RelayPacket event(String name, JSONArray args) {
+		if (name == null) {
+			throw new IllegalArgumentException("Events need a name");
+		}
+		return new RelayPacket(name, args == null ? new JSONArray() : args);
+	}
+
+	public static RelayPacket event(String name, Object... args) {
+		final JSONArray array = new JSONArray();
+		for (Object arg : args) {
+			array.put(arg);
+		}
+		return event(name, array);
+	}
+
+	/** Relay threads each own their packets, so this needs no locking */
+	public String getText() {
+		if (text == null) {
+			final JSONObject event = new JSONObject();
+			try {
+				event.put("name", name);
+				event.put("args", args);
+			} catch (JSONException e) {
+				throw new IllegalArgumentException("Bad event name " + name, e);
+			}
+			text = "5:::" + event;
+		}
+		return text;
+	}
+
+	byte[] getFrame() {
+		if (frame == null) {
+			frame = frame(OPCODE_TEXT, getText().getBytes(Charsets.UTF_8));
+		}
+		return frame;
+	}
+
+	/** An unmasked, unfragmented websocket frame */
+	static byte[] frame(int opcode, byte[] payload) {
+		final int header = payload.length < 126 ? 2 : (payload.length <= 0xFFFF ? 4 : 10);
+		final byte[] frame = new byte[header + payload.length];
+		frame[0] = (byte) (FIN | opcode);
+		if (header == 2) {
+			frame[1] = (byte) payload.length;
+		} else if (header == 4) {
+			frame[1] = 126;
+			frame[2] = (byte) (payload.length >>> 8);
+			frame[3] = (byte) payload.length;
+		} else {
+			frame[1] = 127;
+			// lengths above 2^31 can't happen, so the top four bytes stay zero
+			for (int i = 0; i < 4; i++) {
+				frame[6 + i] = (byte) (payload.length >>> (8 * (3 - i)));
+			}
+		}
+		System.arraycopy(payload, 0, frame, header, payload.length);
+		return frame;
+	}
+
+	@Override
+	public String toString() {
+		// logged even when only loopback sessions get it, so it mustn't force the encoding
+		return text != null ? text : name;
+	}
+
+}
@@ -0,0 +1,36 @@
+package com.swandev.swanlib.relay;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+
+/** One connected socket.io client as the {@link SwanRelay} sees it, whatever carries its packets */
+public abstract class RelaySession {
+
+	@Getter
+	private final String id;
+
+	/** The player's nickname, "Screen" for the screen, or null until it has said which it is */
+	@Getter
+	@Setter(AccessLevel.PACKAGE)
+	private String nickname;
+
+	/** Events the relay has sent this session, counted by the relay */
+	long eventsSent;
+
+	protected RelaySession(String id) {
+		this.id = id;
+	}
+
+	/** Queues the packet for the client without blocking */
+	protected abstract void send(RelayPacket packet);
+
+	/** Drops the client. The relay hears about it through {@link SwanRelay#onDisconnect} */
+	protected abstract void close();
+
+	@Override
+	public String toString() {
+		return nickname == null ? id : nickname;
+	}
+
+}
@@ -0,0 +1,331 @@
+package com.swandev.swanlib.relay;
+
+import java.security.SecureRandom;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.json.JSONArray;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.io.BaseEncoding;
+import com.swandev.swanlib.socket.CommonSocketIOEvents;
+import com.swandev.swanlib.socket.SocketIOState;
+
+/**
+ * The swan mailbox: tracks who is connected under which nickname, elects the host, coordinates game start, and forwards swan_emit, swan_multicast, swan_broadcast and swan_emit_batch events. It speaks the same events as swan_server.py.
+ *
+ * Sessions are looked up by nickname in a hash map, so routing a swan_emit doesn't depend on how many players are connected, and an event multicast or broadcast to many sessions is encoded once. It isn't thread safe; {@link SwanRelayServer} only calls it from its I/O thread.
+ *
+ * Every named client is given a token and a {@link RelayBacklog} of what it was sent. When its connection drops it keeps its nickname, and its place as host, for {@link #RESUME_GRACE_MILLIS}, while events for it keep going into the backlog. If it reconnects in time with swan_resume it is sent what it missed and carries on, and nobody else notices it was gone.
+ */
+public class SwanRelay {
+
+	private static final Logger log = Logger.getLogger(SwanRelay.class.getName());
+
+	/** How long a dropped client's nickname is held for it to resume */
+	public static final long RESUME_GRACE_MILLIS = 10000;
+
+	private static final SecureRandom random = new SecureRandom();
+
+	/** Every connected session, named or not, in the order they connected */
+	private final Set<RelaySession> sessions = Sets.newLinkedHashSet();
+	/** Everyone with a nickname, the screen included */
+	private final Map<String, RelaySession> byNickname = Maps.newHashMap();
+	/** The players' nicknames in the order they joined. The first is next in line to be host */
+	private final Set<String> players = Sets.newLinkedHashSet();
+	/** Everyone who hasn't acked the last game_start yet */
+	private final Set<String> awaitingReady = Sets.newHashSet();
+	private RelaySession host;
+	/** What each named client was sent, by nickname */
+	private final Map<String, RelayBacklog> backlogs = Maps.newHashMap();
+
+	/** Stands in for a named client whose connection dropped, until it resumes or its grace runs out */
+	private static class SuspendedSession extends RelaySession {
+
+		SuspendedSession(RelaySession dropped) {
+			super(dropped.getId());
+			setNickname(dropped.getNickname());
+		}
+
+		@Override
+		protected void send(RelayPacket packet) {
+			// it is in the backlog, which is all a resuming client needs
+		}
+
+		@Override
+		protected void close() {
+		}
+	}
+
+	public void onConnect(RelaySession session) {
+		sessions.add(session);
+	}
+
+	public void onEvent(RelaySession session, String name, JSONArray args) {
+		if (log.isLoggable(Level.FINE)) {
+			log.fine(session + " sent " + name + " " + args);
+		}
+		if (CommonSocketIOEvents.SWAN_EMIT.equals(name)) {
+			emitTo(args.optString(0), RelayPacket.event(args.optString(1), args.optJSONArray(2)));
+		} else if (CommonSocketIOEvents.SWAN_BROADCAST.equals(name)) {
+			broadcast(RelayPacket.event(args.optString(0), args.optJSONArray(1)));
+		} else if (CommonSocketIOEvents.SWAN_MULTICAST.equals(name)) {
+			multicast(args.optJSONArray(0), RelayPacket.event(args.optString(1), args.optJSONArray(2)));
+		} else if (CommonSocketIOEvents.SWAN_EMIT_BATCH.equals(name)) {
+			emitBatch(args.optJSONArray(0));
+		} else if (CommonSocketIOEvents.GET_NICKNAMES.equals(name)) {
+			deliver(session, RelayPacket.event(CommonSocketIOEvents.GET_NICKNAMES, (Object) new JSONArray(getNicknames())));
+		} else if (CommonSocketIOEvents.NICKNAME_SET.equals(name)) {
+			setNickname(session, args.optString(0));
+		} else if (CommonSocketIOEvents.SCREEN_SET.equals(name)) {
+			setScreen(session);
+		} else if (CommonSocketIOEvents.GAME_START.equals(name)) {
+			awaitingReady.clear();
+			awaitingReady.addAll(players);
+			awaitingReady.add(SocketIOState.SCREEN_NAME);
+			broadcast(RelayPacket.event(CommonSocketIOEvents.GAME_START));
+		} else if (CommonSocketIOEvents.PLAYER_READY.equals(name)) {
+			playerReady(args.optString(0));
+		} else if (CommonSocketIOEvents.SWAN_RESUME.equals(name)) {
+			resume(session, args.optString(0), args.optString(1), args.optLong(2, -1));
+		} else if (CommonSocketIOEvents.SWAN_LEAVE.equals(name)) {
+			onLeave(session);
+		} else {
+			log.warning(session + " sent unknown event " + name);
+		}
+	}
+
+	public void onDisconnect(RelaySession session) {
+		if (!sessions.remove(session)) {
+			return;
+		}
+		final String nickname = session.getNickname();
+		if (nickname == null) {
+			log.info("An unidentified session (no nickname set) has disconnected");
+			return;
+		}
+		final RelayBacklog backlog = backlogs.get(nickname);
+		if (backlog != null && byNickname.get(nickname) == session) {
+			suspend(session, backlog);
+			return;
+		}
+		backlogs.remove(nickname);
+		byNickname.remove(nickname);
+		players.remove(nickname);
+		broadcast(RelayPacket.event(CommonSocketIOEvents.CLIENT_DISCONNECT, nickname));
+		broadcast(RelayPacket.event(CommonSocketIOEvents.ANNOUNCEMENT, nickname + " has disconnected"));
+		log.info(nickname + " has disconnected");
+		// nobody is left to wait for, so the game can go ahead without them
+		playerReady(nickname);
+
+		if (session == host) {
+			host = null;
+			if (!players.isEmpty()) {
+				final String newHost = players.iterator().next();
+				host = byNickname.get(newHost);
+				deliver(host, RelayPacket.event(CommonSocketIOEvents.ELECTED_HOST));
+				broadcast(RelayPacket.event(CommonSocketIOEvents.ANNOUNCEMENT, newHost + " is now the host"));
+			} else {
+				log.info("Waiting for a host to connect");
+			}
+		}
+	}
+
+	/** Disconnects the session for good, without holding its place for it to resume */
+	public void onLeave(RelaySession session) {
+		final String nickname = session.getNickname();
+		if (nickname != null && byNickname.get(nickname) == session) {
+			backlogs.remove(nickname);
+		}
+		onDisconnect(session);
+	}
+
+	private void suspend(RelaySession session, RelayBacklog backlog) {
+		final SuspendedSession suspended = new SuspendedSession(session);
+		sessions.add(suspended);
+		byNickname.put(suspended.getNickname(), suspended);
+		if (host == session) {
+			host = suspended;
+		}
+		backlog.suspend(System.currentTimeMillis());
+		log.info(suspended + " has dropped, holding their place for them to resume");
+	}
+
+	/** Disconnects everyone whose grace for resuming has run out. Called regularly by the server */
+	public void expireSuspended(long now) {
+		for (String nickname : Lists.newArrayList(backlogs.keySet())) {
+			final RelayBacklog backlog = backlogs.get(nickname);
+			if (backlog.isSuspended() && now - backlog.getSuspendedAt() > RESUME_GRACE_MILLIS) {
+				forget(nickname);
+			}
+		}
+	}
+
+	/** Disconnects whoever has the nickname, for good */
+	private void forget(String nickname) {
+		backlogs.remove(nickname);
+		final RelaySession session = byNickname.get(nickname);
+		if (session != null) {
+			onDisconnect(session);
+			session.close();
+		}
+	}
+
+	private void resume(RelaySession session, String nickname, String token, long received) {
+		final RelayBacklog backlog = backlogs.get(nickname);
+		if (session.getNickname() != null || backlog == null || !backlog.getToken().equals(token)) {
+			log.info(session + " couldn't resume as " + nickname);
+			deliver(session, RelayPacket.event(CommonSocketIOEvents.SWAN_RESUME_FAILED));
+			return;
+		}
+		final List<RelayPacket> missed = backlog.since(received);
+		if (missed == null) {
+			log.info(nickname + " missed more than can be replayed, so can't resume");
+			forget(nickname);
+			deliver(session, RelayPacket.event(CommonSocketIOEvents.SWAN_RESUME_FAILED));
+			return;
+		}
+		// the old connection may not have been noticed dropping yet, in which case it is quietly replaced
+		final RelaySession previous = byNickname.put(nickname, session);
+		sessions.remove(previous);
+		previous.close();
+		sessions.add(session);
+		session.setNickname(nickname);
+		if (host == previous) {
+			host = session;
+		}
+		backlog.resume();
+		for (RelayPacket packet : missed) {
+			session.send(packet);
+		}
+		deliver(session, RelayPacket.event(CommonSocketIOEvents.SWAN_RESUMED));
+		log.info(nickname + " has resumed, after missing " + missed.size() + " events");
+	}
+
+	/** Starts keeping a backlog for a client that has just been named, and gives it the token to resume with */
+	private void startBacklog(RelaySession session) {
+		final byte[] token = new byte[16];
+		random.nextBytes(token);
+		final RelayBacklog backlog = new RelayBacklog(BaseEncoding.base16().lowerCase().encode(token), session.eventsSent);
+		backlogs.put(session.getNickname(), backlog);
+		deliver(session, RelayPacket.event(CommonSocketIOEvents.SWAN_SESSION, backlog.getToken()));
+	}
+
+	private void setScreen(RelaySession session) {
+		final RelaySession previous = byNickname.put(SocketIOState.SCREEN_NAME, session);
+		if (previous != null && previous != session) {
+			previous.setNickname(null);
+			if (previous instanceof SuspendedSession) {
+				sessions.remove(previous);
+			}
+		}
+		session.setNickname(SocketIOState.SCREEN_NAME);
+		log.info("Screen has connected");
+		startBacklog(session);
+	}
+
+	private void setNickname(RelaySession session, String nickname) {
+		if (nickname.isEmpty() || session.getNickname() != null || byNickname.containsKey(nickname)) {
+			log.info("Session attempted to join with a taken nickname " + nickname + ", telling it to retry with a new name");
+			deliver(session, RelayPacket.event(CommonSocketIOEvents.INVALID_NICKNAME));
+			return;
+		}
+		session.setNickname(nickname);
+		byNickname.put(nickname, session);
+		players.add(nickname);
+		broadcast(RelayPacket.event(CommonSocketIOEvents.ANNOUNCEMENT, nickname + " has connected"));
+		if (host == null) {
+			host = session;
+			deliver(session, RelayPacket.event(CommonSocketIOEvents.ELECTED_HOST));
+			log.info("Host is " + nickname);
+		} else {
+			deliver(session, RelayPacket.event(CommonSocketIOEvents.ELECTED_CLIENT));
+			log.info("Client is " + nickname);
+		}
+		startBacklog(session);
+	}
+
+	private void playerReady(String nickname) {
+		if (awaitingReady.remove(nickname) && awaitingReady.isEmpty()) {
+			log.info("Everyone is ready to start");
+			broadcast(RelayPacket.event(CommonSocketIOEvents.EVERYONE_READY));
+		}
+	}
+
+	private void emitTo(String nickname, RelayPacket packet) {
+		final RelaySession session = byNickname.get(nickname);
+		if (session != null) {
+			deliver(session, packet);
+		} else {
+			log.fine("Dropped " + packet + " for " + nickname + ", who isn't connected");
+		}
+	}
+
+	/** Each entry is [addressee, event, args], where the addressee is a nickname, a list of nicknames, or null for everyone */
+	private void emitBatch(JSONArray batch) {
+		if (batch == null) {
+			return;
+		}
+		for (int i = 0; i < batch.length(); i++) {
+			final JSONArray entry = batch.optJSONArray(i);
+			if (entry == null) {
+				continue;
+			}
+			final RelayPacket packet = RelayPacket.event(entry.optString(1), entry.optJSONArray(2));
+			final Object addressee = entry.opt(0);
+			if (addressee instanceof JSONArray) {
+				multicast((JSONArray) addressee, packet);
+			} else if (addressee instanceof String) {
+				emitTo((String) addressee, packet);
+			} else {
+				broadcast(packet);
+			}
+		}
+	}
+
+	private void multicast(JSONArray nicknames, RelayPacket packet) {
+		if (nicknames == null) {
+			return;
+		}
+		for (int i = 0; i < nicknames.length(); i++) {
+			emitTo(nicknames.optString(i), packet);
+		}
+	}
+
+	/** Goes to everyone with a nickname. Sessions that haven't said who they are yet aren't part of any game */
+	private void broadcast(RelayPacket packet) {
+		for (RelaySession session : sessions) {
+			if (session.getNickname() != null) {
+				deliver(session, packet);
+			}
+		}
+	}
+
+	/** Every event to a session goes through here, so it is counted and kept for resuming */
+	private void deliver(RelaySession session, RelayPacket packet) {
+		session.eventsSent++;
+		final String nickname = session.getNickname();
+		if (nickname != null && byNickname.get(nickname) == session) {
+			final RelayBacklog backlog = backlogs.get(nickname);
+			if (backlog != null) {
+				backlog.record(packet);
+			}
+		}
+		session.send(packet);
+	}
+
+	/** The players' nicknames in the order they joined, not including the screen */
+	public List<String> getNicknames() {
+		return Lists.newArrayList(players);
+	}
+
+	public int getSessionCount() {
+		return sessions.size();
+	}
+
+}
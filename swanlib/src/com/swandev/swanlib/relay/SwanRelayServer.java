@@ -0,0 +1,288 @@
+package com.swandev.swanlib.relay;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import lombok.Getter;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.hash.Hashing;
+import com.google.common.io.BaseEncoding;
+import com.swandev.swanlib.discovery.DiscoveryResponder;
+
+/**
+ * Serves a {@link SwanRelay} to socket.io 0.9 clients over websockets, in place of swan_server.py.
+ *
+ * One thread multiplexes every client with a NIO selector and runs the relay itself, so there is no locking and no thread per session. It can run in-process (see {@link #start()}) or standalone through {@link #main}.
+ */
+public class SwanRelayServer implements Runnable {
+
+	private static final Logger log = Logger.getLogger(SwanRelayServer.class.getName());
+
+	public static final int DEFAULT_PORT = 8080;
+
+	static final String HANDSHAKE_PATH = "/socket.io/1/";
+	static final String WEBSOCKET_PATH = HANDSHAKE_PATH + "websocket/";
+	private static final String WEBSOCKET_GUID = "258EAFA5-E914-47DA-95CA-C5AB0DC85B11";
+
+	/** Clients give up on a server they haven't heard from in this long */
+	static final int HEARTBEAT_TIMEOUT_SECONDS = 10;
+	static final int CLOSE_TIMEOUT_SECONDS = 15;
+	static final long HEARTBEAT_INTERVAL_MILLIS = 4000;
+	private static final long SELECT_TIMEOUT_MILLIS = 1000;
+
+	@Getter
+	private final SwanRelay relay = new SwanRelay();
+	private final InetSocketAddress address;
+	private final Set<RelayConnection> connections = Sets.newHashSet();
+	private final Set<RelayConnection> toClose = Sets.newLinkedHashSet();
+	/** Session ids handed out by handshakes that haven't upgraded yet, with when they expire */
+	private final Map<String, Long> handshakes = Maps.newHashMap();
+	private long nextSessionId = System.nanoTime();
+	private long lastHeartbeat;
+
+	private Selector selector;
+	private ServerSocketChannel serverChannel;
+	private Thread thread;
+	private volatile boolean running;
+
+	public SwanRelayServer() {
+		this(DEFAULT_PORT);
+	}
+
+	public SwanRelayServer(int port) {
+		this(new InetSocketAddress(port));
+	}
+
+	public SwanRelayServer(InetSocketAddress address) {
+		this.address = address;
+	}
+
+	public static void main(String[] args) throws IOException {
+		final int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+		final SwanRelayServer server = new SwanRelayServer(port);
+		server.bind();
+		log.info("Listening on port " + server.getPort());
+		try {
+			new DiscoveryResponder(server.getPort(), "swan relay").start();
+		} catch (IOException e) {
+			log.log(Level.WARNING, "Players won't be able to find this relay on the LAN", e);
+		}
+		server.run();
+	}
+
+	/** Binds the port on the calling thread, so a port in use fails here, then serves on a daemon thread */
+	public synchronized void start() throws IOException {
+		bind();
+		thread = new Thread(this, "swan-relay");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	public synchronized void stop() {
+		running = false;
+		if (selector != null) {
+			selector.wakeup();
+		}
+		if (thread != null) {
+			try {
+				thread.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			thread = null;
+		}
+	}
+
+	/** The port actually bound, which differs from the one asked for when that was 0 */
+	public int getPort() {
+		return serverChannel.socket().getLocalPort();
+	}
+
+	void bind() throws IOException {
+		selector = Selector.open();
+		serverChannel = ServerSocketChannel.open();
+		try {
+			serverChannel.configureBlocking(false);
+			serverChannel.socket().bind(address);
+			serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+		} catch (IOException e) {
+			serverChannel.close();
+			selector.close();
+			throw e;
+		}
+		running = true;
+	}
+
+	@Override
+	public void run() {
+		try {
+			while (running) {
+				selector.select(SELECT_TIMEOUT_MILLIS);
+				final long now = System.currentTimeMillis();
+				final Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+				while (keys.hasNext()) {
+					final SelectionKey key = keys.next();
+					keys.remove();
+					if (!key.isValid()) {
+						continue;
+					}
+					if (key.isAcceptable()) {
+						accept(now);
+						continue;
+					}
+					final RelayConnection connection = (RelayConnection) key.attachment();
+					try {
+						if (key.isReadable()) {
+							connection.read(now);
+						}
+						if (key.isValid() && key.isWritable()) {
+							connection.flush();
+						}
+					} catch (IOException e) {
+						close(connection);
+					}
+					closePending();
+				}
+				tick(now);
+			}
+		} catch (IOException e) {
+			log.log(Level.SEVERE, "Relay stopped", e);
+		} finally {
+			for (RelayConnection connection : Lists.newArrayList(connections)) {
+				close(connection);
+			}
+			try {
+				serverChannel.close();
+				selector.close();
+			} catch (IOException e) {
+				// shutting down anyway
+			}
+		}
+	}
+
+	private void accept(long now) throws IOException {
+		SocketChannel channel;
+		while ((channel = serverChannel.accept()) != null) {
+			channel.configureBlocking(false);
+			channel.socket().setTcpNoDelay(true);
+			final SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+			final RelayConnection connection = new RelayConnection(this, channel, key, now);
+			key.attach(connection);
+			connections.add(connection);
+		}
+	}
+
+	/** Sends heartbeats and drops clients that have gone quiet or never finished connecting */
+	private void tick(long now) {
+		final boolean heartbeat = now - lastHeartbeat >= HEARTBEAT_INTERVAL_MILLIS;
+		if (heartbeat) {
+			lastHeartbeat = now;
+		}
+		for (RelayConnection connection : connections) {
+			if (connection.getState() == RelayConnection.State.HTTP) {
+				if (now - connection.getOpenedAt() > CLOSE_TIMEOUT_SECONDS * 1000L) {
+					toClose.add(connection);
+				}
+			} else if (now - connection.getLastReceived() > (HEARTBEAT_TIMEOUT_SECONDS + CLOSE_TIMEOUT_SECONDS) * 1000L) {
+				toClose.add(connection);
+			} else if (heartbeat) {
+				connection.send(RelayPacket.HEARTBEAT);
+			}
+		}
+		relay.expireSuspended(now);
+		final Iterator<Long> expiries = handshakes.values().iterator();
+		while (expiries.hasNext()) {
+			if (expiries.next() < now) {
+				expiries.remove();
+			}
+		}
+		closePending();
+	}
+
+	void onRequest(RelayConnection connection, String path, Map<String, String> headers) {
+		final int query = path.indexOf('?');
+		if (query >= 0) {
+			path = path.substring(0, query);
+		}
+		if (path.equals(HANDSHAKE_PATH)) {
+			final String sessionId = Long.toHexString(nextSessionId());
+			handshakes.put(sessionId, System.currentTimeMillis() + CLOSE_TIMEOUT_SECONDS * 1000L);
+			connection.respond("200 OK", sessionId + ":" + HEARTBEAT_TIMEOUT_SECONDS + ":" + CLOSE_TIMEOUT_SECONDS + ":websocket");
+		} else if (path.startsWith(WEBSOCKET_PATH) && "websocket".equalsIgnoreCase(headers.get("upgrade")) && headers.containsKey("sec-websocket-key")) {
+			if (handshakes.remove(path.substring(WEBSOCKET_PATH.length())) == null) {
+				connection.respond("403 Forbidden", "Unknown session");
+				return;
+			}
+			final String key = headers.get("sec-websocket-key");
+			connection.upgrade(BaseEncoding.base64().encode(Hashing.sha1().hashString(key + WEBSOCKET_GUID, Charsets.US_ASCII).asBytes()));
+			relay.onConnect(connection);
+		} else {
+			connection.respond("404 Not Found", "Not Found");
+		}
+	}
+
+	/** Handles one socket.io packet, laid out as type:id:endpoint:data */
+	void onMessage(RelayConnection connection, String message) {
+		final String[] parts = message.split(":", 4);
+		final String type = parts[0];
+		if ("5".equals(type) && parts.length == 4) {
+			try {
+				final JSONObject event = new JSONObject(parts[3]);
+				final JSONArray args = event.optJSONArray("args");
+				relay.onEvent(connection, event.getString("name"), args == null ? new JSONArray() : args);
+			} catch (JSONException e) {
+				log.warning(connection + " sent a malformed event " + message);
+			}
+		} else if ("0".equals(type)) {
+			// the client also sends this when it replaces a connection it is resuming on, so it is only a drop. A client leaving for good says so first with swan_leave
+			toClose.add(connection);
+		}
+		// heartbeats only need to have been received, and nothing else is used by swan clients
+	}
+
+	void closeLater(RelayConnection connection) {
+		toClose.add(connection);
+	}
+
+	private void closePending() {
+		while (!toClose.isEmpty()) {
+			final List<RelayConnection> closing = Lists.newArrayList(toClose);
+			toClose.clear();
+			for (RelayConnection connection : closing) {
+				close(connection);
+			}
+		}
+	}
+
+	void close(RelayConnection connection) {
+		if (!connections.remove(connection)) {
+			return;
+		}
+		if (connection.closeChannel()) {
+			relay.onDisconnect(connection);
+		}
+	}
+
+	long nextSessionId() {
+		return nextSessionId++;
+	}
+
+}
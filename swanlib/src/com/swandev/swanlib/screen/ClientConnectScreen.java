@@ -4,6 +4,7 @@ import io.socket.IOAcknowledge;
 import io.socket.SocketIOException;
 
 import java.net.MalformedURLException;
+import java.net.SocketException;
 import java.util.List;
 
 import org.apache.commons.lang3.RandomStringUtils;
@@ -26,9 +27,12 @@ import com.badlogic.gdx.scenes.scene2d.ui.Skin;
 import com.badlogic.gdx.scenes.scene2d.ui.Table;
 import com.badlogic.gdx.scenes.scene2d.ui.TextButton;
 import com.badlogic.gdx.scenes.scene2d.ui.TextField;
+import com.badlogic.gdx.scenes.scene2d.ui.TextField.TextFieldListener;
 import com.badlogic.gdx.scenes.scene2d.utils.ChangeListener;
 import com.badlogic.gdx.utils.viewport.StretchViewport;
 import com.google.common.collect.ImmutableList;
+import com.swandev.swanlib.discovery.DiscoveredServer;
+import com.swandev.swanlib.discovery.ServerDiscovery;
 import com.swandev.swanlib.socket.CommonSocketIOEvents;
 import com.swandev.swanlib.socket.ConnectCallback;
 import com.swandev.swanlib.socket.EventCallback;
@@ -60,6 +64,10 @@ public abstract class ClientConnectScreen extends SwanScreen {
 	private final Label portLabel;
 	private final Label nicknameLabel;
 	private final Label announcementLabel;
+	private final Label discoveryLabel;
+	private final ServerDiscovery discovery = new ServerDiscovery();
+	/** Once the player types an address, discovery stops overwriting it */
+	private boolean addressTyped = false;
 
 	private Image backgroundImage;
 
@@ -95,6 +103,15 @@ public abstract class ClientConnectScreen extends SwanScreen {
 		final String defaultName = sampleNames.get(RandomUtils.nextInt(0, sampleNames.size()));
 		nicknameField = new TextField(defaultName + RandomStringUtils.randomNumeric(3), skin);
 		nicknameField.setMessageText("Blinky");
+		final TextFieldListener addressListener = new TextFieldListener() {
+
+			@Override
+			public void keyTyped(TextField textField, char c) {
+				addressTyped = true;
+			}
+		};
+		ipAddressField.setTextFieldListener(addressListener);
+		portField.setTextFieldListener(addressListener);
 
 		connectButton = new TextButton("Connect", skin);
 		connectButton.addListener(new ChangeListener() {
@@ -127,7 +144,7 @@ public abstract class ClientConnectScreen extends SwanScreen {
 			@Override
 			public void changed(ChangeEvent event, Actor actor) {
 				// this is a special event, emit directly to server
-				socketIO.getClient().emit(CommonSocketIOEvents.GAME_START);
+				socketIO.emit(CommonSocketIOEvents.GAME_START);
 			}
 
 		});
@@ -138,6 +155,7 @@ public abstract class ClientConnectScreen extends SwanScreen {
 		portLabel = new Label("Port", skin);
 		nicknameLabel = new Label("Nickname", skin);
 		announcementLabel = new Label("", skin);
+		discoveryLabel = new Label("Looking for servers...", skin);
 
 		waitingText = new Label("Waiting for host to select the game", skin);
 		waitingText.setVisible(false);
@@ -215,6 +233,9 @@ public abstract class ClientConnectScreen extends SwanScreen {
 		table.add(portField).prefWidth(FIELD_WIDTH);
 		table.row();
 
+		table.add(discoveryLabel).colspan(2);
+		table.row();
+
 		table.add(nicknameLabel).padRight(LABEL_FIELD_PADDING);
 		table.add(nicknameField).prefWidth(FIELD_WIDTH);
 		table.row();
@@ -269,9 +290,28 @@ public abstract class ClientConnectScreen extends SwanScreen {
 		}
 	}
 
+	/** Fills in the closest server found on the LAN, unless the player has typed one in or is already connected */
+	private void autofillAddress() {
+		if (ipAddressField.isDisabled()) {
+			return;
+		}
+		final List<DiscoveredServer> servers = discovery.getServers();
+		if (servers.isEmpty()) {
+			discoveryLabel.setText("Looking for servers...");
+			return;
+		}
+		final DiscoveredServer best = servers.get(0);
+		discoveryLabel.setText("Found " + best.getName() + " (" + Math.round(best.getRttInMs()) + " ms)" + (servers.size() > 1 ? " and " + (servers.size() - 1) + " more" : ""));
+		if (!addressTyped) {
+			ipAddressField.setText(best.getHost());
+			portField.setText(Integer.toString(best.getPort()));
+		}
+	}
+
 	@Override
 	public void render(float delta) {
 		super.render(delta);
+		autofillAddress();
 		stage.draw();
 		stage.act(delta);
 	}
@@ -286,16 +326,24 @@ public abstract class ClientConnectScreen extends SwanScreen {
 	public void show() {
 		super.show();
 		Gdx.input.setInputProcessor(stage);
+		try {
+			discovery.start();
+		} catch (SocketException e) {
+			discoveryLabel.setText("");
+			Gdx.app.error(CommonLogTags.SOCKET_IO, "Couldn't look for servers on the LAN", e);
+		}
 	}
 
 	@Override
 	public void hide() {
 		super.hide();
 		announcementLabel.setText("");
+		discovery.stop();
 	}
 
 	@Override
 	public void dispose() {
+		discovery.stop();
 		stage.dispose();
 		fontGenerator.dispose();
 	}
@@ -3,6 +3,7 @@ package com.swandev.swanlib.screen;
 import io.socket.IOAcknowledge;
 import io.socket.SocketIOException;
 
+import java.io.IOException;
 import java.net.MalformedURLException;
 
 import lombok.Setter;
@@ -10,6 +11,8 @@ import lombok.Setter;
 import com.badlogic.gdx.Game;
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.Screen;
+import com.swandev.swanlib.discovery.DiscoveryResponder;
+import com.swandev.swanlib.relay.SwanRelayServer;
 import com.swandev.swanlib.socket.CommonSocketIOEvents;
 import com.swandev.swanlib.socket.ConnectCallback;
 import com.swandev.swanlib.socket.EventCallback;
@@ -26,6 +29,11 @@ public abstract class ServerConnectScreen extends SwanScreen {
 	boolean connectFailed = false;
 	@Setter
 	boolean gameStarted = false;
+	/** Whether to run the relay in this process rather than relying on a separately started server */
+	@Setter
+	boolean embeddedRelay = true;
+	private SwanRelayServer relayServer;
+	private DiscoveryResponder discoveryResponder;
 
 	public ServerConnectScreen(Game game, SocketIOState socketIO) {
 		super(socketIO);
@@ -33,6 +41,12 @@ public abstract class ServerConnectScreen extends SwanScreen {
 	}
 
 	public void connect() {
+		if (embeddedRelay && relayServer == null) {
+			startRelay();
+		}
+		if (discoveryResponder == null) {
+			startDiscoveryResponder();
+		}
 		try {
 			getSocketIO().connect(serverAddress, SocketIOState.SCREEN_NAME, true, new ConnectCallback() {
 
@@ -53,6 +67,33 @@ public abstract class ServerConnectScreen extends SwanScreen {
 		}
 	}
 
+	private void startRelay() {
+		final SwanRelayServer server = new SwanRelayServer(port);
+		try {
+			server.start();
+			relayServer = server;
+			Gdx.app.log(CommonLogTags.SOCKET_IO, "Started the relay on port " + port);
+		} catch (IOException e) {
+			Gdx.app.log(CommonLogTags.SOCKET_IO, "Port " + port + " is taken, connecting to the server already running there");
+		}
+	}
+
+	/** Lets players find this screen's server without typing its address, whether the relay is embedded or not */
+	private void startDiscoveryResponder() {
+		final DiscoveryResponder responder = new DiscoveryResponder(port, getDiscoveryName());
+		try {
+			responder.start();
+			discoveryResponder = responder;
+		} catch (IOException e) {
+			Gdx.app.error(CommonLogTags.SOCKET_IO, "Players won't be able to find this server on the LAN", e);
+		}
+	}
+
+	/** What players see when choosing between servers */
+	protected String getDiscoveryName() {
+		return game.getClass().getSimpleName();
+	}
+
 	@Override
 	public void render(float delta) {
 		super.render(delta);
@@ -92,8 +133,14 @@ public abstract class ServerConnectScreen extends SwanScreen {
 
 	@Override
 	public void dispose() {
-		// TODO Auto-generated method stub
-
+		if (discoveryResponder != null) {
+			discoveryResponder.stop();
+			discoveryResponder = null;
+		}
+		if (relayServer != null) {
+			relayServer.stop();
+			relayServer = null;
+		}
 	}
 
 }
@@ -5,11 +5,13 @@ import io.socket.IOAcknowledge;
 import com.swandev.swanlib.socket.CommonSocketIOEvents;
 import com.swandev.swanlib.socket.EventCallback;
 import com.swandev.swanlib.socket.SocketIOState;
+import com.swandev.swanlib.socket.Subscription;
 
 /** Use this when you need to coordinate that everyone is ready */
 public abstract class SwanGameStartScreen extends SwanScreen {
 
 	boolean everyoneReady;
+	private Subscription everyoneReadySubscription;
 
 	public SwanGameStartScreen(SocketIOState socketIO) {
 		super(socketIO);
@@ -31,11 +33,13 @@ public abstract class SwanGameStartScreen extends SwanScreen {
 	public void show() {
 		super.show();
 		everyoneReady = false;
-		getSocketIO().on(CommonSocketIOEvents.EVERYONE_READY, new EventCallback() {
+		// registered here rather than in registerEvents, because doShow may need to know about it first
+		everyoneReadySubscription = registerEvent(CommonSocketIOEvents.EVERYONE_READY, new EventCallback() {
 
 			@Override
 			public void onEvent(IOAcknowledge ack, Object... args) {
-				getSocketIO().getEventEmitter().unregisterEvent(CommonSocketIOEvents.EVERYONE_READY);
+				// only the first one counts, and subclasses may be listening for it too
+				everyoneReadySubscription.cancel();
 				everyoneReady = true;
 				onEveryoneReady();
 			}
@@ -45,7 +49,7 @@ public abstract class SwanGameStartScreen extends SwanScreen {
 	}
 
 	private void ackReady() {
-		getSocketIO().getClient().emit(CommonSocketIOEvents.PLAYER_READY, getSocketIO().getNickname());
+		getSocketIO().emit(CommonSocketIOEvents.PLAYER_READY, getSocketIO().getNickname());
 	}
 
 	protected  abstract void onEveryoneReady();
@@ -9,15 +9,17 @@ import com.badlogic.gdx.Screen;
 import com.badlogic.gdx.graphics.GL20;
 import com.google.common.collect.Lists;
 import com.swandev.swanlib.socket.EventCallback;
-import com.swandev.swanlib.socket.EventEmitter;
+import com.swandev.swanlib.socket.EventEmitter.EventPriority;
 import com.swandev.swanlib.socket.SocketIOState;
+import com.swandev.swanlib.socket.Subscription;
 
 public abstract class SwanScreen implements Screen {
 
 	@Getter
 	private final SocketIOState socketIO;
 
-	private final List<String> events = Lists.newArrayList();
+	/** Everything registered while shown, cancelled when hidden */
+	private final List<Subscription> subscriptions = Lists.newArrayList();
 
 	public SwanScreen(SocketIOState socketIO) {
 		this.socketIO = socketIO;
@@ -42,22 +44,30 @@ public abstract class SwanScreen implements Screen {
 		registerEvents();
 	}
 
-	public void registerEvent(String event, EventCallback callback) {
-		getSocketIO().on(event, callback);
-		events.add(event);
+	/** Subscribes for as long as the screen is showing */
+	public Subscription registerEvent(String event, EventCallback callback) {
+		final Subscription subscription = getSocketIO().on(event, callback);
+		subscriptions.add(subscription);
+		return subscription;
+	}
+
+	public Subscription registerEvent(String event, EventPriority priority, EventCallback callback) {
+		getSocketIO().getEventEmitter().setPriority(event, priority);
+		return registerEvent(event, callback);
 	}
 
 	protected abstract void registerEvents();
 
-	private void unregisterEvents(EventEmitter eventEmitter) {
-		for (String event : events) {
-			eventEmitter.unregisterEvent(event);
+	private void unregisterEvents() {
+		for (Subscription subscription : subscriptions) {
+			subscription.cancel();
 		}
+		subscriptions.clear();
 	}
 
 	@Override
 	public void hide() {
-		unregisterEvents(socketIO.getEventEmitter());
+		unregisterEvents();
 	}
 
 	@Override
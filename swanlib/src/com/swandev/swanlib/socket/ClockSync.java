@@ -0,0 +1,189 @@
+package com.swandev.swanlib.socket;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import com.swandev.swanlib.codec.Codecs;
+import com.swandev.swanlib.codec.EventCodec;
+import com.swandev.swanlib.util.TimerWheel.Timeout;
+
+/**
+ * Measures the round trip time to each peer and how far its clock is from ours, the way NTP does, so a game can show players their latency and time things against the screen's clock.
+ *
+ * Every {@link #PING_INTERVAL_IN_MS} each player pings the screen through swan_emit, and the screen answers straight from the socket thread with when it got the ping and when it answered. From the four timestamps the player works out the round trip, leaving out the time the screen held on to the ping, and the offset between the two clocks. Pings also carry the player's latest figures, so the screen knows every player's latency without pinging anyone itself. Any swan server works, since it only forwards the pings.
+ *
+ * The round trip is smoothed. The offset is taken from whichever of the last {@link #SAMPLES} pings had the shortest round trip, because a quick round trip leaves the least room for the two legs to differ.
+ */
+public class ClockSync {
+
+	public static final long PING_INTERVAL_IN_MS = 2000;
+	static final int SAMPLES = 8;
+	/** New round trips are blended in with this weight */
+	static final double RTT_SMOOTHING = 0.25;
+
+	/** [sender, when it was sent, the sender's smoothed round trip, the sender's offset from the receiver], all in microseconds */
+	static final EventCodec PING = EventCodec.of(Codecs.STRING, Codecs.LONG, Codecs.LONG, Codecs.LONG);
+	/** [when the ping was sent, by the pinger's clock, when it arrived and when this was sent, by the answerer's] */
+	static final EventCodec PONG = EventCodec.of(Codecs.LONG, Codecs.LONG, Codecs.LONG);
+
+	private final SocketIOState socketIO;
+	private final Map<String, PeerClock> peers = new ConcurrentHashMap<String, PeerClock>();
+	private Timeout nextPing;
+
+	/** What we know about one peer's clock. Written on the socket thread and read on any */
+	public static class PeerClock {
+		private final long[] rtts = new long[SAMPLES];
+		private final long[] offsets = new long[SAMPLES];
+		private int samples;
+		private double rttMicros;
+		private long offsetMicros;
+
+		synchronized void addSample(long rttMicros, long offsetMicros) {
+			this.rttMicros = samples == 0 ? rttMicros : this.rttMicros + RTT_SMOOTHING * (rttMicros - this.rttMicros);
+			rtts[samples % SAMPLES] = rttMicros;
+			offsets[samples % SAMPLES] = offsetMicros;
+			samples++;
+			int best = 0;
+			for (int i = 1; i < Math.min(samples, SAMPLES); i++) {
+				if (rtts[i] < rtts[best]) {
+					best = i;
+				}
+			}
+			this.offsetMicros = offsets[best];
+		}
+
+		/** Figures the peer measured itself and sent along, already smoothed and filtered */
+		synchronized void setReported(long rttMicros, long offsetMicros) {
+			this.rttMicros = rttMicros;
+			this.offsetMicros = offsetMicros;
+			samples = Math.max(samples, 1);
+		}
+
+		public synchronized boolean isSynced() {
+			return samples > 0;
+		}
+
+		public synchronized double getRttInMs() {
+			return rttMicros / 1000;
+		}
+
+		/** Add this to our clock to get the peer's */
+		public synchronized long getOffsetInMicros() {
+			return offsetMicros;
+		}
+	}
+
+	ClockSync(SocketIOState socketIO) {
+		this.socketIO = socketIO;
+	}
+
+	/** This device's clock. Only meaningful compared to itself, or to a peer's through its offset */
+	public static long localTimeInMicros() {
+		return TimeUnit.NANOSECONDS.toMicros(System.nanoTime());
+	}
+
+	/** Null until the peer has been heard from */
+	public PeerClock getPeer(String nickname) {
+		return peers.get(nickname);
+	}
+
+	/** The round trip to the peer in milliseconds, or -1 if it isn't known yet */
+	public double getRttInMs(String nickname) {
+		final PeerClock peer = peers.get(nickname);
+		return peer == null || !peer.isSynced() ? -1 : peer.getRttInMs();
+	}
+
+	/** The screen's clock in milliseconds, which every client shares. Falls back to our own clock until the screen has answered a ping */
+	public long getSharedTimeInMs() {
+		return TimeUnit.MICROSECONDS.toMillis(localTimeInMicros() + getSharedOffsetInMicros());
+	}
+
+	private long getSharedOffsetInMicros() {
+		if (SocketIOState.SCREEN_NAME.equals(socketIO.getNickname())) {
+			return 0;
+		}
+		final PeerClock screen = peers.get(SocketIOState.SCREEN_NAME);
+		return screen == null ? 0 : screen.getOffsetInMicros();
+	}
+
+	/** Starts pinging the screen, unless we are the screen. Called on the render thread once we have a nickname */
+	void start() {
+		stop();
+		if (!SocketIOState.SCREEN_NAME.equals(socketIO.getNickname())) {
+			ping();
+		}
+	}
+
+	void stop() {
+		if (nextPing != null) {
+			nextPing.cancel();
+			nextPing = null;
+		}
+	}
+
+	/** Forgets everything measured, as the peers may be gone by the time we reconnect */
+	void clear() {
+		stop();
+		peers.clear();
+	}
+
+	void remove(String nickname) {
+		peers.remove(nickname);
+	}
+
+	private void ping() {
+		// a ping held back while resuming would come back with a meaningless round trip
+		if (socketIO.isConnected()) {
+			final PeerClock screen = peers.get(SocketIOState.SCREEN_NAME);
+			final long rtt = screen == null ? 0 : (long) (screen.getRttInMs() * 1000);
+			final long offset = screen == null ? 0 : -screen.getOffsetInMicros();
+			socketIO.emit(CommonSocketIOEvents.SWAN_EMIT, SocketIOState.SCREEN_NAME, CommonSocketIOEvents.SWAN_PING, PING.encode(new Object[] { socketIO.getNickname(), localTimeInMicros(), rtt, offset }));
+		}
+		nextPing = socketIO.getScheduler().schedule(new Runnable() {
+
+			@Override
+			public void run() {
+				ping();
+			}
+		}, PING_INTERVAL_IN_MS, TimeUnit.MILLISECONDS);
+	}
+
+	/** Called on the socket thread, so how long the answer takes doesn't depend on the frame rate */
+	void onPing(Object[] arguments) {
+		final long receivedAt = localTimeInMicros();
+		final Object[] args = PING.decode(arguments);
+		final String peer = (String) args[0];
+		if (peer == null || !socketIO.isConnected()) {
+			return;
+		}
+		if ((Long) args[2] > 0) {
+			peerClock(peer).setReported((Long) args[2], (Long) args[3]);
+		}
+		socketIO.emit(CommonSocketIOEvents.SWAN_EMIT, peer, CommonSocketIOEvents.SWAN_PONG, PONG.encode(new Object[] { args[1], receivedAt, localTimeInMicros() }));
+	}
+
+	/** Called on the socket thread. Pongs only ever come from the screen */
+	void onPong(Object[] arguments) {
+		final long receivedAt = localTimeInMicros();
+		final Object[] args = PONG.decode(arguments);
+		final long sentAt = (Long) args[0];
+		final long screenReceivedAt = (Long) args[1];
+		final long screenSentAt = (Long) args[2];
+		final long rtt = (receivedAt - sentAt) - (screenSentAt - screenReceivedAt);
+		final long offset = ((screenReceivedAt - sentAt) + (screenSentAt - receivedAt)) / 2;
+		if (rtt >= 0) {
+			peerClock(SocketIOState.SCREEN_NAME).addSample(rtt, offset);
+		}
+	}
+
+	private PeerClock peerClock(String nickname) {
+		PeerClock peer = peers.get(nickname);
+		if (peer == null) {
+			peer = new PeerClock();
+			peers.put(nickname, peer);
+		}
+		return peer;
+	}
+
+}
@@ -4,6 +4,8 @@ public class CommonSocketIOEvents {
 
 	public static final String SWAN_EMIT = "swan_emit";
 	public static final String SWAN_BROADCAST = "swan_broadcast";
+	public static final String SWAN_MULTICAST = "swan_multicast";
+	public static final String SWAN_EMIT_BATCH = "swan_emit_batch";
 	public static final String GET_NICKNAMES = "swan_get_nicknames";
 	public static final String NICKNAME_SET = "nickname_set";
 	public static final String SCREEN_SET = "screen_set";
@@ -14,5 +16,19 @@ public class CommonSocketIOEvents {
 	public static final String INVALID_NICKNAME = "invalid_nickname";
 	public static final String PLAYER_READY = "player_ready";
 	public static final String EVERYONE_READY = "everyone_ready";
+	public static final String CLIENT_DISCONNECT = "client_disconnect";
+	/** Sent between clients, through swan_broadcast and swan_emit, to say what they can decode */
+	public static final String SWAN_CAPABILITIES = "swan_capabilities";
+	/** Sent by the relay once a client is named, with the token it can resume that session with */
+	public static final String SWAN_SESSION = "swan_session";
+	/** Sent by a client after reconnecting, with its nickname, token and how many events it has received */
+	public static final String SWAN_RESUME = "swan_resume";
+	public static final String SWAN_RESUMED = "swan_resumed";
+	public static final String SWAN_RESUME_FAILED = "swan_resume_failed";
+	/** Sent by a client just before it disconnects for good, so the relay frees its place rather than holding it for a resume. A connection that closes without it is taken to have dropped */
+	public static final String SWAN_LEAVE = "swan_leave";
+	/** Sent by players to the screen, which answers with swan_pong, to measure latency and clock offset (see {@link ClockSync}) */
+	public static final String SWAN_PING = "swan_ping";
+	public static final String SWAN_PONG = "swan_pong";
 
 }
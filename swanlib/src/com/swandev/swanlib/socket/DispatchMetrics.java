@@ -0,0 +1,49 @@
+package com.swandev.swanlib.socket;
+
+import lombok.Getter;
+
+/** How far behind the render thread is in handling socket events. Updated on the render thread by {@link EventEmitter#flushEvents()} */
+@Getter
+public class DispatchMetrics {
+
+	/** Weight of the newest sample in the smoothed latency */
+	private static final double SMOOTHING = 0.05;
+
+	/** Events handed to callbacks since the last reset */
+	private long dispatched;
+	/** Events that were still waiting when the last flush ran out of budget */
+	private int queueDepth;
+	private int maxQueueDepth;
+	private int lastFlushDispatched;
+	/** Smoothed time from an event arriving on the socket to its callback being called */
+	private double meanLatencyMicros;
+	private double maxLatencyMicros;
+
+	void recordDispatch(long latencyNanos) {
+		final double latencyMicros = latencyNanos / 1e3;
+		meanLatencyMicros = dispatched == 0 ? latencyMicros : meanLatencyMicros + SMOOTHING * (latencyMicros - meanLatencyMicros);
+		maxLatencyMicros = Math.max(maxLatencyMicros, latencyMicros);
+		dispatched++;
+	}
+
+	void recordFlush(int flushDispatched, int depth) {
+		lastFlushDispatched = flushDispatched;
+		queueDepth = depth;
+		maxQueueDepth = Math.max(maxQueueDepth, depth);
+	}
+
+	public void reset() {
+		dispatched = 0;
+		queueDepth = 0;
+		maxQueueDepth = 0;
+		lastFlushDispatched = 0;
+		meanLatencyMicros = 0;
+		maxLatencyMicros = 0;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("dispatched=%d depth=%d (max %d) latency=%.0fus (max %.0fus)", dispatched, queueDepth, maxQueueDepth, meanLatencyMicros, maxLatencyMicros);
+	}
+
+}
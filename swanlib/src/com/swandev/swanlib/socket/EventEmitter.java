@@ -2,61 +2,404 @@ package com.swandev.swanlib.socket;
 
 import io.socket.IOAcknowledge;
 
-import java.util.List;
+import java.util.ArrayDeque;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
 import lombok.Data;
+import lombok.Getter;
 
-import com.google.common.collect.Lists;
+import com.google.common.base.Preconditions;
 import com.google.common.collect.Maps;
+import com.swandev.swanlib.codec.CodecException;
+import com.swandev.swanlib.codec.EventCodec;
+import com.swandev.swanlib.socket.EventQueue.EventSink;
+import com.swandev.swanlib.socket.EventQueue.OverflowPolicy;
 
+/**
+ * Queues events as they arrive on the network threads and dispatches them to their callbacks on the render thread.
+ *
+ * Each flush has a budget of time and events so that a burst of events is spread over several frames rather than causing a hitch. Events are moved out of the network queue into one backlog per {@link EventPriority} and dispatched highest priority first, oldest first within a priority. Whatever doesn't fit in the budget waits for the next frame.
+ *
+ * Events with an {@link EventCodec} are decoded as they are recorded, on the network thread, so their callbacks get typed arguments.
+ *
+ * Any number of callbacks can subscribe to an event, by its name or by a prefix such as {@code "jukebox_*"} ({@code "*"} on its own matches everything). They are called highest priority first, then in the order they subscribed. Subscribers are kept in copy-on-write arrays, so subscribing and cancelling are safe from any thread, even from inside a callback, and dispatching allocates nothing. A subscriber can also name an executor, in which case it is handed each event straight from the network thread instead of waiting for the render thread.
+ *
+ * Other threads can also hand tasks to the render thread with {@link #post(Runnable)}. Posted tasks run at the start of the next flush, before any events, and are never dropped or coalesced by the overflow policy.
+ */
 public class EventEmitter {
 
-	Map<String, EventCallback> callbacks = Maps.newHashMap();
-	List<SocketEvent> events = Lists.newArrayList();
+	public static final long DEFAULT_FLUSH_BUDGET_IN_MS = 4;
 
-	private void processEvent(SocketEvent event) {
-		final EventCallback callback = callbacks.get(event.getEvent());
-		if (callback != null) {
-			callback.onEvent(event.getAck(), event.getArguments());
+	public enum EventPriority {
+		HIGH, NORMAL, LOW
+	}
+
+	private static final Subscriber[] NONE = new Subscriber[0];
+
+	/** Subscribers to one event name, highest priority first. Replaced, never changed, so dispatch can walk them without locking */
+	private final Map<String, Subscriber[]> subscribers = new ConcurrentHashMap<String, Subscriber[]>();
+	/** Prefix subscribers, in the same order */
+	private volatile Subscriber[] prefixSubscribers = NONE;
+	private final Object subscribing = new Object();
+
+	private final Map<String, EventPriority> priorities = Maps.newHashMap();
+
+	/** Read by the network threads */
+	private final Map<String, EventCodec> codecs = new ConcurrentHashMap<String, EventCodec>();
+
+	@Getter
+	private final EventQueue events;
+
+	@Getter
+	private final DispatchMetrics metrics = new DispatchMetrics();
+
+	private final Queue<Runnable> posted = new ConcurrentLinkedQueue<Runnable>();
+
+	/** Runs tasks on the render thread, through {@link #post(Runnable)} */
+	@Getter
+	private final Executor renderThreadExecutor = new Executor() {
+
+		@Override
+		public void execute(Runnable task) {
+			post(task);
+		}
+	};
+
+	private int maxEventsPerFlush = Integer.MAX_VALUE;
+	private long maxNanosPerFlush = TimeUnit.MILLISECONDS.toNanos(DEFAULT_FLUSH_BUDGET_IN_MS);
+
+	// everything below is only used by the render thread
+	private final ArrayDeque<SocketEvent>[] backlogs;
+	private final ArrayDeque<SocketEvent> pool = new ArrayDeque<SocketEvent>();
+	private int backlogSize;
+	private final SocketEvent draining = new SocketEvent();
+	private final EventSink toBacklog = new EventSink() {
+
+		@Override
+		public void onEvent(SocketEvent event) {
+			SocketEvent pooled = pool.poll();
+			if (pooled == null) {
+				pooled = new SocketEvent();
+			}
+			pooled.set(event.getEvent(), event.getAck(), event.getArguments(), event.getReceivedAt());
+			backlogs[getPriority(event.getEvent()).ordinal()].add(pooled);
+			backlogSize++;
 		}
+	};
+
+	public EventEmitter() {
+		this(EventQueue.DEFAULT_CAPACITY, EventQueue.DEFAULT_OVERFLOW_POLICY);
 	}
 
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public EventEmitter(int queueCapacity, OverflowPolicy overflowPolicy) {
+		events = new EventQueue(queueCapacity, overflowPolicy);
+		backlogs = new ArrayDeque[EventPriority.values().length];
+		for (int i = 0; i < backlogs.length; i++) {
+			backlogs[i] = new ArrayDeque<SocketEvent>();
+		}
+	}
+
+	private class Subscriber implements Subscription {
+		final String name;
+		/** Null when subscribed to an exact name */
+		final String prefix;
+		final int priority;
+		final Executor executor;
+		final EventCallback callback;
+		volatile boolean active = true;
+
+		Subscriber(String pattern, int priority, Executor executor, EventCallback callback) {
+			this.name = pattern;
+			this.prefix = pattern.endsWith("*") ? pattern.substring(0, pattern.length() - 1) : null;
+			this.priority = priority;
+			this.executor = executor;
+			this.callback = callback;
+		}
+
+		boolean matches(String event) {
+			return prefix == null || event.startsWith(prefix);
+		}
+
+		@Override
+		public void cancel() {
+			remove(this);
+		}
+
+		@Override
+		public boolean isActive() {
+			return active;
+		}
+	}
+
+	/** Calls the subscribers that run on the render thread, or hands the event to the ones with their own executor */
+	private void dispatch(final String event, final IOAcknowledge ack, final Object[] arguments, boolean onRenderThread) {
+		final Subscriber[] named = subscribers.get(event);
+		final int namedCount = named == null ? 0 : named.length;
+		final Subscriber[] prefixed = prefixSubscribers;
+		int i = 0;
+		int j = 0;
+		while (true) {
+			while (j < prefixed.length && !prefixed[j].matches(event)) {
+				j++;
+			}
+			final Subscriber next;
+			if (i < namedCount && (j == prefixed.length || named[i].priority >= prefixed[j].priority)) {
+				next = named[i++];
+			} else if (j < prefixed.length) {
+				next = prefixed[j++];
+			} else {
+				return;
+			}
+			if (!next.active || (next.executor == null) != onRenderThread) {
+				continue;
+			}
+			if (onRenderThread) {
+				next.callback.onEvent(ack, arguments);
+			} else {
+				final Subscriber subscriber = next;
+				subscriber.executor.execute(new Runnable() {
+
+					@Override
+					public void run() {
+						if (subscriber.active) {
+							subscriber.callback.onEvent(ack, arguments);
+						}
+					}
+				});
+			}
+		}
+	}
+
+	private void processEvent(SocketEvent event) {
+		dispatch(event.getEvent(), event.getAck(), event.getArguments(), true);
+	}
+
+	/** Decodes the event if it has a codec and queues it for the render thread. A {@link com.swandev.swanlib.codec.CodecException} means it couldn't be decoded and was dropped */
 	void recordEvent(String event, IOAcknowledge ack, Object... arguments) {
-		final SocketEvent socketEvent = new SocketEvent(event, ack, arguments);
-		synchronized (this) {
-			events.add(socketEvent);
+		if (event.endsWith(EventCodec.BINARY_SUFFIX)) {
+			final String name = event.substring(0, event.length() - EventCodec.BINARY_SUFFIX.length());
+			final EventCodec codec = codecs.get(name);
+			if (codec == null) {
+				throw new CodecException("There is no codec for " + name);
+			}
+			put(name, ack, codec.decodeBinary(arguments));
+			return;
+		}
+		final EventCodec codec = codecs.get(event);
+		put(event, ack, codec == null ? arguments : codec.decode(arguments));
+	}
+
+	private void put(String event, IOAcknowledge ack, Object[] arguments) {
+		dispatch(event, ack, arguments, false);
+		events.put(event, ack, arguments);
+	}
+
+	/** Runs the task on the render thread during the next flush. Safe to call from any thread */
+	public void post(Runnable task) {
+		posted.add(task);
+	}
+
+	/** Subscribes to an event, or to every event starting with a prefix when the pattern ends in "*". The callback runs on the render thread */
+	public Subscription on(String pattern, EventCallback callback) {
+		return on(pattern, 0, null, callback);
+	}
+
+	/**
+	 * @param priority
+	 *            subscribers with a higher priority are called first
+	 * @param executor
+	 *            where the callback runs, straight from the network thread, or null for the render thread
+	 */
+	public Subscription on(String pattern, int priority, Executor executor, EventCallback callback) {
+		Preconditions.checkArgument(pattern.indexOf('*') < 0 || pattern.indexOf('*') == pattern.length() - 1, "Only a trailing * is supported in %s", pattern);
+		Preconditions.checkNotNull(callback);
+		final Subscriber subscriber = new Subscriber(pattern, priority, executor, callback);
+		synchronized (subscribing) {
+			if (subscriber.prefix != null) {
+				prefixSubscribers = insert(prefixSubscribers, subscriber);
+			} else {
+				final Subscriber[] named = subscribers.get(pattern);
+				subscribers.put(pattern, insert(named == null ? NONE : named, subscriber));
+			}
+		}
+		return subscriber;
+	}
+
+	/** After any subscribers of the same priority */
+	private static Subscriber[] insert(Subscriber[] current, Subscriber subscriber) {
+		int index = 0;
+		while (index < current.length && current[index].priority >= subscriber.priority) {
+			index++;
+		}
+		final Subscriber[] updated = new Subscriber[current.length + 1];
+		System.arraycopy(current, 0, updated, 0, index);
+		updated[index] = subscriber;
+		System.arraycopy(current, index, updated, index + 1, current.length - index);
+		return updated;
+	}
+
+	private void remove(Subscriber subscriber) {
+		synchronized (subscribing) {
+			if (!subscriber.active) {
+				return;
+			}
+			subscriber.active = false;
+			if (subscriber.prefix != null) {
+				prefixSubscribers = without(prefixSubscribers, subscriber);
+			} else {
+				final Subscriber[] remaining = without(subscribers.get(subscriber.name), subscriber);
+				if (remaining.length == 0) {
+					subscribers.remove(subscriber.name);
+				} else {
+					subscribers.put(subscriber.name, remaining);
+				}
+			}
 		}
 	}
 
-	public void on(String event, EventCallback callback) {
-		callbacks.put(event, callback);
+	private static Subscriber[] without(Subscriber[] current, Subscriber subscriber) {
+		for (int i = 0; i < current.length; i++) {
+			if (current[i] == subscriber) {
+				final Subscriber[] updated = new Subscriber[current.length - 1];
+				System.arraycopy(current, 0, updated, 0, i);
+				System.arraycopy(current, i + 1, updated, i, current.length - i - 1);
+				return updated;
+			}
+		}
+		return current;
 	}
 
+	/** Cancels every subscription */
 	public void clear() {
-		callbacks.clear();
+		synchronized (subscribing) {
+			for (Subscriber[] named : subscribers.values()) {
+				deactivate(named);
+			}
+			deactivate(prefixSubscribers);
+			subscribers.clear();
+			prefixSubscribers = NONE;
+		}
 	}
 
+	/** Cancels every subscription to exactly this event name */
 	public void unregisterEvent(String event) {
-		callbacks.remove(event);
+		synchronized (subscribing) {
+			final Subscriber[] named = subscribers.remove(event);
+			if (named != null) {
+				deactivate(named);
+			}
+		}
+	}
+
+	private static void deactivate(Subscriber[] subscribers) {
+		for (Subscriber subscriber : subscribers) {
+			subscriber.active = false;
+		}
+	}
+
+	/** Events are NORMAL priority unless set otherwise. Only events arriving after this call are affected */
+	public void setPriority(String event, EventPriority priority) {
+		priorities.put(event, priority);
 	}
 
+	/** Sets the layout of the event's arguments, used both to decode it here and to encode it when it is sent. Unlike callbacks, codecs stay registered across screens and reconnects */
+	public void setCodec(String event, EventCodec codec) {
+		codecs.put(event, codec);
+	}
+
+	/** Null if the event's arguments are passed through as they are */
+	public EventCodec getCodec(String event) {
+		return codecs.get(event);
+	}
+
+	public EventPriority getPriority(String event) {
+		final EventPriority priority = priorities.get(event);
+		return priority == null ? EventPriority.NORMAL : priority;
+	}
+
+	/**
+	 * Limits how much work each {@link #flushEvents()} does. At least one waiting event is always dispatched, so the queue keeps moving however small the budget.
+	 *
+	 * @param maxEvents
+	 *            the most events to dispatch per flush
+	 * @param maxMillis
+	 *            roughly how long to spend dispatching per flush
+	 */
+	public void setFlushBudget(int maxEvents, long maxMillis) {
+		maxEventsPerFlush = maxEvents;
+		maxNanosPerFlush = TimeUnit.MILLISECONDS.toNanos(maxMillis);
+	}
+
+	/** An event as it arrived from the server. Instances are pooled, so don't hold on to one outside its callback */
 	@Data
 	public static class SocketEvent {
-		final String event;
-		final IOAcknowledge ack;
-		final Object[] arguments;
+		String event;
+		IOAcknowledge ack;
+		Object[] arguments;
+		/** When the event came off the socket, from {@link System#nanoTime()} */
+		long receivedAt;
+
+		public SocketEvent() {
+		}
+
+		public SocketEvent(String event, IOAcknowledge ack, Object[] arguments, long receivedAt) {
+			set(event, ack, arguments, receivedAt);
+		}
+
+		void set(String event, IOAcknowledge ack, Object[] arguments, long receivedAt) {
+			this.event = event;
+			this.ack = ack;
+			this.arguments = arguments;
+			this.receivedAt = receivedAt;
+		}
 	}
 
+	/** Dispatches waiting events until they run out or the flush budget is spent. Call this once a frame on the render thread */
 	public void flushEvents() {
-		final List<SocketEvent> eventsToFlush;
-		synchronized (this) {
-			eventsToFlush = Lists.newArrayList(events);
-			events.clear();
+		final long start = System.nanoTime();
+		runPosted();
+		// only take as many from the network queue as it can hold, so a render thread that is falling behind still pushes back on the network threads
+		events.drain(draining, toBacklog, Math.max(0, events.getCapacity() - backlogSize));
+		int dispatched = 0;
+		while (backlogSize > 0 && dispatched < maxEventsPerFlush && (dispatched == 0 || System.nanoTime() - start < maxNanosPerFlush)) {
+			final SocketEvent event = nextEvent();
+			metrics.recordDispatch(System.nanoTime() - event.getReceivedAt());
+			try {
+				processEvent(event);
+			} finally {
+				event.set(null, null, null, 0);
+				pool.add(event);
+			}
+			dispatched++;
 		}
-		for (SocketEvent event : eventsToFlush) {
-			processEvent(event);
+		metrics.recordFlush(dispatched, backlogSize + events.size());
+	}
+
+	/** Runs the tasks posted before this flush started. Tasks they post in turn wait for the next flush */
+	private void runPosted() {
+		for (int remaining = posted.size(); remaining > 0; remaining--) {
+			final Runnable task = posted.poll();
+			if (task == null) {
+				return;
+			}
+			task.run();
+		}
+	}
+
+	private SocketEvent nextEvent() {
+		for (ArrayDeque<SocketEvent> backlog : backlogs) {
+			if (!backlog.isEmpty()) {
+				backlogSize--;
+				return backlog.poll();
+			}
 		}
+		throw new IllegalStateException("The backlog is empty");
 	}
 
 }
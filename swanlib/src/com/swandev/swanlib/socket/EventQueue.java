@@ -0,0 +1,219 @@
+package com.swandev.swanlib.socket;
+
+import io.socket.IOAcknowledge;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+import com.google.common.base.Preconditions;
+import com.swandev.swanlib.socket.EventEmitter.SocketEvent;
+
+/**
+ * A bounded queue of socket events that any number of network threads add to and the render thread drains, without locks.
+ *
+ * It is a ring of preallocated {@link SocketEvent}s, each with a sequence number saying whether the slot is free for the next producer or holds an event for the consumer (after Dmitry Vyukov's bounded MPMC queue). Producers and the consumer claim positions by CAS, so nothing is allocated to add an event and draining an empty queue is just two volatile reads.
+ *
+ * What happens when the ring is full is up to the {@link OverflowPolicy}.
+ */
+public class EventQueue {
+
+	public static final int DEFAULT_CAPACITY = 1024;
+	/** Never makes the network thread wait, so a paused app can't stall heartbeats and lose its connection */
+	public static final OverflowPolicy DEFAULT_OVERFLOW_POLICY = OverflowPolicy.COALESCE;
+
+	private static final long BLOCK_PARK_NANOS = 100000;
+
+	public enum OverflowPolicy {
+		/** Throw away the oldest queued event to make room */
+		DROP_OLDEST,
+		/** Make the network thread wait until the render thread has drained some events. Only ask for this when the render thread never stops draining, since a wait holds up the socket's heartbeats too */
+		BLOCK,
+		/** Keep only the newest overflowing event of each name until the render thread catches up. Events of the same name stay in order, events of different names may not */
+		COALESCE
+	}
+
+	private final SocketEvent[] slots;
+	private final AtomicLongArray sequences;
+	private final int mask;
+	private final AtomicLong head = new AtomicLong();
+	private final AtomicLong tail = new AtomicLong();
+	private final OverflowPolicy overflowPolicy;
+	/** A ConcurrentMap, not just a Map, for the two argument remove, which Map only gained in Java 8 */
+	private final ConcurrentMap<String, CoalescedEvent> coalesced = new ConcurrentHashMap<String, CoalescedEvent>();
+	private final AtomicLong dropped = new AtomicLong();
+
+	public EventQueue() {
+		this(DEFAULT_CAPACITY, DEFAULT_OVERFLOW_POLICY);
+	}
+
+	/**
+	 * @param capacity
+	 *            a power of two
+	 */
+	public EventQueue(int capacity, OverflowPolicy overflowPolicy) {
+		Preconditions.checkArgument(capacity > 0 && Integer.bitCount(capacity) == 1, "The capacity must be a power of two");
+		this.overflowPolicy = overflowPolicy;
+		slots = new SocketEvent[capacity];
+		sequences = new AtomicLongArray(capacity);
+		for (int i = 0; i < capacity; i++) {
+			slots[i] = new SocketEvent();
+			sequences.set(i, i);
+		}
+		mask = capacity - 1;
+	}
+
+	/** Adds an event, applying the overflow policy if the queue is full */
+	public void put(String event, IOAcknowledge ack, Object[] arguments) {
+		final long receivedAt = System.nanoTime();
+		if (overflowPolicy == OverflowPolicy.COALESCE && !coalesced.isEmpty() && coalesced.containsKey(event)) {
+			// an older event of this name is already waiting outside the ring, so this one must replace it to stay in order
+			coalesce(event, ack, arguments, receivedAt);
+			return;
+		}
+		while (!offer(event, ack, arguments, receivedAt)) {
+			switch (overflowPolicy) {
+			case DROP_OLDEST:
+				if (poll(null)) {
+					dropped.incrementAndGet();
+				}
+				break;
+			case BLOCK:
+				LockSupport.parkNanos(BLOCK_PARK_NANOS);
+				break;
+			case COALESCE:
+				coalesce(event, ack, arguments, receivedAt);
+				return;
+			}
+		}
+	}
+
+	private void coalesce(String event, IOAcknowledge ack, Object[] arguments, long receivedAt) {
+		if (coalesced.put(event, new CoalescedEvent(new SocketEvent(event, ack, arguments, receivedAt), tail.get())) != null) {
+			dropped.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Adds an event if there is room
+	 *
+	 * @param receivedAt
+	 *            when the event arrived, from {@link System#nanoTime()}
+	 */
+	public boolean offer(String event, IOAcknowledge ack, Object[] arguments, long receivedAt) {
+		long position = tail.get();
+		while (true) {
+			final int index = (int) position & mask;
+			final long difference = sequences.get(index) - position;
+			if (difference == 0) {
+				if (tail.compareAndSet(position, position + 1)) {
+					slots[index].set(event, ack, arguments, receivedAt);
+					sequences.set(index, position + 1);
+					return true;
+				}
+				position = tail.get();
+			} else if (difference < 0) {
+				// the slot still holds an event from one lap ago
+				return false;
+			} else {
+				// another producer got here first
+				position = tail.get();
+			}
+		}
+	}
+
+	/**
+	 * Removes the oldest event, copying it into the given event so the slot can be reused straight away.
+	 *
+	 * @param into
+	 *            where to copy the event, or null to discard it
+	 * @return false if the queue was empty
+	 */
+	public boolean poll(SocketEvent into) {
+		long position = head.get();
+		while (true) {
+			final int index = (int) position & mask;
+			final long difference = sequences.get(index) - (position + 1);
+			if (difference == 0) {
+				if (head.compareAndSet(position, position + 1)) {
+					final SocketEvent slot = slots[index];
+					if (into != null) {
+						into.set(slot.getEvent(), slot.getAck(), slot.getArguments(), slot.getReceivedAt());
+					}
+					slot.set(null, null, null, 0);
+					sequences.set(index, position + mask + 1);
+					return true;
+				}
+				position = head.get();
+			} else if (difference < 0) {
+				return false;
+			} else {
+				position = head.get();
+			}
+		}
+	}
+
+	/** Hands every event queued when this was called to the sink, oldest first, followed by any coalesced overflow whose turn has come */
+	public void drain(SocketEvent scratch, EventSink sink) {
+		drain(scratch, sink, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Like {@link #drain(SocketEvent, EventSink)}, but stops after handing over at most maxEvents events
+	 *
+	 * @return how many events were handed over
+	 */
+	public int drain(SocketEvent scratch, EventSink sink, int maxEvents) {
+		int drained = 0;
+		// events added while draining wait for the next drain, so a busy network thread can't keep the render thread here
+		final long end = tail.get();
+		while (drained < maxEvents && head.get() < end && poll(scratch)) {
+			sink.onEvent(scratch);
+			drained++;
+		}
+		if (drained < maxEvents && !coalesced.isEmpty()) {
+			for (Map.Entry<String, CoalescedEvent> entry : coalesced.entrySet()) {
+				final CoalescedEvent coalescedEvent = entry.getValue();
+				// wait until everything that was in the ring before it has been handled, and skip it if a newer one just replaced it
+				if (drained < maxEvents && head.get() >= coalescedEvent.after && coalesced.remove(entry.getKey(), coalescedEvent)) {
+					sink.onEvent(coalescedEvent.event);
+					drained++;
+				}
+			}
+		}
+		scratch.set(null, null, null, 0);
+		return drained;
+	}
+
+	public int size() {
+		return (int) Math.max(0, tail.get() - head.get()) + coalesced.size();
+	}
+
+	public int getCapacity() {
+		return slots.length;
+	}
+
+	/** How many events were thrown away or replaced because the queue was full */
+	public long getDropped() {
+		return dropped.get();
+	}
+
+	public interface EventSink {
+		void onEvent(SocketEvent event);
+	}
+
+	private static class CoalescedEvent {
+		final SocketEvent event;
+		/** The ring position this event was added after */
+		final long after;
+
+		CoalescedEvent(SocketEvent event, long after) {
+			this.event = event;
+			this.after = after;
+		}
+	}
+
+}
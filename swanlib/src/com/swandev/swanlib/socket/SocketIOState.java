@@ -1,37 +1,57 @@
 package com.swandev.swanlib.socket;
 
 import io.socket.IOAcknowledge;
-import io.socket.IOCallback;
-import io.socket.SocketIO;
 import io.socket.SocketIOException;
 
 import java.net.MalformedURLException;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import lombok.Getter;
 import lombok.Setter;
 
-import org.json.JSONArray;
-import org.json.JSONObject;
-
 import com.badlogic.gdx.Gdx;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.swandev.swanlib.codec.CodecException;
+import com.swandev.swanlib.codec.Codecs;
+import com.swandev.swanlib.codec.EventCodec;
+import com.swandev.swanlib.socket.EventQueue.OverflowPolicy;
 import com.swandev.swanlib.util.CommonLogTags;
 import com.swandev.swanlib.util.SwanUtil;
+import com.swandev.swanlib.util.TimerWheel;
+import com.swandev.swanlib.util.TimerWheel.Timeout;
 
 public class SocketIOState {
 
+	/** The current connection, replaced whenever a dropped one is resumed */
 	@Getter
-	SocketIO client;
+	volatile SwanTransport transport;
 
 	@Getter
 	final EventEmitter eventEmitter;
 
+	/** Runs delayed tasks on the render thread, as part of {@link #flushEvents()}. Shared by every screen, so a game never needs a thread of its own for timeouts */
+	@Getter
+	final TimerWheel scheduler;
+
+	/** Latency and clock offset to the other clients, kept up to date in the background once connected */
+	@Getter
+	final ClockSync clock = new ClockSync(this);
+
 	@Getter
 	private String nickname;
 
 	public void setNickname(String nickname) {
-		client.emit(CommonSocketIOEvents.NICKNAME_SET, nickname);
+		emit(CommonSocketIOEvents.NICKNAME_SET, nickname);
 		this.nickname = nickname;
 	}
 
@@ -43,12 +63,34 @@ public class SocketIOState {
 	private boolean playerListReady;
 
 	public SocketIOState() {
-		this.eventEmitter = new EventEmitter();
+		this(new EventEmitter());
+	}
+
+	/**
+	 * @param eventQueueCapacity
+	 *            how many events can wait for the render thread, a power of two
+	 * @param overflowPolicy
+	 *            what the network thread does when that many are already waiting
+	 */
+	public SocketIOState(int eventQueueCapacity, OverflowPolicy overflowPolicy) {
+		this(new EventEmitter(eventQueueCapacity, overflowPolicy));
+	}
+
+	private SocketIOState(EventEmitter eventEmitter) {
+		this.eventEmitter = eventEmitter;
+		this.scheduler = new TimerWheel(eventEmitter.getRenderThreadExecutor());
+		setCodec(CommonSocketIOEvents.GET_NICKNAMES, EventCodec.of(Codecs.STRING_LIST));
+		subscribeNicknames();
+	}
+
+	/** Kept up to date whichever screen is showing */
+	private void subscribeNicknames() {
 		on(CommonSocketIOEvents.GET_NICKNAMES, new EventCallback() {
 
+			@SuppressWarnings("unchecked")
 			@Override
 			public void onEvent(IOAcknowledge ack, Object... args) {
-				nicknames = SwanUtil.parseJsonList((JSONArray) args[0]);
+				nicknames = (List<String>) args[0];
 				playerListReady = true;
 			}
 		});
@@ -56,20 +98,130 @@ public class SocketIOState {
 
 	public static final String SCREEN_NAME = "Screen";
 
-	public void on(String eventName, EventCallback callback) {
-		eventEmitter.on(eventName, callback);
+	/** Announced by clients that can decode {@link EventCodec#BINARY_SUFFIX} events */
+	public static final String CAPABILITY_BINARY = "binary";
+
+	/** [nickname, capabilities, whether the receiver should answer with theirs] */
+	private static final EventCodec CAPABILITIES = EventCodec.of(Codecs.STRING, Codecs.STRING_LIST, Codecs.BOOLEAN);
+
+	/** Subscribes to an event, alongside any other subscribers, on the render thread. See {@link EventEmitter#on(String, EventCallback)} for prefix patterns */
+	public Subscription on(String pattern, EventCallback callback) {
+		return eventEmitter.on(pattern, callback);
+	}
+
+	/** See {@link EventEmitter#on(String, int, java.util.concurrent.Executor, EventCallback)} */
+	public Subscription on(String pattern, int priority, Executor executor, EventCallback callback) {
+		return eventEmitter.on(pattern, priority, executor, callback);
+	}
+
+	/** Sets the layout of an event's arguments. Both the sender and the receivers need to set it, and it stays set for as long as this state is around */
+	public void setCodec(String eventName, EventCodec codec) {
+		eventEmitter.setCodec(eventName, codec);
 	}
 
 	@Getter
 	@Setter
 	private boolean host = false;
 
+	/**
+	 * While batching, swan emits, multicasts and broadcasts wait in an outbox and go to the server as one swan_emit_batch packet when {@link #flushEvents()} is next called, in the order they were made. The server needs to understand swan_emit_batch.
+	 */
+	@Getter
+	@Setter
+	private boolean batching;
+
+	/**
+	 * Whether events with a codec go out in their compact binary form. Clients tell each other what they can decode as they join, and an event only goes out as binary when every addressee has said it can decode it, so clients that predate this, or have it turned off, keep getting JSON. A broadcast also needs the last {@link #requestNicknames() nicknames} to all be known. Set it before connecting.
+	 */
+	@Getter
+	@Setter
+	private boolean binaryPayloads;
+
+	/** The clients that can decode binary events. Kept up to date by the socket thread */
+	private final Set<String> binaryPeers = Sets.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+	/** Batched emits, each as [addressee or list of addressees or null for everyone, event, args]. Plain arrays and lists, because the client only serializes those, not org.json types */
+	private final Queue<Object[]> outbox = new ConcurrentLinkedQueue<Object[]>();
+
+	/** How long to keep trying to resume a dropped connection before giving up on it */
+	public static final long RESUME_TIMEOUT_IN_MS = 10000;
+	/** Long enough for a reconnect and resume to make it there and back over Wi-Fi */
+	static final long FIRST_RETRY_IN_MS = 250;
+	static final long MAX_RETRY_IN_MS = 2000;
+
+	private SwanTransport.Factory transports;
+	private boolean isScreen;
+	private ConnectCallback connectCallback;
+	/** Handed out by the relay once we are named. Null if the server can't resume sessions */
+	private volatile String resumeToken;
+	/** Every event received since connecting, across resumed connections */
+	private final AtomicLong received = new AtomicLong();
+	/**
+	 * Whether a dropped connection is being replaced. Callbacks stay registered in the meantime, and emits are held back until the relay has resumed the session, after replaying whatever was missed. Only changed on the render thread.
+	 */
+	private volatile boolean resuming;
+	private long resumeStartedAt;
+	private int resumeAttempts;
+	private Timeout retry;
+	/** The connection a resume was last sent on, which the relay may have resumed before we hear back. Set by the socket thread */
+	private volatile SwanTransport resumeSentOn;
+	/** Emits made while resuming, as [event, args] */
+	private final Queue<Object[]> heldEmits = new ConcurrentLinkedQueue<Object[]>();
+
+	/** Whether events can be sent right now. False while a dropped connection is being resumed, though anything sent then still goes once it is */
 	public boolean isConnected() {
-		return getClient() != null && getClient().isConnected();
+		final SwanTransport current = transport;
+		return !resuming && current != null && current.isConnected();
+	}
+
+	/** Sends a plain socket.io event to the server, or holds it until the connection has been resumed */
+	public void emit(String event, Object... args) {
+		final SwanTransport current = transport;
+		if (resuming) {
+			heldEmits.add(new Object[] { event, args });
+		} else if (current != null) {
+			current.emit(event, args);
+		}
+	}
+
+	private boolean sendsBinary(String event, Collection<String> addressees) {
+		return binaryPayloads && eventEmitter.getCodec(event) != null && binaryPeers.containsAll(addressees);
+	}
+
+	private Object[] encode(String event, boolean binary, Object[] args) {
+		final EventCodec codec = eventEmitter.getCodec(event);
+		if (codec == null) {
+			return args;
+		}
+		return binary ? codec.encodeBinary(args) : codec.encode(args);
+	}
+
+	private static String wireName(String event, boolean binary) {
+		return binary ? event + EventCodec.BINARY_SUFFIX : event;
 	}
 
 	public void swanEmit(String event, String addressee, Object... args) {
-		client.emit(CommonSocketIOEvents.SWAN_EMIT, addressee, event, args);
+		final boolean binary = sendsBinary(event, Collections.singleton(addressee));
+		args = encode(event, binary, args);
+		event = wireName(event, binary);
+		if (batching) {
+			outbox.add(batchEntry(addressee, event, args));
+		} else {
+			emit(CommonSocketIOEvents.SWAN_EMIT, addressee, event, args);
+		}
+	}
+
+	/** Sends the same event to each of the addressees. The server fans it out, so it is one packet however many there are */
+	public void swanMulticast(String event, Collection<String> addressees, Object... args) {
+		final List<String> nicknames = Lists.newArrayList(addressees);
+		final boolean binary = sendsBinary(event, nicknames);
+		args = encode(event, binary, args);
+		event = wireName(event, binary);
+		if (batching) {
+			outbox.add(batchEntry(nicknames, event, args));
+		} else {
+			emit(CommonSocketIOEvents.SWAN_MULTICAST, nicknames, event, args);
+		}
 	}
 
 	public void emitToScreen(String event, Object... args) {
@@ -77,65 +229,341 @@ public class SocketIOState {
 	}
 
 	public void swanBroadcast(String event, Object... args) {
-		client.emit(CommonSocketIOEvents.SWAN_BROADCAST, event, args);
+		final boolean binary = playerListReady && binaryPeers.contains(SCREEN_NAME) && sendsBinary(event, nicknames);
+		args = encode(event, binary, args);
+		event = wireName(event, binary);
+		if (batching) {
+			outbox.add(batchEntry(null, event, args));
+		} else {
+			emit(CommonSocketIOEvents.SWAN_BROADCAST, event, args);
+		}
+	}
+
+	private static Object[] batchEntry(Object addressees, String event, Object[] args) {
+		return new Object[] { addressees, event, args };
+	}
+
+	/** Sends everything waiting in the outbox as one packet. Called by {@link #flushEvents()} */
+	public void flushOutbox() {
+		if (outbox.isEmpty() || !isConnected()) {
+			return;
+		}
+		final List<Object[]> batch = Lists.newArrayList();
+		Object[] entry;
+		while ((entry = outbox.poll()) != null) {
+			batch.add(entry);
+		}
+		emit(CommonSocketIOEvents.SWAN_EMIT_BATCH, batch);
+	}
+
+	/** Tells the other clients what this one can decode. Answers are handled by {@link #onCapabilities} */
+	private void announceCapabilities() {
+		if (binaryPayloads) {
+			binaryPeers.add(nickname);
+		}
+		emit(CommonSocketIOEvents.SWAN_BROADCAST, CommonSocketIOEvents.SWAN_CAPABILITIES, capabilities(true));
+	}
+
+	private Object[] capabilities(boolean answer) {
+		final List<String> capabilities = binaryPayloads ? Collections.singletonList(CAPABILITY_BINARY) : Collections.<String> emptyList();
+		return CAPABILITIES.encode(new Object[] { nickname, capabilities, answer });
+	}
+
+	/** Called on the socket thread, so what a client can decode is known before any game events from it are dispatched */
+	private void onCapabilities(Object[] arguments) {
+		final Object[] args = CAPABILITIES.decode(arguments);
+		final String peer = (String) args[0];
+		if (peer == null || peer.equals(nickname)) {
+			return;
+		}
+		if (((List<?>) args[1]).contains(CAPABILITY_BINARY)) {
+			binaryPeers.add(peer);
+		} else {
+			binaryPeers.remove(peer);
+		}
+		if ((Boolean) args[2]) {
+			emit(CommonSocketIOEvents.SWAN_EMIT, peer, CommonSocketIOEvents.SWAN_CAPABILITIES, capabilities(false));
+		}
+	}
+
+	/** The screen's clock in milliseconds, shared by every client, for timing things together across devices */
+	public long getSharedTimeInMs() {
+		return clock.getSharedTimeInMs();
+	}
+
+	/** Runs the task on the render thread once the shared clock reaches the given time, or straight away if it already has */
+	public Timeout scheduleAt(long sharedTimeInMs, Runnable task) {
+		return scheduler.schedule(task, sharedTimeInMs - getSharedTimeInMs(), TimeUnit.MILLISECONDS);
 	}
 
 	/** Updates the nicknames */
 	public void requestNicknames() {
-		client.emit(CommonSocketIOEvents.GET_NICKNAMES);
+		emit(CommonSocketIOEvents.GET_NICKNAMES);
 	}
 
-	/** Call this at the end of the render loop */
+	/** Call this once a frame on the render thread. Events that don't fit in the emitter's flush budget wait for the next call. Anything the callbacks emit while batching is sent before this returns */
 	public void flushEvents() {
+		checkConnection();
 		this.eventEmitter.flushEvents();
+		flushOutbox();
 	}
 
 	public void connect(final String serverAddress, final String nickname, final boolean isScreen, final ConnectCallback connectCallback) throws MalformedURLException {
-		final SocketIO socketIO = new SocketIO(serverAddress);
-		this.client = socketIO;
-		client.connect(new IOCallback() {
-
-			@Override
-			public void onMessage(JSONObject arg0, IOAcknowledge arg1) {
-				// TODO Auto-generated method stub
+		connect(SocketIOTransport.factory(serverAddress), nickname, isScreen, connectCallback);
+	}
 
-			}
+	/** Connects over any transport, such as a {@link com.swandev.swanlib.relay.LoopbackHub} for states in the same process */
+	public void connect(final SwanTransport.Factory transports, final String nickname, final boolean isScreen, final ConnectCallback connectCallback) {
+		this.transports = transports;
+		this.isScreen = isScreen;
+		this.connectCallback = connectCallback;
+		this.nickname = isScreen ? SCREEN_NAME : nickname;
+		resumeToken = null;
+		resuming = false;
+		resumeSentOn = null;
+		received.set(0);
+		open();
+	}
 
-			@Override
-			public void onMessage(String arg0, IOAcknowledge arg1) {
-				// TODO Auto-generated method stub
+	private void open() {
+		final SwanTransport opened = transports.create();
+		this.transport = opened;
+		opened.connect(new SwanTransport.Listener() {
 
+			/** Callbacks from a connection that has since been replaced are ignored */
+			private boolean isCurrent() {
+				return transport == opened;
 			}
 
 			@Override
 			public void onError(SocketIOException ex) {
+				if (!isCurrent() || resuming) {
+					// the next attempt is already scheduled
+					return;
+				}
 				Gdx.app.error(CommonLogTags.SOCKET_IO, "Connection error", ex);
 				connectCallback.onConnect(ex);
 			}
 
 			@Override
 			public void onDisconnect() {
+				if (!isCurrent()) {
+					return;
+				}
 				Gdx.app.debug(CommonLogTags.SOCKET_IO, "Disconnected");
-				eventEmitter.clear();
-				connectCallback.onDisconnect();
+				eventEmitter.post(new Runnable() {
+
+					@Override
+					public void run() {
+						onConnectionLost(opened);
+					}
+				});
 			}
 
 			@Override
 			public void onConnect() {
-				Gdx.app.debug(CommonLogTags.SOCKET_IO, "Connected to " + serverAddress);
+				if (!isCurrent()) {
+					return;
+				}
+				Gdx.app.debug(CommonLogTags.SOCKET_IO, "Connected");
+				if (resuming) {
+					resumeSentOn = opened;
+					opened.emit(CommonSocketIOEvents.SWAN_RESUME, nickname, resumeToken, received.get());
+					eventEmitter.post(new Runnable() {
+
+						@Override
+						public void run() {
+							onResumeSent(opened);
+						}
+					});
+					return;
+				}
 				if (!isScreen) {
 					setNickname(nickname);
 				} else {
-					SocketIOState.this.nickname = SCREEN_NAME;
-					client.emit(CommonSocketIOEvents.SCREEN_SET);
+					opened.emit(CommonSocketIOEvents.SCREEN_SET);
+					announceCapabilities();
 				}
 				connectCallback.onConnect(null);
 			}
 
 			@Override
-			public void on(String event, IOAcknowledge ack, Object... arguments) {
-				eventEmitter.recordEvent(event, ack, arguments);
+			public void onEvent(String event, IOAcknowledge ack, Object... arguments) {
+				if (!isCurrent()) {
+					return;
+				}
+				// counted the way the relay counts them, so a resume can say exactly what it got
+				received.incrementAndGet();
+				try {
+					if (CommonSocketIOEvents.SWAN_CAPABILITIES.equals(event)) {
+						onCapabilities(arguments);
+						return;
+					} else if (CommonSocketIOEvents.SWAN_PING.equals(event)) {
+						clock.onPing(arguments);
+						return;
+					} else if (CommonSocketIOEvents.SWAN_PONG.equals(event)) {
+						clock.onPong(arguments);
+						return;
+					} else if (CommonSocketIOEvents.SWAN_SESSION.equals(event)) {
+						resumeToken = (String) arguments[0];
+						return;
+					} else if (CommonSocketIOEvents.SWAN_RESUMED.equals(event) || CommonSocketIOEvents.SWAN_RESUME_FAILED.equals(event)) {
+						final boolean resumed = CommonSocketIOEvents.SWAN_RESUMED.equals(event);
+						eventEmitter.post(new Runnable() {
+
+							@Override
+							public void run() {
+								onResumeAnswered(resumed);
+							}
+						});
+						return;
+					}
+					if (CommonSocketIOEvents.ELECTED_HOST.equals(event) || CommonSocketIOEvents.ELECTED_CLIENT.equals(event)) {
+						// the nickname was accepted, so it is safe to announce under it
+						announceCapabilities();
+						eventEmitter.post(new Runnable() {
+
+							@Override
+							public void run() {
+								clock.start();
+							}
+						});
+					} else if (CommonSocketIOEvents.CLIENT_DISCONNECT.equals(event) && arguments.length > 0) {
+						binaryPeers.remove(arguments[0]);
+						clock.remove((String) arguments[0]);
+					}
+					eventEmitter.recordEvent(event, ack, arguments);
+				} catch (CodecException e) {
+					Gdx.app.error(CommonLogTags.SOCKET_IO, "Dropped " + event + ", which couldn't be decoded", e);
+				}
 			}
 		});
 	}
+
+	/** Notices a connection that has dropped without telling us, which the client only reports once it gives up on it much later */
+	private void checkConnection() {
+		final SwanTransport current = transport;
+		if (!resuming && resumeToken != null && current != null && !current.isConnected()) {
+			onConnectionLost(current);
+		}
+	}
+
+	/** Runs on the render thread */
+	private void onConnectionLost(SwanTransport lost) {
+		if (lost != transport) {
+			return;
+		}
+		if (resuming) {
+			if (lost == resumeSentOn) {
+				// it dropped before the relay answered, so there is nothing left to wait for on it
+				resumeSentOn = null;
+				cancelRetry();
+				reconnect();
+			}
+			return;
+		}
+		if (resumeToken == null) {
+			// the server can't resume sessions, or this one never got going
+			disconnected();
+			return;
+		}
+		Gdx.app.log(CommonLogTags.SOCKET_IO, "Lost the connection, resuming as " + nickname);
+		resuming = true;
+		resumeStartedAt = System.nanoTime();
+		resumeAttempts = 0;
+		reconnect();
+	}
+
+	/** Replaces the connection with a new one, and schedules another go in case this one doesn't resume either */
+	private void reconnect() {
+		if (!resuming) {
+			return;
+		}
+		if (System.nanoTime() - resumeStartedAt > TimeUnit.MILLISECONDS.toNanos(RESUME_TIMEOUT_IN_MS)) {
+			Gdx.app.log(CommonLogTags.SOCKET_IO, "Couldn't resume the connection");
+			disconnected();
+			return;
+		}
+		if (transport == resumeSentOn) {
+			// the relay may already have resumed the session on this connection, and closing it would suspend it all over again, so wait for the answer instead
+			retry = scheduler.schedule(new Runnable() {
+
+				@Override
+				public void run() {
+					reconnect();
+				}
+			}, RESUME_TIMEOUT_IN_MS - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - resumeStartedAt) + 1, TimeUnit.MILLISECONDS);
+			return;
+		}
+		final SwanTransport previous = transport;
+		open();
+		previous.disconnect();
+		final long backoff = Math.min(MAX_RETRY_IN_MS, FIRST_RETRY_IN_MS << Math.min(resumeAttempts++, 16));
+		// jittered, so phones that dropped together don't all come back at once
+		retry = scheduler.schedule(new Runnable() {
+
+			@Override
+			public void run() {
+				reconnect();
+			}
+		}, backoff + SwanUtil.getRandom().nextInt((int) backoff / 2 + 1), TimeUnit.MILLISECONDS);
+	}
+
+	/** Runs on the render thread. The backoff no longer applies to a connection that has sent its resume, only the deadline for resuming at all */
+	private void onResumeSent(SwanTransport sentOn) {
+		if (sentOn == transport) {
+			cancelRetry();
+			reconnect();
+		}
+	}
+
+	/** Runs on the render thread */
+	private void onResumeAnswered(boolean resumed) {
+		if (!resuming) {
+			return;
+		}
+		if (!resumed) {
+			Gdx.app.log(CommonLogTags.SOCKET_IO, "The server couldn't resume the session");
+			disconnected();
+			return;
+		}
+		Gdx.app.log(CommonLogTags.SOCKET_IO, "Resumed as " + nickname + " after " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - resumeStartedAt) + "ms");
+		resuming = false;
+		cancelRetry();
+		Object[] held;
+		while ((held = heldEmits.poll()) != null) {
+			transport.emit((String) held[0], (Object[]) held[1]);
+		}
+	}
+
+	/** Gives up on the connection for good: screens unregister their callbacks and go back to connecting */
+	private void disconnected() {
+		resuming = false;
+		resumeToken = null;
+		resumeSentOn = null;
+		cancelRetry();
+		heldEmits.clear();
+		outbox.clear();
+		if (transport != null) {
+			final SwanTransport dead = transport;
+			transport = null;
+			if (dead.isConnected()) {
+				// otherwise the relay takes the close for a drop, and holds our place for a resume that never comes
+				dead.emit(CommonSocketIOEvents.SWAN_LEAVE);
+			}
+			dead.disconnect();
+		}
+		eventEmitter.clear();
+		subscribeNicknames();
+		binaryPeers.clear();
+		clock.clear();
+		connectCallback.onDisconnect();
+	}
+
+	private void cancelRetry() {
+		if (retry != null) {
+			retry.cancel();
+			retry = null;
+		}
+	}
 }
@@ -0,0 +1,85 @@
+package com.swandev.swanlib.socket;
+
+import io.socket.IOAcknowledge;
+import io.socket.IOCallback;
+import io.socket.SocketIO;
+import io.socket.SocketIOException;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+
+import org.json.JSONObject;
+
+/** A socket.io 0.9 connection to the relay or swan_server.py */
+public class SocketIOTransport implements SwanTransport {
+
+	private final SocketIO socketIO;
+
+	public SocketIOTransport(URL url) {
+		this.socketIO = new SocketIO(url);
+	}
+
+	/** Checks the address once, up front, rather than on every reconnect */
+	public static SwanTransport.Factory factory(String serverAddress) throws MalformedURLException {
+		final URL url = new URL(serverAddress);
+		return new SwanTransport.Factory() {
+
+			@Override
+			public SwanTransport create() {
+				return new SocketIOTransport(url);
+			}
+		};
+	}
+
+	@Override
+	public void connect(final Listener listener) {
+		socketIO.connect(new IOCallback() {
+
+			@Override
+			public void onMessage(JSONObject json, IOAcknowledge ack) {
+				// swan only uses events
+			}
+
+			@Override
+			public void onMessage(String data, IOAcknowledge ack) {
+				// swan only uses events
+			}
+
+			@Override
+			public void onError(SocketIOException ex) {
+				listener.onError(ex);
+			}
+
+			@Override
+			public void onDisconnect() {
+				listener.onDisconnect();
+			}
+
+			@Override
+			public void onConnect() {
+				listener.onConnect();
+			}
+
+			@Override
+			public void on(String event, IOAcknowledge ack, Object... args) {
+				listener.onEvent(event, ack, args);
+			}
+		});
+	}
+
+	@Override
+	public boolean isConnected() {
+		return socketIO.isConnected();
+	}
+
+	@Override
+	public void emit(String event, Object... args) {
+		socketIO.emit(event, args);
+	}
+
+	@Override
+	public void disconnect() {
+		socketIO.disconnect();
+	}
+
+}
@@ -0,0 +1,11 @@
+package com.swandev.swanlib.socket;
+
+/** A callback registered with {@link EventEmitter#on}. It stays registered, alongside any others for the same event, until it is cancelled */
+public interface Subscription {
+
+	/** Stops the callback being called, even for an event that is being dispatched right now. Safe to call from the callback itself, and more than once */
+	void cancel();
+
+	boolean isActive();
+
+}
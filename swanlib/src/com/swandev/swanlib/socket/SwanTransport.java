@@ -0,0 +1,42 @@
+package com.swandev.swanlib.socket;
+
+import io.socket.IOAcknowledge;
+import io.socket.SocketIOException;
+
+/**
+ * Carries a {@link SocketIOState}'s events to and from the swan server. {@link SocketIOTransport} talks socket.io to a real server, and {@link com.swandev.swanlib.relay.LoopbackHub} connects states in the same process to each other in memory.
+ *
+ * Listeners are called on the transport's own thread, never on the thread that called into the transport, just as socket.io does.
+ */
+public interface SwanTransport {
+
+	/** Makes a fresh transport for every connection, including the ones that resume a dropped session */
+	public interface Factory {
+		SwanTransport create();
+	}
+
+	public interface Listener {
+		void onConnect();
+
+		/** The connection is gone, either dropped or closed by the server */
+		void onDisconnect();
+
+		/** Connecting failed */
+		void onError(SocketIOException ex);
+
+		/** The arguments are typed as socket.io delivers them: JSONArray, JSONObject, String, Integer, Long, Double, Boolean or null */
+		void onEvent(String event, IOAcknowledge ack, Object... args);
+	}
+
+	/** Starts connecting, and reports how it went to the listener */
+	void connect(Listener listener);
+
+	boolean isConnected();
+
+	/** The arguments may be plain arrays, lists, maps, strings, numbers, booleans or null */
+	void emit(String event, Object... args);
+
+	/** Closes the connection. The listener may still hear about it, but the caller shouldn't rely on that */
+	void disconnect();
+
+}
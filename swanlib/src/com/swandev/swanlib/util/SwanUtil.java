@@ -5,9 +5,6 @@ import java.util.Random;
 
 import lombok.Getter;
 
-import org.json.JSONArray;
-import org.json.JSONException;
-
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.graphics.Texture.TextureFilter;
 import com.badlogic.gdx.graphics.g2d.BitmapFont;
@@ -33,19 +30,6 @@ public class SwanUtil {
 		return true;
 	}
 
-	@SuppressWarnings("unchecked")
-	public static <T> List<T> parseJsonList(JSONArray jsonArray) {
-		final List<T> list = Lists.newArrayList();
-		for (int i = 0; i < jsonArray.length(); i++) {
-			try {
-				list.add((T) jsonArray.get(i));
-			} catch (JSONException e) {
-				e.printStackTrace();
-			}
-		}
-		return list;
-	}
-
 	public static <T> T getNextRoundRobin(List<T> playerNames, T currentObj) {
 		int nextIndex = playerNames.indexOf(currentObj) + 1;
 		if (nextIndex >= playerNames.size()) {
@@ -0,0 +1,238 @@
+package com.swandev.swanlib.util;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Runs delayed tasks for any number of games and timeouts from one daemon thread.
+ *
+ * Timeouts hang off a ring of buckets, one per tick, so scheduling and cancelling are O(1) however many are pending. Each tick the thread expires one bucket and hands its due tasks to the executor it was given, which is how tasks end up on the game thread (see {@link com.swandev.swanlib.socket.SocketIOState#getScheduler()}). A timeout fires up to one tick late, never early.
+ */
+public class TimerWheel {
+
+	public static final long DEFAULT_TICK_IN_MS = 10;
+	public static final int DEFAULT_WHEEL_SIZE = 512;
+
+	private final Executor executor;
+	private final long tickNanos;
+	private final int wheelSize;
+	private final int mask;
+	private final Object lifecycle = new Object();
+	/** The running wheel, or null while stopped. A restart gets a new one, so a thread still winding down never touches the timeouts of the next */
+	private volatile Wheel wheel;
+
+	/** A handle on one scheduled task */
+	public static class Timeout implements Runnable {
+		private static final int WAITING = 0;
+		private static final int DUE = 1;
+		private static final int DONE = 2;
+		private static final int CANCELLED = 3;
+
+		private final Runnable task;
+		/** Nanoseconds after the wheel started */
+		private final long deadline;
+		private final AtomicInteger state = new AtomicInteger(WAITING);
+		// owned by the wheel thread
+		private long rounds;
+		private Timeout next;
+		private Timeout previous;
+
+		Timeout(Runnable task, long deadline) {
+			this.task = task;
+			this.deadline = deadline;
+		}
+
+		/**
+		 * Stops the task from running, even if it has come due and is waiting to be run by the executor.
+		 *
+		 * @return false if the task had already run or been cancelled
+		 */
+		public boolean cancel() {
+			return state.compareAndSet(WAITING, CANCELLED) || state.compareAndSet(DUE, CANCELLED);
+		}
+
+		public boolean isCancelled() {
+			return state.get() == CANCELLED;
+		}
+
+		/** Whether the task has run or is about to */
+		public boolean isExpired() {
+			final int current = state.get();
+			return current == DUE || current == DONE;
+		}
+
+		/** Called by the executor. Runs the task unless it was cancelled on its way there */
+		@Override
+		public void run() {
+			if (state.compareAndSet(DUE, DONE)) {
+				task.run();
+			}
+		}
+	}
+
+	/**
+	 * @param executor
+	 *            where due tasks run. It is called on the wheel thread, so it should only hand the task off
+	 */
+	public TimerWheel(Executor executor) {
+		this(executor, DEFAULT_TICK_IN_MS, TimeUnit.MILLISECONDS, DEFAULT_WHEEL_SIZE);
+	}
+
+	/**
+	 * @param wheelSize
+	 *            the number of buckets, a power of two. Timeouts further out than a full turn of the wheel go round more than once
+	 */
+	public TimerWheel(Executor executor, long tick, TimeUnit unit, int wheelSize) {
+		Preconditions.checkArgument(tick > 0);
+		Preconditions.checkArgument(wheelSize > 0 && Integer.bitCount(wheelSize) == 1, "The wheel size must be a power of two");
+		this.executor = executor;
+		this.tickNanos = unit.toNanos(tick);
+		this.wheelSize = wheelSize;
+		this.mask = wheelSize - 1;
+	}
+
+	/** Runs the task once the delay has passed. The wheel thread starts with the first task */
+	public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+		Preconditions.checkNotNull(task);
+		final Wheel current = startWheel();
+		final Timeout timeout = new Timeout(task, System.nanoTime() - current.startTime + unit.toNanos(Math.max(0, delay)));
+		current.scheduled.add(timeout);
+		return timeout;
+	}
+
+	public void start() {
+		startWheel();
+	}
+
+	private Wheel startWheel() {
+		synchronized (lifecycle) {
+			if (wheel == null) {
+				wheel = new Wheel();
+				wheel.thread.start();
+			}
+			return wheel;
+		}
+	}
+
+	/** Stops the wheel thread. Anything still pending never runs */
+	public void stop() {
+		final Wheel stopping;
+		synchronized (lifecycle) {
+			stopping = wheel;
+			wheel = null;
+		}
+		if (stopping == null) {
+			return;
+		}
+		stopping.running = false;
+		if (stopping.thread != Thread.currentThread()) {
+			stopping.thread.interrupt();
+			try {
+				stopping.thread.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/** One run of the wheel thread, from a start to a stop */
+	private class Wheel implements Runnable {
+		final long startTime = System.nanoTime();
+		final Timeout[] buckets = new Timeout[wheelSize];
+		/** Timeouts scheduled since the last tick, waiting for the wheel thread to place them */
+		final Queue<Timeout> scheduled = new ConcurrentLinkedQueue<Timeout>();
+		final Thread thread = new Thread(this, "swan-timer-wheel");
+		volatile boolean running = true;
+		/** Only touched by the wheel thread */
+		long tick;
+
+		Wheel() {
+			thread.setDaemon(true);
+		}
+
+		@Override
+		public void run() {
+			while (running) {
+				final long deadline = (tick + 1) * tickNanos;
+				final long sleepNanos = deadline - (System.nanoTime() - startTime);
+				if (sleepNanos > 0) {
+					try {
+						// rounded up, and checked again, because sleeps can end early
+						Thread.sleep(TimeUnit.NANOSECONDS.toMillis(sleepNanos + TimeUnit.MILLISECONDS.toNanos(1) - 1));
+					} catch (InterruptedException e) {
+						// stop() interrupts us, anything else is spurious
+					}
+					continue;
+				}
+				placeScheduled();
+				expire(buckets[(int) (tick & mask)]);
+				tick++;
+			}
+			scheduled.clear();
+			for (int i = 0; i < buckets.length; i++) {
+				buckets[i] = null;
+			}
+		}
+
+		private void placeScheduled() {
+			Timeout timeout;
+			while ((timeout = scheduled.poll()) != null) {
+				if (timeout.isCancelled()) {
+					continue;
+				}
+				// the tick that is about to expire is the earliest a timeout can go in
+				final long due = Math.max(timeout.deadline / tickNanos, tick);
+				timeout.rounds = (due - tick) / buckets.length;
+				final int index = (int) (due & mask);
+				timeout.next = buckets[index];
+				if (timeout.next != null) {
+					timeout.next.previous = timeout;
+				}
+				buckets[index] = timeout;
+			}
+		}
+
+		private void expire(Timeout timeout) {
+			while (timeout != null) {
+				final Timeout next = timeout.next;
+				if (timeout.isCancelled()) {
+					remove(timeout);
+				} else if (timeout.rounds <= 0) {
+					remove(timeout);
+					if (timeout.state.compareAndSet(Timeout.WAITING, Timeout.DUE)) {
+						try {
+							executor.execute(timeout);
+						} catch (RuntimeException e) {
+							// one bad task or a shut down executor mustn't stop every other timeout
+							final Thread current = Thread.currentThread();
+							current.getUncaughtExceptionHandler().uncaughtException(current, e);
+						}
+					}
+				} else {
+					timeout.rounds--;
+				}
+				timeout = next;
+			}
+		}
+
+		private void remove(Timeout timeout) {
+			final int index = (int) (tick & mask);
+			if (timeout.previous != null) {
+				timeout.previous.next = timeout.next;
+			} else {
+				buckets[index] = timeout.next;
+			}
+			if (timeout.next != null) {
+				timeout.next.previous = timeout.previous;
+			}
+			timeout.next = null;
+			timeout.previous = null;
+		}
+	}
+
+}